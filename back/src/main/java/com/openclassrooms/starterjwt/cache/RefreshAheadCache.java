@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches values for a fixed time and reloads them in the background once they pass
+ * the refresh point, serving the current value meanwhile. Only one load per key runs
+ * at a time; {@link #invalidate()} drops every entry and discards loads started before it.
+ */
+public class RefreshAheadCache<K, V> {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final SingleFlight<Map.Entry<Long, K>, V> loads;
+
+    private final long ttlMs;
+
+    private final long refreshAfterMs;
+
+    private final Executor executor;
+
+    private final LongSupplier clock;
+
+    public RefreshAheadCache(long ttlMs, long refreshAfterMs, long loadTimeoutMs, Executor executor) {
+        this(ttlMs, refreshAfterMs, loadTimeoutMs, executor, System::currentTimeMillis);
+    }
+
+    public RefreshAheadCache(long ttlMs, long refreshAfterMs, long loadTimeoutMs, Executor executor, LongSupplier clock) {
+        this.ttlMs = ttlMs;
+        this.refreshAfterMs = Math.min(refreshAfterMs, ttlMs);
+        this.executor = executor;
+        this.clock = clock;
+        this.loads = new SingleFlight<>(loadTimeoutMs);
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        Entry<V> entry = this.entries.get(key);
+        if (entry != null) {
+            long age = this.clock.getAsLong() - entry.loadedAt;
+            if (age < this.ttlMs) {
+                if (age >= this.refreshAfterMs) {
+                    this.refreshAsync(key, loader);
+                }
+                return entry.value;
+            }
+        }
+        return this.load(key, loader, this.generation.get());
+    }
+
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+    }
+
+    private V load(K key, Supplier<V> loader, long loadGeneration) {
+        return this.loads.load(new AbstractMap.SimpleImmutableEntry<>(loadGeneration, key), () -> {
+            V value = loader.get();
+            this.entries.compute(key, (k, current) ->
+                    this.generation.get() == loadGeneration ? new Entry<>(value, this.clock.getAsLong()) : current);
+            return value;
+        });
+    }
+
+    private void refreshAsync(K key, Supplier<V> loader) {
+        if (!this.refreshing.add(key)) {
+            return;
+        }
+
+        long refreshGeneration = this.generation.get();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    if (this.generation.get() == refreshGeneration) {
+                        this.load(key, loader, refreshGeneration);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Background refresh failed for {}: {}", key, e.getMessage());
+                } finally {
+                    this.refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.refreshing.remove(key);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
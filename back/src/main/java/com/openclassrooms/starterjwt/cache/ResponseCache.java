@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized JSON of hot read endpoints, with a precompressed gzip variant,
+ * until the data version of its region is bumped by a write.
+ */
+@Component
+public class ResponseCache {
+    public static final String SESSIONS = "sessions";
+    public static final String TEACHERS = "teachers";
+
+    public static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CachedBody> bodies = new ConcurrentHashMap<>();
+
+    public ResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ResponseEntity<byte[]> serve(String region, String route, String acceptEncoding, Supplier<?> loader) {
+        String key = scoped(region) + ":" + route;
+        long version = this.version(region).get();
+
+        CachedBody body = this.bodies.get(key);
+        if (body == null || body.version != version) {
+            CachedBody rendered = this.render(version, loader.get());
+            body = this.bodies.merge(key, rendered, (current, candidate) -> current.version >= candidate.version ? current : candidate);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (body.gzip != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(body.gzip);
+        }
+        return response.body(body.identity);
+    }
+
+    public void invalidate(String region) {
+        this.version(region).incrementAndGet();
+    }
+
+    public long getVersion(String region) {
+        return this.version(region).get();
+    }
+
+    private AtomicLong version(String region) {
+        return this.versions.computeIfAbsent(scoped(region), r -> new AtomicLong());
+    }
+
+    // Every studio has its own copy of each region
+    private static String scoped(String region) {
+        return TenantContext.current() + "/" + region;
+    }
+
+    private CachedBody render(long version, Object value) {
+        try {
+            byte[] identity = this.objectMapper.writeValueAsBytes(value);
+            byte[] gzip = gzip(identity);
+            return new CachedBody(version, identity, gzip.length < identity.length ? gzip : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize cached response", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] identity) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(identity.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase(GZIP) && !coding.equals("*")) {
+                continue;
+            }
+
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class CachedBody {
+        private final long version;
+        private final byte[] identity;
+        private final byte[] gzip;
+
+        private CachedBody(long version, byte[] identity, byte[] gzip) {
+            this.version = version;
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+final class AdminAccess {
+    private AdminAccess() {
+    }
+
+    static boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl
+                && Boolean.TRUE.equals(((UserDetailsImpl) authentication.getPrincipal()).getAdmin());
+    }
+}
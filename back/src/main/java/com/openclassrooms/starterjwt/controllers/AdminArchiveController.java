@@ -0,0 +1,54 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.services.ArchiveService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.format.DateTimeParseException;
+
+/**
+ * Read-only access to the sessions moved out of the live tables by the archive job, for history
+ * and reports. They come back as in the session list.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/archive")
+public class AdminArchiveController {
+    private final ArchiveService archiveService;
+
+
+    public AdminArchiveController(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    // From and to are both required, so a single request never reads years of history
+    @GetMapping("/sessions")
+    public ResponseEntity<?> findSessions(@RequestParam(value = "from", required = false) String from,
+                                          @RequestParam(value = "to", required = false) String to,
+                                          @RequestParam(value = "teacherId", required = false) String teacherId) {
+        if (!AdminAccess.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            return ResponseEntity.ok().body(this.archiveService.findArchived(SessionFilter.parse(from, to, teacherId)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/users/{id}/sessions")
+    public ResponseEntity<?> findSessionsOfUser(@PathVariable("id") String id) {
+        if (!AdminAccess.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            return ResponseEntity.ok().body(this.archiveService.findArchivedByUser(Long.valueOf(id)));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
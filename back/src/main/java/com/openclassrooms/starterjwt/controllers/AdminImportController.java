@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.importer.ImportKind;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.services.ImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/import")
+public class AdminImportController {
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private static final int MAX_CHUNK_SIZE = 10000;
+
+    private final ImportService importService;
+
+
+    public AdminImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    // The body is read as it arrives; without a format parameter the Content-Type decides
+    @PostMapping("/{kind}")
+    public ResponseEntity<?> importRecords(@PathVariable("kind") String kind,
+                                           @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                           @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+                                           @RequestParam(value = "format", required = false) String format,
+                                           @RequestParam(value = "importId", required = false) String importId,
+                                           @RequestParam(value = "chunkSize", required = false) String chunkSize,
+                                           HttpServletRequest request) throws IOException {
+        if (!AdminAccess.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        ImportKind importKind;
+        DataFormat dataFormat;
+        Integer size;
+        try {
+            importKind = ImportKind.parse(kind);
+            dataFormat = format != null ? DataFormat.parse(format) : formatOf(contentType);
+            size = chunkSize != null ? Integer.valueOf(chunkSize) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (importId != null && !IMPORT_ID.matcher(importId).matches()
+                || size != null && (size < 1 || size > MAX_CHUNK_SIZE)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        InputStream body = ResponseCache.GZIP.equalsIgnoreCase(contentEncoding)
+                ? new GZIPInputStream(request.getInputStream())
+                : request.getInputStream();
+        return ResponseEntity.ok().body(this.importService.importRecords(importKind, dataFormat, body, importId, size));
+    }
+
+    private static DataFormat formatOf(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("ndjson") ? DataFormat.NDJSON : DataFormat.CSV;
+    }
+}
@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.services.SessionBulkService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Bulk operations on the sessions from {@code from} to {@code to} (both days included), optionally
+ * only those of {@code teacherId}. Each returns the number of sessions and bookings it changed.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/sessions")
+public class AdminSessionController {
+    private final SessionBulkService sessionBulkService;
+
+
+    public AdminSessionController(SessionBulkService sessionBulkService) {
+        this.sessionBulkService = sessionBulkService;
+    }
+
+    // Hands a teacher's classes to a substitute
+    @PostMapping("/reassign")
+    public ResponseEntity<?> reassign(@RequestParam(value = "from", required = false) String from,
+                                      @RequestParam(value = "to", required = false) String to,
+                                      @RequestParam(value = "teacherId", required = false) String teacherId,
+                                      @RequestParam(value = "substituteId", required = false) String substituteId) {
+        if (!AdminAccess.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            SessionFilter filter = SessionFilter.parse(from, to, teacherId);
+            if (substituteId == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok().body(this.sessionBulkService.reassign(filter, Long.valueOf(substituteId)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Moves sessions by an ISO-8601 duration, such as P7D or -PT30M
+    @PostMapping("/shift")
+    public ResponseEntity<?> shift(@RequestParam(value = "from", required = false) String from,
+                                   @RequestParam(value = "to", required = false) String to,
+                                   @RequestParam(value = "teacherId", required = false) String teacherId,
+                                   @RequestParam(value = "by", required = false) String by) {
+        if (!AdminAccess.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            SessionFilter filter = SessionFilter.parse(from, to, teacherId);
+            if (by == null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            return ResponseEntity.ok().body(this.sessionBulkService.shift(filter, Duration.parse(by)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Cancels the sessions along with their bookings, for instance every class on a holiday
+    @DeleteMapping()
+    public ResponseEntity<?> delete(@RequestParam(value = "from", required = false) String from,
+                                    @RequestParam(value = "to", required = false) String to,
+                                    @RequestParam(value = "teacherId", required = false) String teacherId) {
+        if (!AdminAccess.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            return ResponseEntity.ok().body(this.sessionBulkService.delete(SessionFilter.parse(from, to, teacherId)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
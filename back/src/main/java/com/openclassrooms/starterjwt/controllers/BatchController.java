@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.payload.request.BatchRequest;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.services.BatchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/batch")
+public class BatchController {
+    private final BatchService batchService;
+
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    @PostMapping()
+    public ResponseEntity<?> execute(@RequestBody List<BatchRequest> requests,
+                                     HttpServletRequest request,
+                                     HttpServletResponse response) {
+        if (requests.size() > this.batchService.getMaxRequests()) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("A batch holds at most " + this.batchService.getMaxRequests() + " requests"));
+        }
+
+        return ResponseEntity.ok().body(this.batchService.execute(requests, request, response));
+    }
+}
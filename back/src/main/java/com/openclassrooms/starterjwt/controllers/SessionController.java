@@ -1,52 +1,215 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.dto.SessionChangesDto;
+import com.openclassrooms.starterjwt.dto.SessionDetailDto;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.SessionEventBroadcaster;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+import com.openclassrooms.starterjwt.repository.ListReadPath;
+import com.openclassrooms.starterjwt.payload.response.VersionConflictResponse;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    // Tokens trail the clock so that rows committed late, or rounded by the database, are picked up again
+    private static final long SYNC_WINDOW_MS = 5000;
+
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final ResponseCache responseCache;
+    private final SessionEventBroadcaster eventBroadcaster;
+    private final ListReadPath listReads;
+    private final ObjectWriter listWriter;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             ResponseCache responseCache,
+                             SessionEventBroadcaster eventBroadcaster,
+                             ObjectMapper objectMapper,
+                             @Value("${oc.app.sessionListReads:jdbc}") ListReadPath listReads) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.responseCache = responseCache;
+        this.eventBroadcaster = eventBroadcaster;
+        this.listReads = listReads;
+        this.listWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id,
+                                      @RequestParam(value = "fields", required = false) String fields,
+                                      @RequestParam(value = "expand", required = false) String expand) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            SessionFieldSet fieldSet = SessionFieldSet.parse(fields, expand);
+            if (!canExpand(fieldSet)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            if (!fieldSet.isDefault()) {
+                Session session = this.sessionService.getById(Long.valueOf(id), fieldSet);
+
+                if (session == null) {
+                    return ResponseEntity.notFound().build();
+                }
+
+                return ResponseEntity.ok().body(this.sessionMapper.toView(session, fieldSet));
+            }
+
+            SessionDto session = this.sessionService.getDto(Long.valueOf(id));
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return ResponseEntity.ok().body(session);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}/detail")
+    public ResponseEntity<?> detail(@PathVariable("id") String id) {
+        try {
+            SessionDetailDto detail = this.sessionService.getDetail(Long.valueOf(id), this.currentUserId());
+
+            if (detail == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok().body(detail);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                     @RequestParam(value = "fields", required = false) String fields,
+                                     @RequestParam(value = "expand", required = false) String expand) {
+        SessionFieldSet fieldSet;
+        try {
+            fieldSet = SessionFieldSet.parse(fields, expand);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!canExpand(fieldSet)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        if (!fieldSet.isDefault()) {
+            return this.responseCache.serve(ResponseCache.SESSIONS, "/api/session?" + fieldSet.key(), acceptEncoding,
+                    () -> this.sessionMapper.toView(this.sessionService.findAll(fieldSet), fieldSet));
+        }
+
+        if (this.listReads == ListReadPath.STREAM) {
+            return this.streamAll(acceptEncoding);
+        }
+
+        return this.responseCache.serve(ResponseCache.SESSIONS, "/api/session", acceptEncoding, () -> {
+            if (this.listReads == ListReadPath.JDBC) {
+                return this.sessionService.findAllRows();
+            }
+
+            return this.sessionService.findAll();
+        });
+    }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+    // Each session is written as it comes off the cursor, so the list is never held whole; nor is it cached.
+    // The body is written on another thread, hence the studio is passed along explicitly
+    private ResponseEntity<StreamingResponseBody> streamAll(String acceptEncoding) {
+        boolean gzip = ResponseCache.acceptsGzip(acceptEncoding);
+        String tenant = TenantContext.current();
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = this.listWriter.getFactory().createGenerator(gzip ? new GZIPOutputStream(out) : out)) {
+                json.writeStartArray();
+                TenantContext.callAs(tenant, () -> {
+                    this.sessionService.forEachForList(session -> this.write(json, this.sessionMapper.toDto(session)));
+                    return null;
+                });
+                json.writeEndArray();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, ResponseCache.GZIP);
+        }
+        return response.body(body);
+    }
+
+    private void write(JsonGenerator json, SessionDto session) {
+        try {
+            this.listWriter.writeValue(json, session);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> changes(@RequestParam(value = "since", required = false) String since) {
+        try {
+            String syncToken = String.valueOf(System.currentTimeMillis() - SYNC_WINDOW_MS);
+
+            LocalDateTime from = since != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(since)), ZoneId.systemDefault()) : null;
+            if (from == null || !this.sessionService.canSyncSince(from)) {
+                List<SessionDto> sessions = this.sessionService.findAll();
+                return ResponseEntity.ok().body(new SessionChangesDto(sessions, Collections.emptyList(), true, syncToken));
+            }
+
+            List<SessionDto> sessions = this.sessionMapper.toDto(this.sessionService.findUpdatedSince(from));
+            List<Long> deleted = this.sessionService.findDeletedSince(from);
+
+            return ResponseEntity.ok().body(new SessionChangesDto(sessions, deleted, false, syncToken));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return this.eventBroadcaster.subscribe();
     }
 
     @PostMapping()
@@ -59,26 +222,56 @@ public class SessionController {
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
+    // The version comes from If-Match, or else the body. A body without users leaves the participants alone
     @PutMapping("{id}")
-    public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
+    public ResponseEntity<?> update(@PathVariable("id") String id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                    @Valid @RequestBody SessionDto sessionDto) {
         try {
-            Session session = this.sessionService.update(Long.parseLong(id), this.sessionMapper.toEntity(sessionDto));
+            Long sessionId = Long.parseLong(id);
+            Long expectedVersion = ifMatch != null ? parseVersion(ifMatch) : sessionDto.getVersion();
+            Session changes = this.sessionMapper.toEntity(sessionDto);
+            if (sessionDto.getUsers() == null) {
+                changes.setUsers(null);
+            }
+            Session session = this.sessionService.update(sessionId, changes, expectedVersion);
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return ResponseEntity.ok()
+                    .eTag(String.valueOf(session.getVersion()))
+                    .body(this.sessionMapper.toDto(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
+        } catch (ConflictException e) {
+            return conflict(e.getCurrentVersion());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return conflict(this.sessionService.getVersion(Long.parseLong(id)));
         }
     }
 
-    @DeleteMapping("{id}")
-    public ResponseEntity<?> save(@PathVariable("id") String id) {
+    // JSON Merge Patch; an If-Match header carrying the version makes the write conditional
+    @PatchMapping(value = "{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patch(@PathVariable("id") String id,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                   @RequestBody JsonNode patch) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            Session session = this.sessionService.patch(Long.parseLong(id), patch, parseVersion(ifMatch));
 
-            if (session == null) {
-                return ResponseEntity.notFound().build();
-            }
+            return ResponseEntity.ok()
+                    .eTag(String.valueOf(session.getVersion()))
+                    .body(this.sessionMapper.toDto(session));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (ConflictException e) {
+            return conflict(e.getCurrentVersion());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return conflict(this.sessionService.getVersion(Long.parseLong(id)));
+        }
+    }
 
+    // An unknown session surfaces as the service's NotFoundException, without loading it first
+    @DeleteMapping("{id}")
+    public ResponseEntity<?> save(@PathVariable("id") String id) {
+        try {
             this.sessionService.delete(Long.parseLong(id));
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
@@ -107,4 +300,36 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl) {
+            return ((UserDetailsImpl) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
+
+    // Expanded participants carry their email and admin flag, which only admins may see
+    private static boolean canExpand(SessionFieldSet fieldSet) {
+        return !fieldSet.expandUsers() || AdminAccess.isAdmin();
+    }
+
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        return Long.parseLong(tag.replace("\"", ""));
+    }
+
+    private static ResponseEntity<?> conflict(Long currentVersion) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CONFLICT);
+        if (currentVersion != null) {
+            response.eTag(String.valueOf(currentVersion));
+        }
+        return response.body(new VersionConflictResponse("Error: Session was modified by someone else", currentVersion));
+    }
 }
@@ -0,0 +1,104 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.dto.SessionSeriesDto;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.mapper.SessionSeriesMapper;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.VersionConflictResponse;
+import com.openclassrooms.starterjwt.services.SessionSeriesService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/series")
+public class SessionSeriesController {
+    private final SessionSeriesService sessionSeriesService;
+    private final SessionSeriesMapper sessionSeriesMapper;
+
+
+    public SessionSeriesController(SessionSeriesService sessionSeriesService,
+                                   SessionSeriesMapper sessionSeriesMapper) {
+        this.sessionSeriesService = sessionSeriesService;
+        this.sessionSeriesMapper = sessionSeriesMapper;
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+        try {
+            SessionSeries series = this.sessionSeriesService.getById(Long.valueOf(id));
+
+            if (series == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.ok()
+                    .eTag(String.valueOf(series.getVersion()))
+                    .body(this.sessionSeriesMapper.toDto(series));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // One request for every occurrence up to the horizon; the rest follow as the horizon moves on
+    @PostMapping()
+    public ResponseEntity<?> create(@Valid @RequestBody SessionSeriesDto seriesDto) {
+        try {
+            SessionSeries series = this.sessionSeriesService.create(this.sessionSeriesMapper.toEntity(seriesDto));
+
+            return ResponseEntity.ok().body(this.sessionSeriesMapper.toDto(series));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("{id}")
+    public ResponseEntity<?> update(@PathVariable("id") String id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                    @Valid @RequestBody SessionSeriesDto seriesDto) {
+        try {
+            Long expectedVersion = ifMatch != null ? Long.valueOf(ifMatch.trim().replace("W/", "").replace("\"", "")) : null;
+            SessionSeries series = this.sessionSeriesService.update(Long.parseLong(id),
+                    this.sessionSeriesMapper.toEntity(seriesDto), expectedVersion);
+
+            return ResponseEntity.ok()
+                    .eTag(String.valueOf(series.getVersion()))
+                    .body(this.sessionSeriesMapper.toDto(series));
+        } catch (ConflictException e) {
+            return conflict(e.getCurrentVersion());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return conflict(null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Cancels the occurrences from the given day, or from now on, and ends the series there
+    @DeleteMapping("{id}")
+    public ResponseEntity<?> cancel(@PathVariable("id") String id,
+                                    @RequestParam(value = "from", required = false) String from) {
+        try {
+            int cancelled = this.sessionSeriesService.cancel(Long.parseLong(id), from != null ? LocalDate.parse(from) : null);
+
+            return ResponseEntity.ok().body(new MessageResponse(cancelled + " sessions cancelled"));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static ResponseEntity<?> conflict(Long currentVersion) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CONFLICT);
+        if (currentVersion != null) {
+            response.eTag(String.valueOf(currentVersion));
+        }
+        return response.body(new VersionConflictResponse("Error: Series was modified by someone else", currentVersion));
+    }
+}
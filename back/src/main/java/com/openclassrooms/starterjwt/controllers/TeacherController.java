@@ -1,8 +1,12 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import com.openclassrooms.starterjwt.cache.ResponseCache;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.ListReadPath;
 import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -13,12 +17,18 @@ import java.util.List;
 public class TeacherController {
     private final TeacherMapper teacherMapper;
     private final TeacherService teacherService;
+    private final ResponseCache responseCache;
+    private final ListReadPath listReads;
 
 
     public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
+                             TeacherMapper teacherMapper,
+                             ResponseCache responseCache,
+                             @Value("${oc.app.teacherListReads:jdbc}") ListReadPath listReads) {
         this.teacherMapper = teacherMapper;
         this.teacherService = teacherService;
+        this.responseCache = responseCache;
+        this.listReads = listReads;
     }
 
     @GetMapping("/{id}")
@@ -37,9 +47,15 @@ public class TeacherController {
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Teacher> teachers = this.teacherService.findAll();
+    public ResponseEntity<?> findAll(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return this.responseCache.serve(ResponseCache.TEACHERS, "/api/teacher", acceptEncoding, () -> {
+            if (this.listReads == ListReadPath.JDBC) {
+                return this.teacherService.findAllRows();
+            }
+
+            List<Teacher> teachers = this.teacherService.findAll();
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+            return this.teacherMapper.toDto(teachers);
+        });
     }
 }
@@ -0,0 +1,192 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections for read-only transactions to a healthy replica, round robin, and
+ * everything else to the primary. A caller who wrote recently keeps reading from the
+ * primary until the read-your-writes window has passed. A replica that fails to hand
+ * out a connection, or fails its periodic check, is skipped until it passes again.
+ * <p>
+ * Must be wrapped in a {@code LazyConnectionDataSourceProxy}: the transaction's read-only
+ * flag is only known once the transaction has started.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private final long readYourWritesMs;
+
+    private final LongSupplier clock;
+
+    private ScheduledExecutorService healthChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long readYourWritesMs) {
+        this(primary, replicas, readYourWritesMs, System::currentTimeMillis);
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long readYourWritesMs,
+                                    LongSupplier clock) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.readYourWritesMs = readYourWritesMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs {@code work} with every connection taken from the primary, for loads whose result
+     * is shared with other callers and must not lag behind a write.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            } else {
+                PRIMARY_PINNED.set(previous);
+            }
+        }
+    }
+
+    public void startHealthChecks(long intervalMs) {
+        this.healthChecks = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-health-"));
+        this.healthChecks.scheduleWithFixedDelay(this::checkHealth, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void checkHealth() {
+        for (Replica replica : this.replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(1);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                logger.warn("Replica {} is now {}", replica.name, healthy ? "healthy" : "unhealthy");
+            }
+            replica.healthy = healthy;
+        }
+
+        long expired = this.clock.getAsLong() - this.readYourWritesMs;
+        this.lastWrites.values().removeIf(lastWrite -> lastWrite < expired);
+    }
+
+    public boolean isHealthy(String replica) {
+        return this.replicas.stream().anyMatch(r -> r.name.equals(replica) && r.healthy);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = this.route();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                logger.warn("Replica {} unavailable, reading from primary: {}", replica.name, e.getMessage());
+                replica.healthy = false;
+            }
+        }
+        return this.primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are routed with the configured credentials");
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (this.healthChecks != null) {
+            this.healthChecks.shutdownNow();
+        }
+        for (DataSource dataSource : this.targets()) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+
+    private Replica route() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+
+        long now = this.clock.getAsLong();
+        String caller = caller();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            this.lastWrites.put(caller, now);
+            return null;
+        }
+
+        Long lastWrite = this.lastWrites.get(caller);
+        if (PRIMARY_PINNED.get() != null || (lastWrite != null && now - lastWrite < this.readYourWritesMs)) {
+            return null;
+        }
+
+        int size = this.replicas.size();
+        int start = Math.floorMod(this.next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = this.replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private List<DataSource> targets() {
+        List<DataSource> targets = new ArrayList<>();
+        targets.add(this.primary);
+        this.replicas.forEach(replica -> targets.add(replica.dataSource));
+        return targets;
+    }
+
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return TenantContext.current() + ":" + (authentication != null ? authentication.getName() : "");
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured pool once read replicas or studio tenancy are switched on:
+ * studio routing sits on top, in front of the shared pool (itself routing to replicas when
+ * configured) and the pools of studios that have a database of their own.
+ */
+@Configuration
+@Conditional(RoutingDataSourceConfig.RoutingEnabled.class)
+public class RoutingDataSourceConfig {
+    @Bean(destroyMethod = "close")
+    public DataSource sharedDataSource(DataSourceProperties properties,
+                                       @Value("${oc.app.replicas.urls:}") List<String> urls,
+                                       @Value("${oc.app.replicas.username:}") String username,
+                                       @Value("${oc.app.replicas.password:}") String password,
+                                       @Value("${oc.app.replicas.readYourWritesMs:5000}") long readYourWritesMs,
+                                       @Value("${oc.app.replicas.healthCheckMs:10000}") long healthCheckMs,
+                                       @Value("${oc.app.tenants.poolMbeans:true}") boolean poolMbeans) {
+        HikariDataSource primary = pool(properties, "shared", poolMbeans);
+        if (urls.isEmpty()) {
+            return primary;
+        }
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(urls.get(i))
+                    .username(StringUtils.hasText(username) ? username : properties.determineUsername())
+                    .password(StringUtils.hasText(username) ? password : properties.determinePassword())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replica.setRegisterMbeans(poolMbeans);
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, readYourWritesMs);
+        routing.startHealthChecks(healthCheckMs);
+        return routing;
+    }
+
+    @Bean(destroyMethod = "close")
+    public TenantRoutingDataSource tenantRoutingDataSource(@Qualifier("sharedDataSource") DataSource sharedDataSource,
+                                                           DataSourceProperties properties,
+                                                           Environment environment,
+                                                           @Value("${oc.app.tenants.dedicated:}") List<String> dedicated,
+                                                           @Value("${oc.app.tenants.sharedConnectionsPerTenant:0}") int connectionsPerTenant,
+                                                           @Value("${oc.app.tenants.acquireTimeoutMs:2000}") long acquireTimeoutMs,
+                                                           @Value("${oc.app.tenants.poolMbeans:true}") boolean poolMbeans) {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (String tenant : dedicated) {
+            String prefix = "oc.app.tenants." + tenant + ".";
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(environment.getRequiredProperty(prefix + "url"))
+                    .username(environment.getProperty(prefix + "username", properties.determineUsername()))
+                    .password(environment.getProperty(prefix + "password", properties.determinePassword()))
+                    .build();
+            pool.setPoolName("tenant-" + tenant);
+            pool.setMaximumPoolSize(environment.getProperty(prefix + "maximumPoolSize", Integer.class, 10));
+            pool.setRegisterMbeans(poolMbeans);
+            pools.put(tenant, pool);
+        }
+        return new TenantRoutingDataSource(sharedDataSource, pools, connectionsPerTenant, acquireTimeoutMs);
+    }
+
+    // Defers taking a connection until the first statement, when the transaction's read-only flag is set
+    @Bean
+    @Primary
+    public DataSource dataSource(TenantRoutingDataSource tenantRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(tenantRoutingDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name, boolean registerMbeans) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(name);
+        pool.setRegisterMbeans(registerMbeans);
+        return pool;
+    }
+
+    static class RoutingEnabled extends AnyNestedCondition {
+        RoutingEnabled() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(name = "oc.app.replicas.urls")
+        static class Replicas {
+        }
+
+        @ConditionalOnProperty(name = "oc.app.tenants.enabled", havingValue = "true")
+        static class Tenants {
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TenantPoolStats {
+    private final boolean dedicated;
+    private final long active;
+    private final long acquired;
+    private final long rejected;
+}
@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.datasource;
+
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out connections for the current studio. Studios with a dedicated database get their
+ * own pool; every other studio shares the default pool, where each one may hold at most
+ * {@code connectionsPerTenant} connections at a time so a single busy studio cannot drain it.
+ */
+public class TenantRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TenantRoutingDataSource.class);
+
+    private final DataSource shared;
+
+    private final Map<String, DataSource> dedicated;
+
+    private final int connectionsPerTenant;
+
+    private final long acquireTimeoutMs;
+
+    private final ConcurrentMap<String, Usage> usage = new ConcurrentHashMap<>();
+
+    public TenantRoutingDataSource(DataSource shared, Map<String, DataSource> dedicated,
+                                   int connectionsPerTenant, long acquireTimeoutMs) {
+        this.shared = shared;
+        this.dedicated = dedicated;
+        this.connectionsPerTenant = connectionsPerTenant;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public Map<String, DataSource> getDedicated() {
+        return Collections.unmodifiableMap(this.dedicated);
+    }
+
+    public Map<String, TenantPoolStats> getStats() {
+        Map<String, TenantPoolStats> stats = new TreeMap<>();
+        this.usage.forEach((tenant, usage) -> stats.put(tenant, new TenantPoolStats(
+                this.dedicated.containsKey(tenant), usage.active.get(), usage.acquired.get(), usage.rejected.get())));
+        return stats;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String tenant = TenantContext.current();
+        Usage usage = this.usage.computeIfAbsent(tenant, t -> new Usage(this.connectionsPerTenant));
+
+        DataSource own = this.dedicated.get(tenant);
+        if (own != null) {
+            return this.track(own.getConnection(), usage, false);
+        }
+        if (usage.permits == null) {
+            return this.track(this.shared.getConnection(), usage, false);
+        }
+
+        try {
+            if (!usage.permits.tryAcquire(this.acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                usage.rejected.incrementAndGet();
+                logger.warn("Studio {} is holding all {} of its shared connections", tenant, this.connectionsPerTenant);
+                throw new SQLTransientConnectionException("Studio " + tenant + " has no shared connection available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a connection", e);
+        }
+
+        try {
+            return this.track(this.shared.getConnection(), usage, true);
+        } catch (SQLException | RuntimeException e) {
+            usage.permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are routed with the configured credentials");
+    }
+
+    // The shared pool belongs to whoever created it; only the dedicated pools are closed here
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : this.dedicated.values()) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+
+    private Connection track(Connection connection, Usage usage, boolean permit) {
+        usage.active.incrementAndGet();
+        usage.acquired.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                        usage.active.decrementAndGet();
+                        if (permit) {
+                            usage.permits.release();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static final class Usage {
+        private final Semaphore permits;
+        private final AtomicLong active = new AtomicLong();
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        private Usage(int connectionsPerTenant) {
+            this.permits = connectionsPerTenant > 0 ? new Semaphore(connectionsPerTenant) : null;
+        }
+    }
+}
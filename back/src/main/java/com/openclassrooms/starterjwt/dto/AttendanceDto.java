@@ -0,0 +1,30 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceDto {
+    private Long sessionId;
+
+    private String sessionName;
+
+    private LocalDateTime sessionDate;
+
+    private String teacherFirstName;
+
+    private String teacherLastName;
+
+    private Long userId;
+
+    private String userFirstName;
+
+    private String userLastName;
+
+    private String userEmail;
+}
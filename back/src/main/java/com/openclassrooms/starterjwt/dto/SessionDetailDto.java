@@ -0,0 +1,18 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionDetailDto {
+    private SessionDto session;
+
+    private TeacherDto teacher;
+
+    private long participantCount;
+
+    private boolean participating;
+}
@@ -36,4 +36,8 @@ public class SessionDto {
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
+
+    private Long version;
+
+    private Long series_id;
 }
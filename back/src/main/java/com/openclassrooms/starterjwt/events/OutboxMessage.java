@@ -0,0 +1,22 @@
+package com.openclassrooms.starterjwt.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+    private Long id;
+
+    private String studio;
+
+    private String type;
+
+    private String payload;
+
+    private LocalDateTime createdAt;
+}
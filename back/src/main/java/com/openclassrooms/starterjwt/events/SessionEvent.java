@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SessionEvent {
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String OCCUPANCY = "occupancy";
+    public static final String REFRESH = "refresh";
+
+    private String type;
+
+    private Long id;
+
+    private Integer participants;
+
+    public static SessionEvent created(Long id, int participants) {
+        return new SessionEvent(CREATED, id, participants);
+    }
+
+    public static SessionEvent updated(Long id, int participants) {
+        return new SessionEvent(UPDATED, id, participants);
+    }
+
+    public static SessionEvent deleted(Long id) {
+        return new SessionEvent(DELETED, id, null);
+    }
+
+    public static SessionEvent occupancy(Long id, int participants) {
+        return new SessionEvent(OCCUPANCY, id, participants);
+    }
+
+    // Too many sessions changed at once to describe, clients should reload the list
+    public static SessionEvent refresh() {
+        return new SessionEvent(REFRESH, null, null);
+    }
+}
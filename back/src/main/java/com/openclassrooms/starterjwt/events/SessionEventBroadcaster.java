@@ -0,0 +1,210 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes {@link SessionEvent}s, as relayed from the outbox, to Server-Sent Events subscribers. Connections are async,
+ * so no servlet thread is held; each client gets a bounded buffer drained by a small
+ * shared pool, and a client whose buffer overflows is disconnected.
+ */
+@Component
+public class SessionEventBroadcaster implements SessionEventSubscriber {
+    private static final Logger logger = LoggerFactory.getLogger(SessionEventBroadcaster.class);
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ObjectMapper objectMapper;
+
+    private final int bufferSize;
+
+    private final long timeoutMs;
+
+    private final Executor senders;
+
+    private final ScheduledExecutorService heartbeats;
+
+    @Autowired
+    public SessionEventBroadcaster(ObjectMapper objectMapper,
+                                   @Value("${oc.app.sseBufferSize:64}") int bufferSize,
+                                   @Value("${oc.app.sseHeartbeatMs:15000}") long heartbeatMs,
+                                   @Value("${oc.app.sseTimeoutMs:1800000}") long timeoutMs,
+                                   @Value("${oc.app.sseSenderThreads:4}") int senderThreads) {
+        this(objectMapper, bufferSize, timeoutMs,
+                Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("sse-send-")),
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sse-heartbeat-")));
+        this.heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    public SessionEventBroadcaster(ObjectMapper objectMapper, int bufferSize, long timeoutMs,
+                                   Executor senders, ScheduledExecutorService heartbeats) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.senders = senders;
+        this.heartbeats = heartbeats;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = this.newEmitter(this.timeoutMs);
+        Client client = new Client(emitter, TenantContext.current(), this.bufferSize);
+
+        emitter.onCompletion(() -> this.clients.remove(client));
+        emitter.onTimeout(() -> this.clients.remove(client));
+        emitter.onError(e -> this.clients.remove(client));
+        this.clients.add(client);
+
+        return emitter;
+    }
+
+    @Override
+    public void onSessionEvent(SessionEvent event) {
+        this.publish(event);
+    }
+
+    public void publish(SessionEvent event) {
+        if (this.clients.isEmpty()) {
+            return;
+        }
+
+        String data;
+        try {
+            data = this.objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.error("Cannot serialize session event: {}", e.getMessage());
+            return;
+        }
+
+        Frame frame = new Frame(String.valueOf(this.sequence.incrementAndGet()), event.getType(), data);
+        String tenant = TenantContext.current();
+        this.clients.stream().filter(client -> client.tenant.equals(tenant)).forEach(client -> this.offer(client, frame));
+    }
+
+    public int getClientCount() {
+        return this.clients.size();
+    }
+
+    public void heartbeat() {
+        this.clients.forEach(client -> this.offer(client, Frame.HEARTBEAT));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.heartbeats.shutdownNow();
+        if (this.senders instanceof ExecutorService) {
+            ((ExecutorService) this.senders).shutdownNow();
+        }
+        this.clients.forEach(client -> client.emitter.complete());
+        this.clients.clear();
+    }
+
+    protected SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void offer(Client client, Frame frame) {
+        if (!client.buffer.offer(frame)) {
+            logger.warn("Disconnecting slow SSE consumer after {} buffered events", this.bufferSize);
+            this.disconnect(client);
+            return;
+        }
+        this.scheduleDrain(client);
+    }
+
+    private void scheduleDrain(Client client) {
+        if (!client.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.senders.execute(() -> this.drain(client));
+        } catch (RejectedExecutionException e) {
+            client.draining.set(false);
+        }
+    }
+
+    private void drain(Client client) {
+        try {
+            Frame frame;
+            while ((frame = client.buffer.poll()) != null) {
+                client.emitter.send(frame.toEvent());
+            }
+        } catch (IOException | IllegalStateException e) {
+            this.disconnect(client);
+            return;
+        } finally {
+            client.draining.set(false);
+        }
+
+        // A frame offered while the flag was still set would otherwise wait for the next one
+        if (!client.buffer.isEmpty()) {
+            this.scheduleDrain(client);
+        }
+    }
+
+    private void disconnect(Client client) {
+        if (this.clients.remove(client)) {
+            client.buffer.clear();
+            client.emitter.complete();
+        }
+    }
+
+    private static final class Client {
+        private final SseEmitter emitter;
+        private final String tenant;
+        private final BlockingQueue<Frame> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Client(SseEmitter emitter, String tenant, int bufferSize) {
+            this.emitter = emitter;
+            this.tenant = tenant;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private static final class Frame {
+        private static final Frame HEARTBEAT = new Frame(null, null, null);
+
+        private final String id;
+        private final String name;
+        private final String data;
+
+        private Frame(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toEvent() {
+            if (this.data == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(this.id).name(this.name).data(this.data, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.openclassrooms.starterjwt.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.datasource.TenantRoutingDataSource;
+import com.openclassrooms.starterjwt.repository.OutboxJdbcRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Session events go through an OUTBOX table: each is written in the transaction of the change it
+ * describes, so it exists exactly when the change does, and requests never wait on subscribers.
+ * A relay reads the committed events in id order and hands them to every
+ * {@link SessionEventSubscriber}, keeping a checkpoint per database under the name
+ * {@code oc.app.outboxRelay}; instances that each serve their own subscribers need distinct
+ * names. The relay polls every {@code oc.app.outboxPollMs} and is also woken by each commit,
+ * unless {@code oc.app.backgroundJobs} is off: the events are then left to the server's relay.
+ * An event whose id was skipped as rolled back but that commits later is still relayed, out of
+ * order, as long as this instance keeps running.
+ */
+@Component
+public class SessionEventOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(SessionEventOutbox.class);
+
+    private static final long PRUNE_INTERVAL_MS = 3600000;
+
+    private final OutboxJdbcRepository outboxJdbcRepository;
+
+    private final ObjectProvider<SessionEventSubscriber> subscribers;
+
+    private final ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource;
+
+    private final ObjectMapper objectMapper;
+
+    private final String relay;
+
+    private final int batchSize;
+
+    private final long settleMs;
+
+    private final long retentionHours;
+
+    private final ScheduledExecutorService relays;
+
+    private final boolean backgroundJobs;
+
+    // Per database, the ids this relay found missing and since when; only touched by relayAll(). Those past the
+    // checkpoint hold it back, those behind it were skipped and are looked for again until the retention time
+    private final Map<String, NavigableMap<Long, Long>> missing = new HashMap<>();
+
+    public SessionEventOutbox(OutboxJdbcRepository outboxJdbcRepository,
+                              ObjectProvider<SessionEventSubscriber> subscribers,
+                              ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource,
+                              ObjectMapper objectMapper,
+                              @Value("${oc.app.outboxRelay:default}") String relay,
+                              @Value("${oc.app.outboxBatchSize:100}") int batchSize,
+                              @Value("${oc.app.outboxPollMs:1000}") long pollMs,
+                              @Value("${oc.app.outboxSettleMs:5000}") long settleMs,
+                              @Value("${oc.app.outboxRetentionHours:24}") long retentionHours,
+                              @Value("${oc.app.backgroundJobs:true}") boolean backgroundJobs) {
+        this.outboxJdbcRepository = outboxJdbcRepository;
+        this.subscribers = subscribers;
+        this.tenantRoutingDataSource = tenantRoutingDataSource;
+        this.objectMapper = objectMapper;
+        this.relay = relay;
+        this.batchSize = batchSize;
+        this.settleMs = settleMs;
+        this.retentionHours = retentionHours;
+        this.backgroundJobs = backgroundJobs;
+
+        this.relays = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("outbox-relay-"));
+        if (backgroundJobs) {
+            this.relays.scheduleWithFixedDelay(this::relayAllQuietly, pollMs, pollMs, TimeUnit.MILLISECONDS);
+            this.relays.scheduleWithFixedDelay(this::pruneAllQuietly, PRUNE_INTERVAL_MS, PRUNE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.relays.shutdownNow();
+    }
+
+    /**
+     * Writes the event for the current studio, in the caller's transaction if there is one, and
+     * wakes the relay once it is committed.
+     */
+    public void record(SessionEvent event) {
+        String payload;
+        try {
+            payload = this.objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.outboxJdbcRepository.append(event.getType(), payload, Timestamp.valueOf(LocalDateTime.now()));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            this.wakeUp();
+        }
+    }
+
+    /**
+     * Hands every committed event past the checkpoint to the subscribers, database by database, and
+     * returns the number relayed. One pass runs at a time.
+     */
+    public synchronized int relayAll() {
+        int relayed = 0;
+        for (String database : this.databases()) {
+            relayed += TenantContext.callAs(database, this::relayDatabase);
+        }
+        return relayed;
+    }
+
+    private int relayDatabase() {
+        Long checkpoint = this.outboxJdbcRepository.findCheckpoint(this.relay);
+        if (checkpoint == null) {
+            // A new relay starts from the end: the events before it are of no use to its subscribers
+            this.outboxJdbcRepository.saveCheckpoint(this.relay, this.outboxJdbcRepository.findLastId(), now());
+            return 0;
+        }
+
+        NavigableMap<Long, Long> missing = this.missing.computeIfAbsent(TenantContext.current(), database -> new TreeMap<>());
+        int relayed = this.relaySkipped(missing, checkpoint);
+        int count;
+        do {
+            List<OutboxMessage> messages = this.outboxJdbcRepository.findAfter(checkpoint, this.batchSize);
+            this.noteGaps(missing, checkpoint, messages);
+            long last = checkpoint;
+            count = 0;
+            for (OutboxMessage message : messages) {
+                if (message.getId() != last + 1 && !this.gapSettled(missing, last + 1, message.getId())) {
+                    break;
+                }
+                if (!this.dispatch(message)) {
+                    break;
+                }
+                missing.remove(message.getId());
+                last = message.getId();
+                count++;
+            }
+
+            if (last != checkpoint) {
+                this.outboxJdbcRepository.saveCheckpoint(this.relay, last, now());
+                checkpoint = last;
+            }
+            relayed += count;
+        } while (count == this.batchSize);
+        return relayed;
+    }
+
+    // Ids are taken at insert but seen at commit: a missing id may belong to a transaction still running,
+    // however old its neighbours are. Every gap of a batch is noted at once, so that they settle together
+    private void noteGaps(NavigableMap<Long, Long> missing, long checkpoint, List<OutboxMessage> messages) {
+        long now = System.currentTimeMillis();
+        long expected = checkpoint + 1;
+        for (OutboxMessage message : messages) {
+            for (long id = expected; id < message.getId(); id++) {
+                missing.putIfAbsent(id, now);
+            }
+            expected = message.getId() + 1;
+        }
+    }
+
+    // The ids in [from, to) are skipped once this relay has seen them missing for the settle time
+    private boolean gapSettled(NavigableMap<Long, Long> missing, long from, long to) {
+        long now = System.currentTimeMillis();
+        return missing.subMap(from, true, to, false).values().stream().allMatch(firstSeen -> now - firstSeen >= this.settleMs);
+    }
+
+    // A skipped id whose transaction commits after all is relayed late rather than lost. Past the retention
+    // time its event would be pruned anyway, so it is no longer looked for
+    private int relaySkipped(NavigableMap<Long, Long> missing, long checkpoint) {
+        NavigableMap<Long, Long> skipped = missing.headMap(checkpoint, true);
+        long expired = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(this.retentionHours);
+        skipped.values().removeIf(firstSeen -> firstSeen < expired);
+        if (skipped.isEmpty()) {
+            return 0;
+        }
+
+        int relayed = 0;
+        List<Long> ids = skipped.keySet().stream().limit(this.batchSize).collect(Collectors.toList());
+        for (OutboxMessage message : this.outboxJdbcRepository.findByIds(ids)) {
+            if (!this.dispatch(message)) {
+                break;
+            }
+            skipped.remove(message.getId());
+            relayed++;
+        }
+        return relayed;
+    }
+
+    // A failed event stops the pass and comes again on the next one, to every subscriber
+    private boolean dispatch(OutboxMessage message) {
+        try {
+            SessionEvent event = this.objectMapper.readValue(message.getPayload(), SessionEvent.class);
+            TenantContext.callAs(message.getStudio(), () -> {
+                this.subscribers.orderedStream().forEach(subscriber -> subscriber.onSessionEvent(event));
+                return null;
+            });
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Relaying outbox event {} failed, retrying on the next pass", message.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the events older than {@code oc.app.outboxRetentionHours}, whichever relays have
+     * read them, and returns the number removed.
+     */
+    public int pruneAll() {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minusHours(this.retentionHours));
+        int removed = 0;
+        for (String database : this.databases()) {
+            removed += TenantContext.callAs(database, () -> {
+                int total = 0;
+                int count;
+                do {
+                    count = this.outboxJdbcRepository.deleteOlderThan(before, this.batchSize);
+                    total += count;
+                } while (count == this.batchSize);
+                return total;
+            });
+        }
+        return removed;
+    }
+
+    private void wakeUp() {
+        if (!this.backgroundJobs) {
+            return;
+        }
+        try {
+            this.relays.execute(this::relayAllQuietly);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the next start picks the event up from the checkpoint
+        }
+    }
+
+    private List<String> databases() {
+        List<String> databases = new ArrayList<>();
+        databases.add(TenantContext.DEFAULT);
+        this.tenantRoutingDataSource.ifAvailable(routing -> databases.addAll(routing.getDedicated().keySet()));
+        return databases;
+    }
+
+    // An exception would cancel every later run of the job
+    private void relayAllQuietly() {
+        try {
+            this.relayAll();
+        } catch (RuntimeException e) {
+            logger.warn("Relaying outbox events failed", e);
+        }
+    }
+
+    private void pruneAllQuietly() {
+        try {
+            int removed = this.pruneAll();
+            if (removed > 0) {
+                logger.info("Pruned {} relayed outbox events", removed);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Pruning outbox events failed", e);
+        }
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,10 @@
+package com.openclassrooms.starterjwt.events;
+
+/**
+ * Receives the session events relayed from the outbox, in the order they were committed, with
+ * {@link com.openclassrooms.starterjwt.tenant.TenantContext} set to the studio they belong to.
+ * Delivery is at least once: after a failure or a restart, an event may come again.
+ */
+public interface SessionEventSubscriber {
+    void onSessionEvent(SessionEvent event);
+}
@@ -0,0 +1,110 @@
+package com.openclassrooms.starterjwt.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV with a header row naming the columns. Quoted fields may hold separators, doubled
+ * quotes and line breaks; empty fields read as null and blank lines are skipped.
+ */
+class CsvRecordReader implements RecordReader {
+    private static final char BOM = '\uFEFF';
+
+    private final BufferedReader in;
+
+    private final List<String> header = new ArrayList<>();
+
+    private long row;
+
+    private boolean unterminated;
+
+    CsvRecordReader(BufferedReader in) throws IOException {
+        this.in = in;
+        List<String> names = readFields();
+        if (names != null) {
+            for (String name : names) {
+                this.header.add(ImportRecord.column(name.isEmpty() || name.charAt(0) != BOM ? name : name.substring(1)));
+            }
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        List<String> fields;
+        do {
+            if (this.unterminated) {
+                return null;
+            }
+            fields = readFields();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+        this.row++;
+        if (this.unterminated) {
+            return ImportRecord.invalid(this.row, "unterminated quoted field");
+        }
+        if (fields.size() != this.header.size()) {
+            return ImportRecord.invalid(this.row, "expected " + this.header.size() + " fields, found " + fields.size());
+        }
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(this.header.get(i), fields.get(i).isEmpty() ? null : fields.get(i));
+        }
+        return new ImportRecord(this.row, values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private List<String> readFields() throws IOException {
+        int c = this.in.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    this.unterminated = true;
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = this.in.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c < 0) {
+                if (c == '\r') {
+                    this.in.mark(1);
+                    if (this.in.read() != '\n') {
+                        this.in.reset();
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = this.in.read();
+        }
+    }
+}
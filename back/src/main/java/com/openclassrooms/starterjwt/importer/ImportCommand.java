@@ -0,0 +1,101 @@
+package com.openclassrooms.starterjwt.importer;
+
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.payload.response.ImportReport;
+import com.openclassrooms.starterjwt.services.ImportService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs one import from a file at startup and exits, for migrations too large to post:
+ * {@code --spring.profiles.active=import --oc.app.import.kind=users --oc.app.import.file=members.csv}.
+ * The {@code import} profile starts neither the web server nor the background jobs. The file name is the
+ * import id unless {@code oc.app.import.id} says otherwise, so rerunning the same command after
+ * a failure resumes where it stopped. Exits with 0 when every row was imported, 2 when some rows
+ * were rejected and 1 when the import stopped early.
+ */
+@Component
+@ConditionalOnProperty(name = "oc.app.import.file")
+public class ImportCommand implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ImportCommand.class);
+
+    private final ImportService importService;
+
+    private final ConfigurableApplicationContext context;
+
+    private final String kind;
+
+    private final String file;
+
+    private final String format;
+
+    private final String importId;
+
+    private final String studio;
+
+    public ImportCommand(ImportService importService,
+                         ConfigurableApplicationContext context,
+                         @Value("${oc.app.import.kind}") String kind,
+                         @Value("${oc.app.import.file}") String file,
+                         @Value("${oc.app.import.format:#{null}}") String format,
+                         @Value("${oc.app.import.id:#{null}}") String importId,
+                         @Value("${oc.app.import.studio:" + TenantContext.DEFAULT + "}") String studio) {
+        this.importService = importService;
+        this.context = context;
+        this.kind = kind;
+        this.file = file;
+        this.format = format;
+        this.importId = importId;
+        this.studio = studio;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        File source = new File(this.file);
+        String name = source.getName().endsWith(".gz") ? source.getName().substring(0, source.getName().length() - 3) : source.getName();
+        DataFormat dataFormat = this.format != null ? DataFormat.parse(this.format)
+                : name.endsWith("." + DataFormat.NDJSON.getExtension()) ? DataFormat.NDJSON : DataFormat.CSV;
+        String id = this.importId != null ? this.importId : name;
+
+        ImportReport report;
+        try (InputStream in = open(source)) {
+            report = TenantContext.callAs(this.studio, () -> {
+                try {
+                    return this.importService.importRecords(ImportKind.parse(this.kind), dataFormat, in, id, null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        logger.info("Import {} of {} into studio {}: {} rows, {} imported, {} skipped, {} failed",
+                id, report.getKind(), this.studio, report.getRows(), report.getImported(), report.getSkipped(), report.getFailed());
+        report.getErrors().forEach(error -> logger.warn("Row {}: {}", error.getRow(), error.getMessage()));
+        if (report.getAborted() != null) {
+            logger.error("Import {} stopped after row {}: {}", id, report.getCommittedRows(), report.getAborted());
+        }
+
+        int code = report.getAborted() != null ? 1 : report.getFailed() > 0 ? 2 : 0;
+        System.exit(SpringApplication.exit(this.context, () -> code));
+    }
+
+    private static InputStream open(File source) throws IOException {
+        InputStream in = new FileInputStream(source);
+        return source.getName().endsWith(".gz") ? new GZIPInputStream(in, RecordReader.BUFFER_SIZE) : in;
+    }
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.starterjwt.importer;
+
+import java.util.Locale;
+
+public enum ImportKind {
+    USERS,
+    TEACHERS,
+    SESSIONS,
+    PARTICIPATIONS;
+
+    /**
+     * @throws IllegalArgumentException for anything but users, teachers, sessions or participations
+     */
+    public static ImportKind parse(String kind) {
+        return valueOf(kind.trim().toUpperCase(Locale.ROOT));
+    }
+}
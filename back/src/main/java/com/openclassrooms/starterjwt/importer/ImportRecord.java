@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.importer;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One record of an import file, numbered from 1 without the CSV header, with its values keyed
+ * by normalized column name, or the reason it could not be read.
+ */
+public class ImportRecord {
+    private final long row;
+
+    private final Map<String, String> values;
+
+    private final String error;
+
+    public ImportRecord(long row, Map<String, String> values) {
+        this(row, values, null);
+    }
+
+    private ImportRecord(long row, Map<String, String> values, String error) {
+        this.row = row;
+        this.values = values;
+        this.error = error;
+    }
+
+    public static ImportRecord invalid(long row, String error) {
+        return new ImportRecord(row, Collections.emptyMap(), error);
+    }
+
+    public long getRow() {
+        return this.row;
+    }
+
+    public String getError() {
+        return this.error;
+    }
+
+    public String get(String column) {
+        return this.values.get(column);
+    }
+
+    // first_name, firstName and FIRST_NAME all name the same column
+    public static String column(String name) {
+        return name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+}
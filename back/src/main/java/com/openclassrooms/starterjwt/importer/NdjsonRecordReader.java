@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * One JSON object per line, blank lines skipped. Values are read as text, as CSV fields are.
+ */
+class NdjsonRecordReader implements RecordReader {
+    private final BufferedReader in;
+
+    private final ObjectMapper objectMapper;
+
+    private long row;
+
+    NdjsonRecordReader(BufferedReader in, ObjectMapper objectMapper) {
+        this.in = in;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        String line;
+        do {
+            line = this.in.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        this.row++;
+        JsonNode node;
+        try {
+            node = this.objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            return ImportRecord.invalid(this.row, "malformed JSON");
+        }
+        if (!node.isObject()) {
+            return ImportRecord.invalid(this.row, "expected a JSON object");
+        }
+        Map<String, String> values = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            values.put(ImportRecord.column(field.getKey()), field.getValue().isNull() ? null : field.getValue().asText());
+        }
+        return new ImportRecord(this.row, values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads an import file one record at a time, so that the whole file is never held in memory.
+ */
+public interface RecordReader extends Closeable {
+    int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @return the next record, or null at the end of the input
+     */
+    ImportRecord next() throws IOException;
+
+    static RecordReader open(DataFormat format, InputStream in, ObjectMapper objectMapper) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return format == DataFormat.CSV ? new CsvRecordReader(reader) : new NdjsonRecordReader(reader, objectMapper);
+    }
+}
@@ -1,8 +1,10 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionViewDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.mapstruct.Mapper;
@@ -12,7 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,11 +28,18 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     TeacherService teacherService;
     @Autowired
     UserService userService;
+    @Autowired
+    TeacherMapper teacherMapper;
+    @Autowired
+    UserMapper userMapper;
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
             @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "seriesId", ignore = true),
+            @Mapping(target = "studioId", ignore = true),
+            @Mapping(target = "deletedAt", ignore = true),
     })
     public abstract Session toEntity(SessionDto sessionDto);
 
@@ -36,7 +47,58 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
+            @Mapping(source = "seriesId", target = "series_id"),
             @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
     })
     public abstract SessionDto toDto(Session session);
+
+    public abstract SessionDto copy(SessionDto session);
+
+    public SessionViewDto toView(Session session, SessionFieldSet fieldSet) {
+        SessionViewDto view = new SessionViewDto();
+        view.setId(session.getId());
+        if (fieldSet.includes(SessionFieldSet.NAME)) {
+            view.setName(session.getName());
+        }
+        if (fieldSet.includes(SessionFieldSet.DATE)) {
+            view.setDate(session.getDate());
+        }
+        if (fieldSet.includes(SessionFieldSet.DESCRIPTION)) {
+            view.setDescription(session.getDescription());
+        }
+        if (fieldSet.includes(SessionFieldSet.CREATED_AT)) {
+            view.setCreatedAt(session.getCreatedAt());
+        }
+        if (fieldSet.includes(SessionFieldSet.UPDATED_AT)) {
+            view.setUpdatedAt(session.getUpdatedAt());
+        }
+        if (fieldSet.includes(SessionFieldSet.VERSION)) {
+            view.setVersion(session.getVersion());
+        }
+        if (fieldSet.includes(SessionFieldSet.SERIES_ID)) {
+            view.setSeries_id(session.getSeriesId());
+        }
+        if (fieldSet.includes(SessionFieldSet.TEACHER_ID) && session.getTeacher() != null) {
+            view.setTeacher_id(session.getTeacher().getId());
+        }
+        if (fieldSet.expandTeacher() && session.getTeacher() != null) {
+            view.setTeacher(this.teacherMapper.toDto(session.getTeacher()));
+        }
+        if (fieldSet.includes(SessionFieldSet.USERS)) {
+            List<Object> users = new ArrayList<>();
+            for (User user : Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList)) {
+                users.add(fieldSet.expandUsers() ? this.userMapper.toDto(user) : user.getId());
+            }
+            view.setUsers(users);
+        }
+        return view;
+    }
+
+    public List<SessionViewDto> toView(List<Session> sessions, SessionFieldSet fieldSet) {
+        List<SessionViewDto> views = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            views.add(this.toView(session, fieldSet));
+        }
+        return views;
+    }
 }
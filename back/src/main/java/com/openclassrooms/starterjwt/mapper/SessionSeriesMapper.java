@@ -0,0 +1,64 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.SessionSeriesDto;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+@Component
+@Mapper(componentModel = "spring")
+public abstract class SessionSeriesMapper implements EntityMapper<SessionSeriesDto, SessionSeries> {
+
+    @Autowired
+    TeacherService teacherService;
+
+    /**
+     * @throws IllegalArgumentException for an unknown frequency or day of the week
+     */
+    @Mappings({
+            @Mapping(target = "teacher", expression = "java(dto.getTeacher_id() != null ? this.teacherService.findById(dto.getTeacher_id()) : null)"),
+            @Mapping(target = "frequency", expression = "java(frequency(dto.getFrequency()))"),
+            @Mapping(target = "interval", expression = "java(dto.getInterval() != null ? dto.getInterval() : 1)"),
+            @Mapping(target = "daysOfWeek", expression = "java(joinDays(dto.getDaysOfWeek()))"),
+            @Mapping(target = "materializedUntil", ignore = true),
+            @Mapping(target = "studioId", ignore = true),
+    })
+    public abstract SessionSeries toEntity(SessionSeriesDto dto);
+
+    @Mappings({
+            @Mapping(source = "series.teacher.id", target = "teacher_id"),
+            @Mapping(target = "frequency", expression = "java(series.getFrequency() != null ? series.getFrequency().name() : null)"),
+            @Mapping(target = "daysOfWeek", expression = "java(splitDays(series.getDaysOfWeek()))"),
+    })
+    public abstract SessionSeriesDto toDto(SessionSeries series);
+
+    protected SessionSeries.Frequency frequency(String frequency) {
+        return frequency != null ? SessionSeries.Frequency.valueOf(frequency.trim().toUpperCase(Locale.ROOT)) : null;
+    }
+
+    protected String joinDays(List<String> days) {
+        if (days == null || days.isEmpty()) {
+            return null;
+        }
+        return days.stream()
+                .map(day -> DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)))
+                .distinct()
+                .sorted()
+                .map(DayOfWeek::name)
+                .collect(Collectors.joining(","));
+    }
+
+    protected List<String> splitDays(String days) {
+        return days != null ? Arrays.asList(days.split(",")) : null;
+    }
+}
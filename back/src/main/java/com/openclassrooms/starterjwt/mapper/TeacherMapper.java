@@ -3,9 +3,14 @@ package com.openclassrooms.starterjwt.mapper;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.models.Teacher;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.springframework.stereotype.Component;
 
 @Component
 @Mapper(componentModel = "spring")
 public interface TeacherMapper extends EntityMapper<TeacherDto, Teacher> {
+
+    @Mapping(target = "studioId", ignore = true)
+    @Override
+    Teacher toEntity(TeacherDto dto);
 }
@@ -0,0 +1,26 @@
+package com.openclassrooms.starterjwt.migration;
+
+import com.openclassrooms.starterjwt.datasource.TenantRoutingDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Flyway migrates the shared database at startup; studios with a database of their own are
+ * migrated right after it, with the same settings, before JPA starts.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.flyway.enabled", havingValue = "true", matchIfMissing = true)
+public class MigrationConfig {
+    @Bean
+    public FlywayMigrationStrategy tenantMigrationStrategy(ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource) {
+        return flyway -> {
+            flyway.migrate();
+            tenantRoutingDataSource.ifAvailable(routing -> routing.getDedicated().values().forEach(dataSource ->
+                    Flyway.configure().configuration(flyway.getConfiguration()).dataSource(dataSource).load().migrate()));
+        };
+    }
+}
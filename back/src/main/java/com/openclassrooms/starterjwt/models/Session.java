@@ -1,9 +1,16 @@
 package com.openclassrooms.starterjwt.models;
 
-
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.LazyGroup;
+import org.hibernate.annotations.OptimisticLock;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Where;
+import org.hibernate.annotations.WhereJoinTable;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -17,7 +24,13 @@ import java.util.List;
 
 @Entity
 @Table(name = "SESSIONS")
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Session.LIST_GRAPH, attributeNodes = @NamedAttributeNode("users")),
+        @NamedEntityGraph(name = Session.DETAIL_GRAPH, attributeNodes = {@NamedAttributeNode("users"), @NamedAttributeNode("teacher")}),
+        @NamedEntityGraph(name = Session.BOOKING_GRAPH, attributeNodes = @NamedAttributeNode("users"))
+})
 @EntityListeners(AuditingEntityListener.class)
+@DynamicUpdate
 @Data
 @Accessors(chain = true)
 @EqualsAndHashCode(of = {"id"})
@@ -25,9 +38,17 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
+@Filter(name = TenantContext.FILTER)
+@Where(clause = "deleted_at IS NULL")
 public class Session {
+    public static final String LIST_GRAPH = "Session.list";
+    public static final String DETAIL_GRAPH = "Session.detail";
+    public static final String BOOKING_GRAPH = "Session.booking";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "session_ids")
+    @TableGenerator(name = "session_ids", table = "ID_GENERATORS", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "SESSIONS", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -37,15 +58,24 @@ public class Session {
     @NotNull
     private Date date;
 
+    // Loaded on first access; queries that return it to clients fetch it with "fetch all properties"
     @NotNull
     @Size(max = 2500)
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("description")
+    @ToString.Exclude
     private String description;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Bookings only touch participants and updatedAt, so they never conflict with an edit.
+    // Bookings of deleted users stay until the purge job removes them, unseen
+    @ManyToMany
+    @BatchSize(size = 50)
+    @WhereJoinTable(clause = "user_id NOT IN (SELECT u.id FROM USERS u WHERE u.deleted_at IS NOT NULL)")
+    @OptimisticLock(excluded = true)
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
@@ -57,6 +87,29 @@ public class Session {
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
+    @OptimisticLock(excluded = true)
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+
+    // Set on the occurrences of a series, which writes them itself
+    @Column(name = "series_id", updatable = false)
+    private Long seriesId;
+
+    @Column(name = "studio_id", updatable = false)
+    private String studioId;
+
+    // Set by a delete, which hides the session until the purge job removes it
+    @Column(name = "deleted_at", insertable = false, updatable = false)
+    @ToString.Exclude
+    private LocalDateTime deletedAt;
+
+    @PrePersist
+    void assignStudio() {
+        if (this.studioId == null) {
+            this.studioId = TenantContext.current();
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package com.openclassrooms.starterjwt.models;
+
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import lombok.*;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.Filter;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "SESSION_DELETIONS")
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"id"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Filter(name = TenantContext.FILTER)
+public class SessionDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @NotNull
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    @Column(name = "studio_id", updatable = false)
+    private String studioId;
+
+    @PrePersist
+    void assignStudio() {
+        if (this.studioId == null) {
+            this.studioId = TenantContext.current();
+        }
+    }
+}
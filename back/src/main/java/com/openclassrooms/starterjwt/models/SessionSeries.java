@@ -0,0 +1,111 @@
+package com.openclassrooms.starterjwt.models;
+
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import lombok.*;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * A template session and the rule it recurs by. Occurrences are ordinary sessions carrying the
+ * series id, written up to {@code materializedUntil} and extended as that date draws near.
+ */
+@Entity
+@Table(name = "SESSION_SERIES")
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"id"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Filter(name = TenantContext.FILTER)
+public class SessionSeries {
+    public enum Frequency {
+        DAILY,
+        WEEKLY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "series_ids")
+    @TableGenerator(name = "series_ids", table = "ID_GENERATORS", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "SESSION_SERIES", allocationSize = 50)
+    private Long id;
+
+    @NotBlank
+    @Size(max = 50)
+    private String name;
+
+    @NotNull
+    @Size(max = 2500)
+    private String description;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "teacher_id", referencedColumnName = "id")
+    @ToString.Exclude
+    private Teacher teacher;
+
+    // The first occurrence, which also sets the time of day of every other one
+    @NotNull
+    @Column(name = "starts_at", updatable = false)
+    private Date startsAt;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private Frequency frequency;
+
+    @Min(1)
+    @Max(52)
+    @Column(name = "interval_count", updatable = false)
+    private int interval;
+
+    // Weekly series only, as comma-separated DayOfWeek names; the day of startsAt when empty
+    @Size(max = 64)
+    @Column(name = "days_of_week", updatable = false)
+    private String daysOfWeek;
+
+    @Column(name = "ends_on")
+    private LocalDate endsOn;
+
+    // Moved forward by the extension job, which never conflicts with an edit
+    @OptimisticLock(excluded = true)
+    @Column(name = "materialized_until")
+    private LocalDateTime materializedUntil;
+
+    @CreatedDate
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @OptimisticLock(excluded = true)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+
+    @Column(name = "studio_id", updatable = false)
+    private String studioId;
+
+    @PrePersist
+    void assignStudio() {
+        if (this.studioId == null) {
+            this.studioId = TenantContext.current();
+        }
+    }
+}
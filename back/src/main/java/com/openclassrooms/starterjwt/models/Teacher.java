@@ -1,7 +1,9 @@
 package com.openclassrooms.starterjwt.models;
 
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.Filter;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -21,9 +23,12 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
+@Filter(name = TenantContext.FILTER)
 public class Teacher {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "teacher_ids")
+    @TableGenerator(name = "teacher_ids", table = "ID_GENERATORS", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "TEACHERS", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -43,4 +48,14 @@ public class Teacher {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    @Column(name = "studio_id", updatable = false)
+    private String studioId;
+
+    @PrePersist
+    void assignStudio() {
+        if (this.studioId == null) {
+            this.studioId = TenantContext.current();
+        }
+    }
 }
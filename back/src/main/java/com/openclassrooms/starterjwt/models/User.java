@@ -1,8 +1,11 @@
 package com.openclassrooms.starterjwt.models;
 
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.Filter;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.Where;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -13,7 +16,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "USERS", uniqueConstraints = {
-    @UniqueConstraint(columnNames = "email")
+    @UniqueConstraint(columnNames = {"studio_id", "email"})
 })
 @Data
 @Accessors(chain = true)
@@ -24,9 +27,13 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 @AllArgsConstructor
 @ToString
+@Filter(name = TenantContext.FILTER)
+@Where(clause = "deleted_at IS NULL")
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_ids")
+  @TableGenerator(name = "user_ids", table = "ID_GENERATORS", pkColumnName = "sequence_name",
+          valueColumnName = "next_val", pkColumnValue = "USERS", allocationSize = 50)
   private Long id;
 
   @NonNull
@@ -59,4 +66,18 @@ public class User {
   @Column(name = "updated_at")
   private LocalDateTime updatedAt;
 
+  @Column(name = "studio_id", updatable = false)
+  private String studioId;
+
+  // Set by a delete, which hides the account until the purge job removes it
+  @Column(name = "deleted_at", insertable = false, updatable = false)
+  @ToString.Exclude
+  private LocalDateTime deletedAt;
+
+  @PrePersist
+  void assignStudio() {
+    if (this.studioId == null) {
+      this.studioId = TenantContext.current();
+    }
+  }
 }
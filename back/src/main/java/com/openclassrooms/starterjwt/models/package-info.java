@@ -0,0 +1,7 @@
+@FilterDef(name = TenantContext.FILTER, defaultCondition = "studio_id = :" + TenantContext.FILTER_PARAMETER,
+        parameters = @ParamDef(name = TenantContext.FILTER_PARAMETER, type = "string"))
+package com.openclassrooms.starterjwt.models;
+
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
@@ -0,0 +1,17 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequest {
+  private String method;
+
+  private String path;
+
+  private JsonNode body;
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import java.util.Locale;
+
+public enum DataFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+
+    private final String extension;
+
+    DataFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return this.contentType;
+    }
+
+    public String getExtension() {
+        return this.extension;
+    }
+
+    /**
+     * @throws IllegalArgumentException for anything but csv or ndjson
+     */
+    public static DataFormat parse(String format) {
+        return format == null ? CSV : valueOf(format.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parsed {@code fields} and {@code expand} query parameters of the session endpoints.
+ */
+public class SessionFieldSet {
+    public static final String ID = "id";
+    public static final String NAME = "name";
+    public static final String DATE = "date";
+    public static final String TEACHER_ID = "teacher_id";
+    public static final String DESCRIPTION = "description";
+    public static final String USERS = "users";
+    public static final String CREATED_AT = "createdAt";
+    public static final String UPDATED_AT = "updatedAt";
+    public static final String VERSION = "version";
+    public static final String SERIES_ID = "series_id";
+    public static final String TEACHER = "teacher";
+
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(
+            ID, NAME, DATE, TEACHER_ID, DESCRIPTION, USERS, CREATED_AT, UPDATED_AT, VERSION, SERIES_ID));
+
+    public static final List<String> EXPANSIONS = Collections.unmodifiableList(Arrays.asList(TEACHER, USERS));
+
+    private final Set<String> fields;
+
+    private final Set<String> expand;
+
+    private SessionFieldSet(Set<String> fields, Set<String> expand) {
+        this.fields = fields;
+        this.expand = expand;
+    }
+
+    public static SessionFieldSet parse(String fields, String expand) {
+        Set<String> expanded = split(expand, EXPANSIONS, "expand");
+
+        Set<String> selected = fields == null ? new LinkedHashSet<>(FIELDS) : split(fields, FIELDS, "field");
+        selected.add(ID);
+        if (expanded.contains(USERS)) {
+            selected.add(USERS);
+        }
+
+        return new SessionFieldSet(selected, expanded);
+    }
+
+    public boolean isDefault() {
+        return this.expand.isEmpty() && this.fields.size() == FIELDS.size();
+    }
+
+    public boolean includes(String field) {
+        return this.fields.contains(field);
+    }
+
+    public boolean expandTeacher() {
+        return this.expand.contains(TEACHER);
+    }
+
+    public boolean expandUsers() {
+        return this.expand.contains(USERS);
+    }
+
+    public String key() {
+        return "fields=" + String.join(",", this.fields) + "&expand=" + String.join(",", this.expand);
+    }
+
+    private static Set<String> split(String value, List<String> allowed, String kind) {
+        if (value == null || value.trim().isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+
+        Set<String> parsed = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+
+        for (String name : parsed) {
+            if (!allowed.contains(name)) {
+                throw new IllegalArgumentException("Unknown " + kind + ": " + name);
+            }
+        }
+
+        // Keep the canonical order so equivalent requests share one cache key
+        return allowed.stream().filter(parsed::contains).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
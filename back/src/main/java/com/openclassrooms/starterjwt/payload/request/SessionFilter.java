@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * The sessions an admin bulk operation applies to: those from {@code from} to {@code to}, both
+ * days included, optionally only those of one teacher.
+ */
+@Getter
+@AllArgsConstructor
+public class SessionFilter {
+    private final LocalDate from;
+
+    private final LocalDate to;
+
+    private final Long teacherId;
+
+    public static SessionFilter parse(String from, String to, String teacherId) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        SessionFilter filter = new SessionFilter(LocalDate.parse(from), LocalDate.parse(to),
+                teacherId != null ? Long.valueOf(teacherId) : null);
+        if (filter.to.isBefore(filter.from)) {
+            throw new IllegalArgumentException("to is before from");
+        }
+        return filter;
+    }
+}
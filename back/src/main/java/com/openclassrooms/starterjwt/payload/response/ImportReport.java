@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Rows are counted from 1 without the CSV header; skipped rows were
+ * committed by an earlier run of the same import. Only the first errors are listed.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportReport {
+  private final String kind;
+
+  private final String importId;
+
+  private long rows;
+
+  private long imported;
+
+  private long skipped;
+
+  private long failed;
+
+  private long committedRows;
+
+  private String aborted;
+
+  private final List<RowError> errors = new ArrayList<>();
+
+  public ImportReport(String kind, String importId, long committedRows) {
+    this.kind = kind;
+    this.importId = importId;
+    this.committedRows = committedRows;
+  }
+
+  public void read() {
+    this.rows++;
+  }
+
+  public void skipped() {
+    this.skipped++;
+  }
+
+  public void failed(long row, String message) {
+    this.failed++;
+    this.errors.add(new RowError(row, message));
+  }
+
+  // A chunk reports its rows in the order they were checked; the report keeps the first ones by row
+  public void chunkDone(int maxErrors) {
+    this.errors.sort(Comparator.comparingLong(RowError::getRow));
+    if (this.errors.size() > maxErrors) {
+      this.errors.subList(maxErrors, this.errors.size()).clear();
+    }
+  }
+
+  public void committed(int imported, long committedRows) {
+    this.imported += imported;
+    this.committedRows = committedRows;
+  }
+
+  public void aborted(String reason) {
+    this.aborted = reason;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class RowError {
+    private final long row;
+
+    private final String message;
+  }
+}
@@ -0,0 +1,131 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.openclassrooms.starterjwt.repository.JdbcRows.localDateTime;
+import static com.openclassrooms.starterjwt.repository.JdbcRows.nullableLong;
+
+/**
+ * Moves finished sessions and their bookings from the live tables to SESSIONS_ARCHIVE and
+ * PARTICIPATE_ARCHIVE, and reads them back for history and reports. Scoped to the current studio.
+ */
+@Repository
+public class ArchiveJdbcRepository {
+    private static final String ARCHIVED = "SELECT s.id, s.name, s.date, s.teacher_id, s.description, s.created_at,"
+            + " s.updated_at, s.version, s.series_id FROM SESSIONS_ARCHIVE s WHERE s.studio_id = :studio";
+
+    private static final String PARTICIPANTS = "SELECT p.session_id, p.user_id FROM PARTICIPATE_ARCHIVE p"
+            + " JOIN SESSIONS_ARCHIVE s ON s.id = p.session_id WHERE s.studio_id = :studio";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public ArchiveJdbcRepository(DataSource dataSource, @Value("${oc.app.jdbcFetchSize:500}") int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // Across every studio in the current database, for the archive job
+    public List<String> findStudiosToArchive(LocalDateTime before) {
+        return this.namedJdbcTemplate.queryForList("SELECT DISTINCT studio_id FROM SESSIONS WHERE date < :before"
+                + " AND deleted_at IS NULL", new MapSqlParameterSource("before", Timestamp.valueOf(before)), String.class);
+    }
+
+    // The oldest first, locked so that no booking slips in between the copy and the delete
+    public List<Long> lockSessionsToArchive(LocalDateTime before, int limit) {
+        return this.namedJdbcTemplate.queryForList("SELECT id FROM SESSIONS WHERE studio_id = :studio AND date < :before"
+                        + " AND deleted_at IS NULL ORDER BY date, id LIMIT :limit FOR UPDATE",
+                studio().addValue("before", Timestamp.valueOf(before)).addValue("limit", limit), Long.class);
+    }
+
+    // Bookings of deleted users are left behind for the purge job
+    public void copy(Collection<Long> ids, Timestamp now) {
+        MapSqlParameterSource params = studio().addValue("ids", ids).addValue("now", now);
+        this.namedJdbcTemplate.update("INSERT INTO SESSIONS_ARCHIVE (id, name, description, date, teacher_id, series_id,"
+                + " created_at, updated_at, version, studio_id, archived_at) SELECT id, name, description, date, teacher_id,"
+                + " series_id, created_at, updated_at, version, studio_id, :now FROM SESSIONS"
+                + " WHERE studio_id = :studio AND id IN (:ids)", params);
+        this.namedJdbcTemplate.update("INSERT INTO PARTICIPATE_ARCHIVE (session_id, user_id) SELECT p.session_id, p.user_id"
+                + " FROM PARTICIPATE p JOIN USERS u ON u.id = p.user_id"
+                + " WHERE p.session_id IN (:ids) AND u.deleted_at IS NULL", params);
+    }
+
+    // Clients syncing the list drop archived sessions through the same tombstones as deleted ones
+    public int remove(Collection<Long> ids, Timestamp now) {
+        MapSqlParameterSource params = studio().addValue("ids", ids).addValue("now", now);
+        this.namedJdbcTemplate.update("INSERT INTO SESSION_DELETIONS (session_id, deleted_at, studio_id)"
+                + " SELECT id, :now, studio_id FROM SESSIONS WHERE studio_id = :studio AND id IN (:ids)", params);
+        this.namedJdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id IN (:ids)", params);
+        return this.namedJdbcTemplate.update("DELETE FROM SESSIONS WHERE studio_id = :studio AND id IN (:ids)", params);
+    }
+
+    public List<SessionDto> findByIds(Collection<Long> ids) {
+        return this.find(" AND s.id IN (:ids)", studio().addValue("ids", ids));
+    }
+
+    public List<SessionDto> findAll(SessionFilter filter) {
+        MapSqlParameterSource params = studio()
+                .addValue("from", Timestamp.valueOf(filter.getFrom().atStartOfDay()))
+                .addValue("to", Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        if (filter.getTeacherId() == null) {
+            return this.find(" AND s.date >= :from AND s.date < :to", params);
+        }
+        return this.find(" AND s.date >= :from AND s.date < :to AND s.teacher_id = :teacher",
+                params.addValue("teacher", filter.getTeacherId()));
+    }
+
+    public List<SessionDto> findByUser(Long userId) {
+        return this.find(" AND s.id IN (SELECT session_id FROM PARTICIPATE_ARCHIVE WHERE user_id = :user)",
+                studio().addValue("user", userId));
+    }
+
+    private List<SessionDto> find(String condition, MapSqlParameterSource params) {
+        Map<Long, SessionDto> sessions = new LinkedHashMap<>();
+
+        this.namedJdbcTemplate.query(ARCHIVED + condition + " ORDER BY s.date, s.id", params, rs -> {
+            SessionDto session = new SessionDto();
+            session.setId(rs.getLong("id"));
+            session.setName(rs.getString("name"));
+            session.setDate(rs.getTimestamp("date"));
+            session.setTeacher_id(nullableLong(rs, "teacher_id"));
+            session.setDescription(rs.getString("description"));
+            session.setUsers(new ArrayList<>());
+            session.setCreatedAt(localDateTime(rs.getTimestamp("created_at")));
+            session.setUpdatedAt(localDateTime(rs.getTimestamp("updated_at")));
+            session.setVersion(nullableLong(rs, "version"));
+            session.setSeries_id(nullableLong(rs, "series_id"));
+            sessions.put(session.getId(), session);
+        });
+
+        if (!sessions.isEmpty()) {
+            this.namedJdbcTemplate.query(PARTICIPANTS + condition, params, rs -> {
+                SessionDto session = sessions.get(rs.getLong("session_id"));
+                if (session != null) {
+                    session.getUsers().add(rs.getLong("user_id"));
+                }
+            });
+        }
+
+        return new ArrayList<>(sessions.values());
+    }
+
+    private static MapSqlParameterSource studio() {
+        return new MapSqlParameterSource("studio", TenantContext.current());
+    }
+}
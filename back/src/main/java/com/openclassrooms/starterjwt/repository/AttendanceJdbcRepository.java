@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.AttendanceDto;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.openclassrooms.starterjwt.repository.JdbcRows.localDateTime;
+
+/**
+ * Reads one row per participant and session, joined with the teacher, for exports. Rows are
+ * handed over one at a time as the cursor moves, never collected.
+ */
+@Repository
+public class AttendanceJdbcRepository {
+    private static final String ATTENDANCE = "SELECT s.id, s.name, s.date, t.first_name AS teacher_first_name,"
+            + " t.last_name AS teacher_last_name, u.id AS user_id, u.first_name, u.last_name, u.email"
+            + " FROM SESSIONS s"
+            + " JOIN PARTICIPATE p ON p.session_id = s.id"
+            + " JOIN USERS u ON u.id = p.user_id"
+            + " LEFT JOIN TEACHERS t ON t.id = s.teacher_id"
+            + " WHERE s.studio_id = ? AND s.deleted_at IS NULL AND u.deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AttendanceJdbcRepository(DataSource dataSource, @Value("${oc.app.jdbcFetchSize:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    // Sessions are walked in calendar order off the studio/date index, so the database never sorts the whole export
+    public void forEach(LocalDateTime from, LocalDateTime to, Consumer<AttendanceDto> action) {
+        StringBuilder sql = new StringBuilder(ATTENDANCE);
+        List<Object> args = new ArrayList<>();
+        args.add(TenantContext.current());
+        if (from != null) {
+            sql.append(" AND s.date >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND s.date < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY s.date, s.id");
+
+        this.jdbcTemplate.query(sql.toString(), rs -> {
+            action.accept(new AttendanceDto(
+                    rs.getLong("id"),
+                    rs.getString("name"),
+                    localDateTime(rs.getTimestamp("date")),
+                    rs.getString("teacher_first_name"),
+                    rs.getString("teacher_last_name"),
+                    rs.getLong("user_id"),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    rs.getString("email")));
+        }, args.toArray());
+    }
+}
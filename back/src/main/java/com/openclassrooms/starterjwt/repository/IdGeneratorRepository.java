@@ -0,0 +1,34 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * Hands out blocks of ids for rows written around Hibernate, off the same ID_GENERATORS rows its
+ * pooled-lo generators allocate from, so neither ever reuses the other's ids.
+ */
+@Repository
+public class IdGeneratorRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdGeneratorRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Takes {@code count} ids off {@code sequence} and returns the first one. Runs in a short
+     * transaction of its own, as Hibernate's allocations do, so a long caller never keeps the
+     * generator row locked.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserve(String sequence, int count) {
+        Long next = this.jdbcTemplate.queryForObject(
+                "SELECT next_val FROM ID_GENERATORS WHERE sequence_name = ? FOR UPDATE", Long.class, sequence);
+        this.jdbcTemplate.update("UPDATE ID_GENERATORS SET next_val = ? WHERE sequence_name = ?", next + count, sequence);
+        return next;
+    }
+}
@@ -0,0 +1,153 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batched writes and set-based lookups for bulk imports, scoped to the current studio. Rows are
+ * inserted with ids already taken from {@link IdGeneratorRepository}.
+ */
+@Repository
+public class ImportJdbcRepository {
+    private static final String INSERT_USER = "INSERT INTO USERS (id, email, last_name, first_name, password, admin,"
+            + " created_at, updated_at, studio_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_TEACHER = "INSERT INTO TEACHERS (id, last_name, first_name, created_at, updated_at,"
+            + " studio_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SESSION = "INSERT INTO SESSIONS (id, name, date, description, teacher_id,"
+            + " created_at, updated_at, version, studio_id) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?)";
+
+    private static final String INSERT_PARTICIPATION = "INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public ImportJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+    }
+
+    public Map<String, Long> findUserIds(Collection<String> emails) {
+        Map<String, Long> ids = new HashMap<>();
+        if (!emails.isEmpty()) {
+            this.namedJdbcTemplate.query("SELECT id, email FROM USERS WHERE studio_id = :studio AND email IN (:emails)"
+                            + " AND deleted_at IS NULL",
+                    studio().addValue("emails", emails),
+                    rs -> {
+                        ids.put(rs.getString("email"), rs.getLong("id"));
+                    });
+        }
+        return ids;
+    }
+
+    public Set<Long> findTeacherIds(Collection<Long> ids) {
+        return findIds("TEACHERS", ids, "");
+    }
+
+    public Set<Long> findSessionIds(Collection<Long> ids) {
+        return findIds("SESSIONS", ids, " AND deleted_at IS NULL");
+    }
+
+    // Each pair as session id, then user id
+    public Set<List<Long>> findParticipations(Collection<Long> sessionIds) {
+        Set<List<Long>> pairs = new HashSet<>();
+        if (!sessionIds.isEmpty()) {
+            this.namedJdbcTemplate.query("SELECT session_id, user_id FROM PARTICIPATE WHERE session_id IN (:ids)",
+                    new MapSqlParameterSource("ids", sessionIds),
+                    rs -> {
+                        List<Long> pair = new ArrayList<>(2);
+                        pair.add(rs.getLong("session_id"));
+                        pair.add(rs.getLong("user_id"));
+                        pairs.add(pair);
+                    });
+        }
+        return pairs;
+    }
+
+    public void insertUsers(List<User> users, Timestamp now) {
+        List<Object[]> rows = new ArrayList<>(users.size());
+        for (User user : users) {
+            rows.add(new Object[]{user.getId(), user.getEmail(), user.getLastName(), user.getFirstName(),
+                    user.getPassword(), user.isAdmin(), now, now, TenantContext.current()});
+        }
+        this.jdbcTemplate.batchUpdate(INSERT_USER, rows);
+    }
+
+    public void insertTeachers(List<Teacher> teachers, Timestamp now) {
+        List<Object[]> rows = new ArrayList<>(teachers.size());
+        for (Teacher teacher : teachers) {
+            rows.add(new Object[]{teacher.getId(), teacher.getLastName(), teacher.getFirstName(), now, now,
+                    TenantContext.current()});
+        }
+        this.jdbcTemplate.batchUpdate(INSERT_TEACHER, rows);
+    }
+
+    public void insertSessions(List<SessionDto> sessions, Timestamp now) {
+        List<Object[]> rows = new ArrayList<>(sessions.size());
+        for (SessionDto session : sessions) {
+            rows.add(new Object[]{session.getId(), session.getName(), new Timestamp(session.getDate().getTime()),
+                    session.getDescription(), session.getTeacher_id(), now, now, TenantContext.current()});
+        }
+        this.jdbcTemplate.batchUpdate(INSERT_SESSION, rows);
+    }
+
+    public void insertParticipations(List<List<Long>> pairs) {
+        List<Object[]> rows = new ArrayList<>(pairs.size());
+        for (List<Long> pair : pairs) {
+            rows.add(new Object[]{pair.get(0), pair.get(1)});
+        }
+        this.jdbcTemplate.batchUpdate(INSERT_PARTICIPATION, rows);
+    }
+
+    public long findCommittedRows(String importId, String kind) {
+        List<Long> rows = this.jdbcTemplate.queryForList(
+                "SELECT committed_rows FROM IMPORT_PROGRESS WHERE studio_id = ? AND import_id = ? AND kind = ?",
+                Long.class, TenantContext.current(), importId, kind);
+        return rows.isEmpty() ? 0 : rows.get(0);
+    }
+
+    public void saveCommittedRows(String importId, String kind, long committedRows, Timestamp now) {
+        String tenant = TenantContext.current();
+        int updated = this.jdbcTemplate.update("UPDATE IMPORT_PROGRESS SET committed_rows = ?, updated_at = ?"
+                + " WHERE studio_id = ? AND import_id = ? AND kind = ?", committedRows, now, tenant, importId, kind);
+        if (updated == 0) {
+            this.jdbcTemplate.update("INSERT INTO IMPORT_PROGRESS (studio_id, import_id, kind, committed_rows, updated_at)"
+                    + " VALUES (?, ?, ?, ?, ?)", tenant, importId, kind, committedRows, now);
+        }
+    }
+
+    // Only ever called with a literal table name and condition
+    private Set<Long> findIds(String table, Collection<Long> ids, String condition) {
+        Set<Long> found = new HashSet<>();
+        if (!ids.isEmpty()) {
+            this.namedJdbcTemplate.query("SELECT id FROM " + table + " WHERE studio_id = :studio AND id IN (:ids)" + condition,
+                    studio().addValue("ids", ids),
+                    rs -> {
+                        found.add(rs.getLong("id"));
+                    });
+        }
+        return found;
+    }
+
+    private static MapSqlParameterSource studio() {
+        return new MapSqlParameterSource("studio", TenantContext.current());
+    }
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.starterjwt.repository;
+
+/**
+ * How a list endpoint reads its rows: through JPA entities, with plain JDBC straight into DTOs,
+ * or (session list only) streamed from a cursor into the response without being cached.
+ */
+public enum ListReadPath {
+    JPA,
+    JDBC,
+    STREAM
+}
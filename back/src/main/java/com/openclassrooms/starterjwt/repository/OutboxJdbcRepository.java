@@ -0,0 +1,75 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.events.OutboxMessage;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+import static com.openclassrooms.starterjwt.repository.JdbcRows.localDateTime;
+
+/**
+ * The OUTBOX table of the current database, and the checkpoints of the relays reading it.
+ * Messages are appended in the caller's transaction and read in id order.
+ */
+@Repository
+public class OutboxJdbcRepository {
+    private static final RowMapper<OutboxMessage> MESSAGE = (rs, row) -> new OutboxMessage(rs.getLong("id"),
+            rs.getString("studio_id"), rs.getString("type"), rs.getString("payload"),
+            localDateTime(rs.getTimestamp("created_at")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public OutboxJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+    }
+
+    public void append(String type, String payload, Timestamp now) {
+        this.jdbcTemplate.update("INSERT INTO OUTBOX (studio_id, type, payload, created_at) VALUES (?, ?, ?, ?)",
+                TenantContext.current(), type, payload, now);
+    }
+
+    // Across every studio in the current database
+    public List<OutboxMessage> findAfter(long id, int limit) {
+        return this.jdbcTemplate.query("SELECT id, studio_id, type, payload, created_at FROM OUTBOX WHERE id > ?"
+                + " ORDER BY id LIMIT ?", MESSAGE, id, limit);
+    }
+
+    public List<OutboxMessage> findByIds(Collection<Long> ids) {
+        return this.namedJdbcTemplate.query("SELECT id, studio_id, type, payload, created_at FROM OUTBOX WHERE id IN (:ids)"
+                + " ORDER BY id", new MapSqlParameterSource("ids", ids), MESSAGE);
+    }
+
+    public long findLastId() {
+        return this.jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM OUTBOX", Long.class);
+    }
+
+    public Long findCheckpoint(String relay) {
+        List<Long> ids = this.jdbcTemplate.queryForList("SELECT last_id FROM OUTBOX_CHECKPOINTS WHERE relay = ?",
+                Long.class, relay);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    public void saveCheckpoint(String relay, long lastId, Timestamp now) {
+        int updated = this.jdbcTemplate.update("UPDATE OUTBOX_CHECKPOINTS SET last_id = ?, updated_at = ? WHERE relay = ?",
+                lastId, now, relay);
+        if (updated == 0) {
+            this.jdbcTemplate.update("INSERT INTO OUTBOX_CHECKPOINTS (relay, last_id, updated_at) VALUES (?, ?, ?)",
+                    relay, lastId, now);
+        }
+    }
+
+    public int deleteOlderThan(Timestamp before, int limit) {
+        return this.jdbcTemplate.update("DELETE FROM OUTBOX WHERE created_at < ? LIMIT ?", before, limit);
+    }
+}
@@ -0,0 +1,66 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Removes deleted users and sessions for good, across every studio of the current database. Each
+ * statement removes at most {@code limit} rows, so none holds its locks for long; bookings must be
+ * gone before the users and sessions they reference. Bookings are found by the ids of the deleted
+ * rows rather than by a correlated subquery, which MySQL would answer with a full scan.
+ */
+@Repository
+public class PurgeJdbcRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public PurgeJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+    }
+
+    // Through the deleted_at index, so that a run with nothing to purge reads nothing
+    public List<Long> findDeletedSessionIds(long afterId, int limit) {
+        return this.jdbcTemplate.queryForList("SELECT id FROM SESSIONS WHERE deleted_at IS NOT NULL AND id > ?"
+                + " ORDER BY id LIMIT ?", Long.class, afterId, limit);
+    }
+
+    public List<Long> findDeletedUserIds(long afterId, int limit) {
+        return this.jdbcTemplate.queryForList("SELECT id FROM USERS WHERE deleted_at IS NOT NULL AND id > ?"
+                + " ORDER BY id LIMIT ?", Long.class, afterId, limit);
+    }
+
+    public int deleteParticipationsOfSessions(Collection<Long> sessionIds, int limit) {
+        return this.namedJdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id IN (:ids) LIMIT :limit",
+                new MapSqlParameterSource("ids", sessionIds).addValue("limit", limit));
+    }
+
+    public int deleteParticipationsOfUsers(Collection<Long> userIds, int limit) {
+        return this.namedJdbcTemplate.update("DELETE FROM PARTICIPATE WHERE user_id IN (:ids) LIMIT :limit",
+                new MapSqlParameterSource("ids", userIds).addValue("limit", limit));
+    }
+
+    // Their history goes with them
+    public int deleteArchivedParticipationsOfUsers(Collection<Long> userIds, int limit) {
+        return this.namedJdbcTemplate.update("DELETE FROM PARTICIPATE_ARCHIVE WHERE user_id IN (:ids) LIMIT :limit",
+                new MapSqlParameterSource("ids", userIds).addValue("limit", limit));
+    }
+
+    // Sessions still booked, by someone who booked after the bookings were purged, wait for the next run
+    public int deleteSessions(int limit) {
+        return this.jdbcTemplate.update("DELETE FROM SESSIONS WHERE deleted_at IS NOT NULL"
+                + " AND NOT EXISTS (SELECT 1 FROM PARTICIPATE p WHERE p.session_id = SESSIONS.id) LIMIT ?", limit);
+    }
+
+    public int deleteUsers(int limit) {
+        return this.jdbcTemplate.update("DELETE FROM USERS WHERE deleted_at IS NOT NULL"
+                + " AND NOT EXISTS (SELECT 1 FROM PARTICIPATE p WHERE p.user_id = USERS.id) LIMIT ?", limit);
+    }
+}
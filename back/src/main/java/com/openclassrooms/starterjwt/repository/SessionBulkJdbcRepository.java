@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admin writes to every session matching a filter, one statement each, scoped to the current
+ * studio. Updated sessions get a new version and update time, as an edit through the API would.
+ */
+@Repository
+public class SessionBulkJdbcRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionBulkJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public int reassign(SessionFilter filter, Long substituteId, Timestamp now) {
+        List<Object> args = new ArrayList<>();
+        args.add(substituteId);
+        args.add(now);
+        String matching = matching(filter, args);
+        return this.jdbcTemplate.update("UPDATE SESSIONS SET teacher_id = ?, updated_at = ?, version = version + 1"
+                + matching, args.toArray());
+    }
+
+    public int shift(SessionFilter filter, long seconds, Timestamp now) {
+        List<Object> args = new ArrayList<>();
+        args.add(seconds);
+        args.add(now);
+        String matching = matching(filter, args);
+        return this.jdbcTemplate.update("UPDATE SESSIONS SET date = TIMESTAMPADD(SECOND, ?, date), updated_at = ?,"
+                + " version = version + 1" + matching, args.toArray());
+    }
+
+    public int countParticipations(SessionFilter filter) {
+        List<Object> args = new ArrayList<>();
+        String matching = matching(filter, args);
+        return this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE session_id IN (SELECT id FROM SESSIONS"
+                + matching + ")", Integer.class, args.toArray());
+    }
+
+    // Deletes as a single delete does: a tombstone per session for clients syncing deletions, and
+    // the sessions hidden until the purge job removes them with their bookings
+    public int delete(SessionFilter filter, Timestamp now) {
+        List<Object> args = new ArrayList<>();
+        args.add(now);
+        this.jdbcTemplate.update("INSERT INTO SESSION_DELETIONS (session_id, deleted_at, studio_id)"
+                + " SELECT id, ?, studio_id FROM SESSIONS" + matching(filter, args), args.toArray());
+
+        args.clear();
+        args.add(now);
+        return this.jdbcTemplate.update("UPDATE SESSIONS SET deleted_at = ?" + matching(filter, args), args.toArray());
+    }
+
+    private static String matching(SessionFilter filter, List<Object> args) {
+        args.add(TenantContext.current());
+        args.add(Timestamp.valueOf(filter.getFrom().atStartOfDay()));
+        args.add(Timestamp.valueOf(filter.getTo().plusDays(1).atStartOfDay()));
+        if (filter.getTeacherId() == null) {
+            return " WHERE studio_id = ? AND deleted_at IS NULL AND date >= ? AND date < ?";
+        }
+        args.add(filter.getTeacherId());
+        return " WHERE studio_id = ? AND deleted_at IS NULL AND date >= ? AND date < ? AND teacher_id = ?";
+    }
+}
@@ -0,0 +1,66 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.openclassrooms.starterjwt.repository.JdbcRows.localDateTime;
+import static com.openclassrooms.starterjwt.repository.JdbcRows.nullableLong;
+
+/**
+ * Reads the session list with plain JDBC, row by row into DTOs: no persistence context,
+ * snapshots or proxies. Must return exactly what the JPA path maps to.
+ */
+@Repository
+public class SessionJdbcRepository {
+    private static final String SESSIONS = "SELECT id, name, date, teacher_id, description, created_at, updated_at, version,"
+            + " series_id FROM SESSIONS WHERE studio_id = ? AND deleted_at IS NULL ORDER BY id";
+
+    private static final String PARTICIPANTS = "SELECT p.session_id, p.user_id FROM PARTICIPATE p"
+            + " JOIN SESSIONS s ON s.id = p.session_id JOIN USERS u ON u.id = p.user_id"
+            + " WHERE s.studio_id = ? AND s.deleted_at IS NULL AND u.deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionJdbcRepository(DataSource dataSource, @Value("${oc.app.jdbcFetchSize:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public List<SessionDto> findAll() {
+        String tenant = TenantContext.current();
+        Map<Long, SessionDto> sessions = new LinkedHashMap<>();
+
+        this.jdbcTemplate.query(SESSIONS, rs -> {
+            SessionDto session = new SessionDto();
+            session.setId(rs.getLong("id"));
+            session.setName(rs.getString("name"));
+            session.setDate(rs.getTimestamp("date"));
+            session.setTeacher_id(nullableLong(rs, "teacher_id"));
+            session.setDescription(rs.getString("description"));
+            session.setUsers(new ArrayList<>());
+            session.setCreatedAt(localDateTime(rs.getTimestamp("created_at")));
+            session.setUpdatedAt(localDateTime(rs.getTimestamp("updated_at")));
+            session.setVersion(nullableLong(rs, "version"));
+            session.setSeries_id(nullableLong(rs, "series_id"));
+            sessions.put(session.getId(), session);
+        }, tenant);
+
+        this.jdbcTemplate.query(PARTICIPANTS, rs -> {
+            SessionDto session = sessions.get(rs.getLong("session_id"));
+            if (session != null) {
+                session.getUsers().add(rs.getLong("user_id"));
+            }
+        }, tenant);
+
+        return new ArrayList<>(sessions.values());
+    }
+}
@@ -1,9 +1,62 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    // A query rather than EntityManager.find, which ignores the studio filter
+    @Override
+    @Query("select s from Session s where s.id = :id")
+    Optional<Session> findById(@Param("id") Long id);
+
+    // The description is lazy; "fetch all properties" loads it in the same select for callers that return it
+    @EntityGraph(Session.LIST_GRAPH)
+    @Query("select distinct s from Session s fetch all properties")
+    @QueryHints({
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    List<Session> findAllForList();
+
+    @EntityGraph(Session.DETAIL_GRAPH)
+    @Query("select s from Session s fetch all properties where s.id = :id")
+    @QueryHints({
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    Optional<Session> findForDetailById(@Param("id") Long id);
+
+    @EntityGraph(Session.BOOKING_GRAPH)
+    Optional<Session> findForBookingById(Long id);
+
+    @Query("select s.version from Session s where s.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @EntityGraph(Session.LIST_GRAPH)
+    @Query("select distinct s from Session s fetch all properties where s.updatedAt >= :since")
+    @QueryHints({
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_FLUSH_MODE, value = "MANUAL")
+    })
+    List<Session> findDistinctByUpdatedAtGreaterThanEqual(@Param("since") LocalDateTime since);
+
+    // Bulk statements ignore the studio filter, hence the explicit studio
+    @Modifying
+    @Query("update Session s set s.deletedAt = :now where s.id = :id and s.studioId = :studio and s.deletedAt is null")
+    int softDelete(@Param("id") Long id, @Param("studio") String studio, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,17 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDetailDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface SessionRepositoryCustom {
+    List<Session> findSparse(SessionFieldSet fieldSet, Long id);
+
+    Optional<SessionDetailDto> findDetail(Long id, Long userId);
+
+    void forEachForList(Consumer<Session> action);
+}
@@ -0,0 +1,231 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDetailDto;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Projection queries over sessions that bypass full entity loading, and a streaming read of the
+ * full list. Sessions returned by {@link #findSparse} are transient and partially filled; they
+ * must never be saved.
+ */
+public class SessionRepositoryImpl implements SessionRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${oc.app.jdbcFetchSize:500}")
+    private int fetchSize;
+
+    @Override
+    public List<Session> findSparse(SessionFieldSet fieldSet, Long id) {
+        boolean joinTeacher = fieldSet.includes(SessionFieldSet.TEACHER_ID) || fieldSet.expandTeacher();
+
+        List<String> select = new ArrayList<>();
+        select.add("s.id as s_id");
+        addIf(select, fieldSet.includes(SessionFieldSet.NAME), "s.name as s_name");
+        addIf(select, fieldSet.includes(SessionFieldSet.DATE), "s.date as s_date");
+        addIf(select, fieldSet.includes(SessionFieldSet.DESCRIPTION), "s.description as s_description");
+        addIf(select, fieldSet.includes(SessionFieldSet.CREATED_AT), "s.createdAt as s_createdAt");
+        addIf(select, fieldSet.includes(SessionFieldSet.UPDATED_AT), "s.updatedAt as s_updatedAt");
+        addIf(select, fieldSet.includes(SessionFieldSet.VERSION), "s.version as s_version");
+        addIf(select, fieldSet.includes(SessionFieldSet.SERIES_ID), "s.seriesId as s_seriesId");
+        addIf(select, joinTeacher, "t.id as t_id");
+        addIf(select, fieldSet.expandTeacher(), "t.firstName as t_firstName");
+        addIf(select, fieldSet.expandTeacher(), "t.lastName as t_lastName");
+        addIf(select, fieldSet.expandTeacher(), "t.createdAt as t_createdAt");
+        addIf(select, fieldSet.expandTeacher(), "t.updatedAt as t_updatedAt");
+
+        String jpql = "select " + String.join(", ", select) + " from Session s"
+                + (joinTeacher ? " left join s.teacher t" : "")
+                + (id != null ? " where s.id = :id" : "");
+
+        TypedQuery<Tuple> query = this.entityManager.createQuery(jpql, Tuple.class);
+        if (id != null) {
+            query.setParameter("id", id);
+        }
+
+        Map<Long, Session> sessions = new LinkedHashMap<>();
+        for (Tuple row : query.getResultList()) {
+            Session session = new Session().setId(row.get("s_id", Long.class));
+            if (fieldSet.includes(SessionFieldSet.NAME)) {
+                session.setName(row.get("s_name", String.class));
+            }
+            if (fieldSet.includes(SessionFieldSet.DATE)) {
+                session.setDate(row.get("s_date", Date.class));
+            }
+            if (fieldSet.includes(SessionFieldSet.DESCRIPTION)) {
+                session.setDescription(row.get("s_description", String.class));
+            }
+            if (fieldSet.includes(SessionFieldSet.CREATED_AT)) {
+                session.setCreatedAt(row.get("s_createdAt", LocalDateTime.class));
+            }
+            if (fieldSet.includes(SessionFieldSet.UPDATED_AT)) {
+                session.setUpdatedAt(row.get("s_updatedAt", LocalDateTime.class));
+            }
+            if (fieldSet.includes(SessionFieldSet.VERSION)) {
+                session.setVersion(row.get("s_version", Long.class));
+            }
+            if (fieldSet.includes(SessionFieldSet.SERIES_ID)) {
+                session.setSeriesId(row.get("s_seriesId", Long.class));
+            }
+            if (joinTeacher && row.get("t_id") != null) {
+                Teacher teacher = new Teacher().setId(row.get("t_id", Long.class));
+                if (fieldSet.expandTeacher()) {
+                    teacher.setFirstName(row.get("t_firstName", String.class))
+                            .setLastName(row.get("t_lastName", String.class))
+                            .setCreatedAt(row.get("t_createdAt", LocalDateTime.class))
+                            .setUpdatedAt(row.get("t_updatedAt", LocalDateTime.class));
+                }
+                session.setTeacher(teacher);
+            }
+            sessions.put(session.getId(), session);
+        }
+
+        if (fieldSet.includes(SessionFieldSet.USERS) && !sessions.isEmpty()) {
+            this.loadParticipants(sessions, fieldSet.expandUsers(), id);
+        }
+
+        return new ArrayList<>(sessions.values());
+    }
+
+    @Override
+    public Optional<SessionDetailDto> findDetail(Long id, Long userId) {
+        String jpql = "select s.id as s_id, s.name as s_name, s.date as s_date, s.description as s_description,"
+                + " s.createdAt as s_createdAt, s.updatedAt as s_updatedAt, s.version as s_version, s.seriesId as s_seriesId,"
+                + " t.id as t_id, t.firstName as t_firstName, t.lastName as t_lastName, t.createdAt as t_createdAt, t.updatedAt as t_updatedAt,"
+                + " count(u.id) as participants,"
+                + " sum(case when u.id = :userId then 1 else 0 end) as participating"
+                + " from Session s left join s.teacher t left join s.users u"
+                + " where s.id = :id"
+                + " group by s.id, s.name, s.date, s.description, s.createdAt, s.updatedAt, s.version, s.seriesId,"
+                + " t.id, t.firstName, t.lastName, t.createdAt, t.updatedAt";
+
+        List<Tuple> rows = this.entityManager.createQuery(jpql, Tuple.class)
+                .setParameter("id", id)
+                .setParameter("userId", userId != null ? userId : -1L)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Tuple row = rows.get(0);
+        Long teacherId = row.get("t_id", Long.class);
+
+        SessionDto session = new SessionDto();
+        session.setId(row.get("s_id", Long.class));
+        session.setName(row.get("s_name", String.class));
+        session.setDate(row.get("s_date", Date.class));
+        session.setDescription(row.get("s_description", String.class));
+        session.setTeacher_id(teacherId);
+        session.setCreatedAt(row.get("s_createdAt", LocalDateTime.class));
+        session.setUpdatedAt(row.get("s_updatedAt", LocalDateTime.class));
+        session.setVersion(row.get("s_version", Long.class));
+        session.setSeries_id(row.get("s_seriesId", Long.class));
+
+        TeacherDto teacher = teacherId == null ? null : new TeacherDto(teacherId,
+                row.get("t_lastName", String.class),
+                row.get("t_firstName", String.class),
+                row.get("t_createdAt", LocalDateTime.class),
+                row.get("t_updatedAt", LocalDateTime.class));
+
+        Number participants = row.get("participants", Number.class);
+        Number participating = row.get("participating", Number.class);
+
+        return Optional.of(new SessionDetailDto(session, teacher,
+                participants != null ? participants.longValue() : 0L,
+                participating != null && participating.longValue() > 0));
+    }
+
+    /**
+     * Reads every session with its participants through a forward-only cursor, in id order so
+     * that the rows of one session arrive together, and detaches each one once {@code action}
+     * is done with it. Memory stays flat however many sessions there are.
+     */
+    @Override
+    public void forEachForList(Consumer<Session> action) {
+        TypedQuery<Session> query = this.entityManager.createQuery(
+                "select s from Session s fetch all properties left join fetch s.users order by s.id", Session.class);
+        query.setHint(HINT_FETCH_SIZE, this.fetchSize);
+        query.setHint(HINT_READONLY, true);
+
+        try (Stream<Session> sessions = query.getResultStream()) {
+            sessions.forEach(session -> {
+                action.accept(session);
+                session.getUsers().forEach(this.entityManager::detach);
+                if (session.getTeacher() != null) {
+                    this.entityManager.detach(session.getTeacher());
+                }
+                this.entityManager.detach(session);
+            });
+        }
+    }
+
+    private void loadParticipants(Map<Long, Session> sessions, boolean expand, Long id) {
+        sessions.values().forEach(session -> session.setUsers(new ArrayList<>()));
+
+        String jpql = "select s.id as s_id, u.id as u_id"
+                + (expand ? ", u.email as u_email, u.firstName as u_firstName, u.lastName as u_lastName, u.admin as u_admin, u.createdAt as u_createdAt, u.updatedAt as u_updatedAt" : "")
+                + " from Session s join s.users u"
+                + (id != null ? " where s.id = :id" : "");
+
+        TypedQuery<Tuple> query = this.entityManager.createQuery(jpql, Tuple.class);
+        if (id != null) {
+            query.setParameter("id", id);
+        }
+
+        for (Tuple row : query.getResultList()) {
+            Session session = sessions.get(row.get("s_id", Long.class));
+            if (session == null) {
+                continue;
+            }
+
+            User user = new User().setId(row.get("u_id", Long.class));
+            if (expand) {
+                String email = row.get("u_email", String.class);
+                String firstName = row.get("u_firstName", String.class);
+                String lastName = row.get("u_lastName", String.class);
+                if (email != null) {
+                    user.setEmail(email);
+                }
+                if (firstName != null) {
+                    user.setFirstName(firstName);
+                }
+                if (lastName != null) {
+                    user.setLastName(lastName);
+                }
+                user.setAdmin(Boolean.TRUE.equals(row.get("u_admin", Boolean.class)))
+                        .setCreatedAt(row.get("u_createdAt", LocalDateTime.class))
+                        .setUpdatedAt(row.get("u_updatedAt", LocalDateTime.class));
+            }
+            session.getUsers().add(user);
+        }
+    }
+
+    private static void addIf(List<String> select, boolean condition, String column) {
+        if (condition) {
+            select.add(column);
+        }
+    }
+}
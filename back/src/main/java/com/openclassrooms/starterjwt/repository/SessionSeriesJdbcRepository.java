@@ -0,0 +1,73 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set-based writes to the occurrences of a series: one batch to create them, one statement to
+ * edit or cancel every upcoming one. Scoped to the current studio.
+ */
+@Repository
+public class SessionSeriesJdbcRepository {
+    private static final String INSERT_OCCURRENCE = "INSERT INTO SESSIONS (id, name, date, description, teacher_id,"
+            + " created_at, updated_at, version, series_id, studio_id) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+
+    private static final String UPCOMING = " WHERE studio_id = ? AND series_id = ? AND date >= ? AND deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionSeriesJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    // Occurrences take ids firstId, firstId + 1, ... in date order
+    public void insertOccurrences(SessionSeries series, List<LocalDateTime> dates, long firstId, Timestamp now) {
+        Long teacherId = series.getTeacher() != null ? series.getTeacher().getId() : null;
+        List<Object[]> rows = new ArrayList<>(dates.size());
+        for (int i = 0; i < dates.size(); i++) {
+            rows.add(new Object[]{firstId + i, series.getName(), Timestamp.valueOf(dates.get(i)), series.getDescription(),
+                    teacherId, now, now, series.getId(), TenantContext.current()});
+        }
+        this.jdbcTemplate.batchUpdate(INSERT_OCCURRENCE, rows);
+    }
+
+    // Bumps the version of each occurrence, as an edit through the API would
+    public int updateUpcoming(SessionSeries series, LocalDateTime from, Timestamp now) {
+        return this.jdbcTemplate.update("UPDATE SESSIONS SET name = ?, description = ?, teacher_id = ?, updated_at = ?,"
+                        + " version = version + 1" + UPCOMING,
+                series.getName(), series.getDescription(), series.getTeacher() != null ? series.getTeacher().getId() : null,
+                now, TenantContext.current(), series.getId(), Timestamp.valueOf(from));
+    }
+
+    // Deletes as a single delete does: a tombstone per occurrence for clients syncing deletions,
+    // and the occurrences hidden until the purge job removes them with their bookings
+    public int deleteUpcoming(Long seriesId, LocalDateTime from, Timestamp now) {
+        String tenant = TenantContext.current();
+        Timestamp start = Timestamp.valueOf(from);
+        this.jdbcTemplate.update("INSERT INTO SESSION_DELETIONS (session_id, deleted_at, studio_id)"
+                + " SELECT id, ?, studio_id FROM SESSIONS" + UPCOMING, now, tenant, seriesId, start);
+        return this.jdbcTemplate.update("UPDATE SESSIONS SET deleted_at = ?" + UPCOMING,
+                now, tenant, seriesId, start);
+    }
+
+    // Across every studio in the current database, for the extension job
+    public List<String> findStudiosToExtend(LocalDateTime until) {
+        return this.jdbcTemplate.queryForList("SELECT DISTINCT studio_id FROM SESSION_SERIES"
+                + " WHERE materialized_until < ? AND (ends_on IS NULL OR materialized_until < ends_on)",
+                String.class, Timestamp.valueOf(until));
+    }
+
+    public List<Long> findSeriesToExtend(LocalDateTime until) {
+        return this.jdbcTemplate.queryForList("SELECT id FROM SESSION_SERIES WHERE studio_id = ?"
+                + " AND materialized_until < ? AND (ends_on IS NULL OR materialized_until < ends_on) ORDER BY id",
+                Long.class, TenantContext.current(), Timestamp.valueOf(until));
+    }
+}
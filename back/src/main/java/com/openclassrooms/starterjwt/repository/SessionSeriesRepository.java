@@ -0,0 +1,24 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface SessionSeriesRepository extends JpaRepository<SessionSeries, Long> {
+    // A query rather than EntityManager.find, which ignores the studio filter
+    @Override
+    @Query("select s from SessionSeries s where s.id = :id")
+    Optional<SessionSeries> findById(@Param("id") Long id);
+
+    // Serializes writers of one series, so that two extensions never write the same occurrences
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from SessionSeries s where s.id = :id")
+    Optional<SessionSeries> findForUpdateById(@Param("id") Long id);
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static com.openclassrooms.starterjwt.repository.JdbcRows.localDateTime;
+
+/**
+ * Reads the teacher list with plain JDBC straight into DTOs.
+ */
+@Repository
+public class TeacherJdbcRepository {
+    private static final String TEACHERS = "SELECT id, last_name, first_name, created_at, updated_at"
+            + " FROM TEACHERS WHERE studio_id = ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TeacherJdbcRepository(DataSource dataSource, @Value("${oc.app.jdbcFetchSize:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public List<TeacherDto> findAll() {
+        return this.jdbcTemplate.query(TEACHERS, (rs, row) -> new TeacherDto(
+                rs.getLong("id"),
+                rs.getString("last_name"),
+                rs.getString("first_name"),
+                localDateTime(rs.getTimestamp("created_at")),
+                localDateTime(rs.getTimestamp("updated_at"))), TenantContext.current());
+    }
+}
@@ -1,15 +1,28 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.openclassrooms.starterjwt.models.User;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+  @Override
+  @Query("select u from User u where u.id = :id")
+  Optional<User> findById(@Param("id") Long id);
+
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  // Bulk statements ignore the studio filter, hence the explicit studio
+  @Modifying
+  @Query("update User u set u.deletedAt = :now where u.id = :id and u.studioId = :studio and u.deletedAt is null")
+  int softDelete(@Param("id") Long id, @Param("studio") String studio, @Param("now") LocalDateTime now);
 }
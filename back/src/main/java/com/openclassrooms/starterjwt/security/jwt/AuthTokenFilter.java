@@ -18,6 +18,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
@@ -28,12 +29,15 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
+  public static final String STUDIO_HEADER = "X-Studio";
+
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
       if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
+        TenantContext.set(jwtUtils.getStudioFromJwtToken(jwt));
         String username = jwtUtils.getUserNameFromJwtToken(jwt);
 
         UserDetails userDetails = userDetailsService.loadUserByUsername(username);
@@ -45,12 +49,24 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
+      } else if (StringUtils.hasText(request.getHeader(STUDIO_HEADER))) {
+        // Before login the studio comes from the client; afterwards only the signed token counts
+        String studio = request.getHeader(STUDIO_HEADER);
+        if (!TenantContext.isValid(studio)) {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid studio");
+          return;
+        }
+        TenantContext.set(studio);
       }
     } catch (Exception e) {
       logger.error("Cannot set user authentication: {}", e);
     }
 
-    filterChain.doFilter(request, response);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      TenantContext.clear();
+    }
   }
 
   private String parseJwt(HttpServletRequest request) {
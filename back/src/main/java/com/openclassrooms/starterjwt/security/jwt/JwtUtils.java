@@ -9,6 +9,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 
 import io.jsonwebtoken.*;
 
@@ -16,6 +17,8 @@ import io.jsonwebtoken.*;
 public class JwtUtils {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+  private static final String STUDIO_CLAIM = "studio";
+
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
 
@@ -28,6 +31,7 @@ public class JwtUtils {
 
     return Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
+        .claim(STUDIO_CLAIM, TenantContext.current())
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
         .signWith(SignatureAlgorithm.HS512, jwtSecret)
@@ -38,6 +42,12 @@ public class JwtUtils {
     return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
   }
 
+  // Tokens issued before studios existed belong to the default studio
+  public String getStudioFromJwtToken(String token) {
+    String studio = Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().get(STUDIO_CLAIM, String.class);
+    return studio != null ? studio : TenantContext.DEFAULT;
+  }
+
   public boolean validateJwtToken(String authToken) {
     try {
       Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
@@ -0,0 +1,210 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.datasource.TenantRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.repository.ArchiveJdbcRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the live tables to the sessions still of use. A background job moves sessions older than
+ * {@code oc.app.archiveAfterDays}, with their bookings, to the archive tables, in batches of
+ * {@code oc.app.archiveBatchSize} sessions each committed on its own. When
+ * {@code oc.app.archiveExportDir} is set, each batch is also written there as gzipped NDJSON, one
+ * file per batch under a folder per studio. The archive itself is read-only.
+ */
+@Service
+public class ArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveService.class);
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final ArchiveJdbcRepository archiveJdbcRepository;
+
+    private final SessionService sessionService;
+
+    private final ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final long afterDays;
+
+    private final int batchSize;
+
+    private final long pauseMs;
+
+    private final Path exportDir;
+
+    private final ScheduledExecutorService archives;
+
+    public ArchiveService(ArchiveJdbcRepository archiveJdbcRepository,
+                          SessionService sessionService,
+                          ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${oc.app.archiveAfterDays:365}") long afterDays,
+                          @Value("${oc.app.archiveBatchSize:500}") int batchSize,
+                          @Value("${oc.app.archivePauseMs:50}") long pauseMs,
+                          @Value("${oc.app.archiveExportDir:}") String exportDir,
+                          @Value("${oc.app.archiveIntervalMs:3600000}") long intervalMs,
+                          @Value("${oc.app.backgroundJobs:true}") boolean backgroundJobs) {
+        this.archiveJdbcRepository = archiveJdbcRepository;
+        this.sessionService = sessionService;
+        this.tenantRoutingDataSource = tenantRoutingDataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.afterDays = afterDays;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.exportDir = exportDir.isEmpty() ? null : Paths.get(exportDir);
+
+        this.archives = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("archive-"));
+        if (backgroundJobs) {
+            this.archives.scheduleWithFixedDelay(this::archiveAllQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.archives.shutdownNow();
+    }
+
+    /**
+     * The archived sessions from {@code from} to {@code to}, both days included, optionally only
+     * those of one teacher, in date order.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionDto> findArchived(SessionFilter filter) {
+        return this.archiveJdbcRepository.findAll(filter);
+    }
+
+    // The archived sessions a member attended, in date order
+    @Transactional(readOnly = true)
+    public List<SessionDto> findArchivedByUser(Long userId) {
+        return this.archiveJdbcRepository.findByUser(userId);
+    }
+
+    /**
+     * Archives every session older than the configured age in every studio of every database.
+     * Returns the number of sessions archived.
+     */
+    public int archiveAll() {
+        LocalDateTime before = LocalDate.now().minusDays(this.afterDays).atStartOfDay();
+        List<String> databases = new ArrayList<>();
+        databases.add(TenantContext.DEFAULT);
+        this.tenantRoutingDataSource.ifAvailable(routing -> databases.addAll(routing.getDedicated().keySet()));
+
+        int archived = 0;
+        for (String database : databases) {
+            List<String> studios = TenantContext.callAs(database, () -> this.archiveJdbcRepository.findStudiosToArchive(before));
+            for (String studio : studios) {
+                archived += TenantContext.callAs(studio, () -> this.archiveStudio(before));
+            }
+        }
+        return archived;
+    }
+
+    // Runs batches until one comes back short, pausing in between to leave room for requests
+    private int archiveStudio(LocalDateTime before) {
+        int archived = 0;
+        int count;
+        do {
+            count = this.transactionTemplate.execute(status -> this.archiveBatch(before));
+            archived += count;
+        } while (count == this.batchSize && this.pause());
+
+        if (archived > 0) {
+            this.sessionService.sessionsChangedInBulk();
+        }
+        return archived;
+    }
+
+    private int archiveBatch(LocalDateTime before) {
+        List<Long> ids = this.archiveJdbcRepository.lockSessionsToArchive(before, this.batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        this.archiveJdbcRepository.copy(ids, now);
+        if (this.exportDir != null) {
+            this.export(this.archiveJdbcRepository.findByIds(ids), now.toLocalDateTime());
+        }
+        return this.archiveJdbcRepository.remove(ids, now);
+    }
+
+    // Written aside and moved into place, so a file is either whole or absent; a failure rolls the batch back
+    private void export(List<SessionDto> sessions, LocalDateTime now) {
+        try {
+            Path dir = Files.createDirectories(this.exportDir.resolve(TenantContext.current()));
+            String name = "sessions-" + now.format(FILE_TIME) + "-" + sessions.get(0).getId() + ".ndjson.gz";
+            Path partial = dir.resolve(name + ".part");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial));
+                 JsonGenerator json = this.objectMapper.getFactory().createGenerator(out)) {
+                json.setRootValueSeparator(null);
+                for (SessionDto session : sessions) {
+                    this.objectMapper.writeValue(json, session);
+                    json.writeRaw('\n');
+                }
+            }
+            Files.move(partial, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // False once the job is shut down
+    private boolean pause() {
+        try {
+            Thread.sleep(this.pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // An exception would cancel every later run of the job
+    private void archiveAllQuietly() {
+        try {
+            int archived = this.archiveAll();
+            if (archived > 0) {
+                logger.info("Archived {} sessions", archived);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Archiving sessions failed", e);
+        }
+    }
+}
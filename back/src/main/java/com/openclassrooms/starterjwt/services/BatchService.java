@@ -0,0 +1,211 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.openclassrooms.starterjwt.batch.BatchServletRequest;
+import com.openclassrooms.starterjwt.batch.BatchServletResponse;
+import com.openclassrooms.starterjwt.payload.request.BatchRequest;
+import com.openclassrooms.starterjwt.payload.response.BatchResponse;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the sub-requests of {@code POST /api/batch} through the dispatcher servlet in-process,
+ * under the principal already authenticated for the batch. Consecutive GETs run in parallel;
+ * each POST or DELETE runs alone, after everything before it, so writes keep their order.
+ */
+@Service
+public class BatchService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
+
+    private static final List<String> METHODS = Arrays.asList("GET", "POST", "DELETE");
+
+    private static final String API_PREFIX = "/api/";
+
+    private static final String BATCH_PATH = "/api/batch";
+
+    private final Supplier<Servlet> dispatcher;
+
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService executor;
+
+    private final int maxRequests;
+
+    private final long timeoutMs;
+
+    @Autowired
+    public BatchService(ObjectProvider<DispatcherServlet> dispatcherServlet,
+                        ObjectMapper objectMapper,
+                        @Value("${oc.app.batchThreads:8}") int threads,
+                        @Value("${oc.app.batchMaxRequests:20}") int maxRequests,
+                        @Value("${oc.app.batchTimeoutMs:10000}") long timeoutMs) {
+        this(dispatcherServlet::getObject, objectMapper,
+                Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("batch-")), maxRequests, timeoutMs);
+    }
+
+    public BatchService(Supplier<Servlet> dispatcher, ObjectMapper objectMapper, ExecutorService executor,
+                        int maxRequests, long timeoutMs) {
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.maxRequests = maxRequests;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public int getMaxRequests() {
+        return this.maxRequests;
+    }
+
+    public List<BatchResponse> execute(List<BatchRequest> requests, HttpServletRequest request, HttpServletResponse response) {
+        SecurityContext context = SecurityContextHolder.getContext();
+        BatchResponse[] results = new BatchResponse[requests.size()];
+        List<Integer> reads = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            BatchRequest item = requests.get(i);
+            BatchResponse invalid = this.validate(item);
+            if (invalid != null) {
+                results[i] = invalid;
+            } else if ("GET".equals(method(item))) {
+                reads.add(i);
+            } else {
+                this.runReads(reads, requests, results, context, request, response);
+                results[i] = this.dispatch(item, request, response);
+            }
+        }
+        this.runReads(reads, requests, results, context, request, response);
+
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void runReads(List<Integer> reads, List<BatchRequest> requests, BatchResponse[] results,
+                          SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        if (reads.isEmpty()) {
+            return;
+        }
+        if (reads.size() == 1) {
+            int index = reads.get(0);
+            results[index] = this.dispatch(requests.get(index), request, response);
+            reads.clear();
+            return;
+        }
+
+        List<Future<BatchResponse>> futures = new ArrayList<>();
+        for (int index : reads) {
+            BatchRequest item = requests.get(index);
+            try {
+                futures.add(this.executor.submit(TenantContext.bind(DelegatingSecurityContextCallable.create(
+                        () -> this.dispatch(item, request, response), context))));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMs);
+        for (int i = 0; i < reads.size(); i++) {
+            results[reads.get(i)] = this.await(futures.get(i), deadline);
+        }
+        reads.clear();
+    }
+
+    private BatchResponse await(Future<BatchResponse> future, long deadline) {
+        if (future == null) {
+            return new BatchResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), null);
+        }
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return new BatchResponse(HttpStatus.GATEWAY_TIMEOUT.value(), null);
+        } catch (ExecutionException e) {
+            logger.error("Batched request failed: {}", e.getCause().getMessage());
+            return new BatchResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BatchResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), null);
+        }
+    }
+
+    private BatchResponse dispatch(BatchRequest item, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            byte[] body = item.getBody() != null ? this.objectMapper.writeValueAsBytes(item.getBody()) : null;
+            BatchServletRequest subRequest = new BatchServletRequest(request, method(item), item.getPath(), body);
+            BatchServletResponse subResponse = new BatchServletResponse(response);
+
+            this.dispatcher.get().service(subRequest, subResponse);
+
+            return new BatchResponse(subResponse.getStatus(), this.readBody(subResponse));
+        } catch (Exception e) {
+            logger.error("Batched request {} {} failed: {}", method(item), item.getPath(), e.getMessage());
+            return new BatchResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null);
+        }
+    }
+
+    private JsonNode readBody(BatchServletResponse response) throws IOException {
+        byte[] body = response.getBody();
+        if (body.length == 0) {
+            return null;
+        }
+
+        String contentType = response.getContentType();
+        if (contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)) {
+            try {
+                return this.objectMapper.readTree(body);
+            } catch (JsonProcessingException e) {
+                logger.warn("Batched response is not valid JSON: {}", e.getMessage());
+            }
+        }
+        return TextNode.valueOf(new String(body, response.getCharacterEncoding()));
+    }
+
+    private BatchResponse validate(BatchRequest item) {
+        String path = item != null ? item.getPath() : null;
+        if (path == null || !path.startsWith(API_PREFIX) || path.startsWith(BATCH_PATH) || path.contains("..")
+                || !METHODS.contains(method(item))) {
+            return new BatchResponse(HttpStatus.BAD_REQUEST.value(), null);
+        }
+        return null;
+    }
+
+    private static String method(BatchRequest item) {
+        return item.getMethod() != null ? item.getMethod().toUpperCase(Locale.ROOT) : "GET";
+    }
+}
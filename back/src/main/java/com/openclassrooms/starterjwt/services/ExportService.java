@@ -0,0 +1,142 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.AttendanceDto;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.repository.AttendanceJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes admin exports row by row as they are read. Exports run in read-only transactions, so
+ * they go to a replica when there is one, and only a few may run at once.
+ */
+@Service
+public class ExportService {
+    private static final String ATTENDANCE_HEADER = "session_id,session_name,session_date,teacher_first_name,"
+            + "teacher_last_name,user_id,user_first_name,user_last_name,user_email\r\n";
+
+    private final AttendanceJdbcRepository attendanceJdbcRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Semaphore running;
+
+    public ExportService(AttendanceJdbcRepository attendanceJdbcRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${oc.app.exportMaxConcurrent:1}") int maxConcurrent) {
+        this.attendanceJdbcRepository = attendanceJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Claims one of the export slots; a caller that gets one must {@link #finish()} once done.
+     */
+    public boolean tryStart() {
+        return this.running.tryAcquire();
+    }
+
+    public void finish() {
+        this.running.release();
+    }
+
+    /**
+     * Writes the attendance of sessions dated from {@code from} to {@code to}, both inclusive and
+     * both optional, and returns the number of rows written. The writer is flushed, not closed.
+     */
+    @Transactional(readOnly = true)
+    public long exportAttendance(LocalDate from, LocalDate to, DataFormat format, Writer out) {
+        LocalDateTime start = from != null ? from.atStartOfDay() : null;
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : null;
+        AtomicLong rows = new AtomicLong();
+
+        try {
+            if (format == DataFormat.CSV) {
+                out.write(ATTENDANCE_HEADER);
+                this.attendanceJdbcRepository.forEach(start, end, row -> {
+                    writeCsv(out, row);
+                    rows.incrementAndGet();
+                });
+            } else {
+                JsonGenerator json = this.objectMapper.getFactory().createGenerator(out);
+                json.setRootValueSeparator(null);
+                this.attendanceJdbcRepository.forEach(start, end, row -> {
+                    writeJson(json, row);
+                    rows.incrementAndGet();
+                });
+                json.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows.get();
+    }
+
+    private static void writeCsv(Writer out, AttendanceDto row) {
+        try {
+            out.write(String.valueOf(row.getSessionId()));
+            out.write(',');
+            out.write(csv(row.getSessionName()));
+            out.write(',');
+            out.write(row.getSessionDate() != null ? row.getSessionDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "");
+            out.write(',');
+            out.write(csv(row.getTeacherFirstName()));
+            out.write(',');
+            out.write(csv(row.getTeacherLastName()));
+            out.write(',');
+            out.write(String.valueOf(row.getUserId()));
+            out.write(',');
+            out.write(csv(row.getUserFirstName()));
+            out.write(',');
+            out.write(csv(row.getUserLastName()));
+            out.write(',');
+            out.write(csv(row.getUserEmail()));
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // RFC 4180: quote fields holding a separator, a quote or a line break, doubling inner quotes
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeJson(JsonGenerator json, AttendanceDto row) {
+        try {
+            json.writeStartObject();
+            json.writeNumberField("sessionId", row.getSessionId());
+            json.writeStringField("sessionName", row.getSessionName());
+            json.writeStringField("sessionDate", row.getSessionDate() != null ? row.getSessionDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : null);
+            json.writeStringField("teacherFirstName", row.getTeacherFirstName());
+            json.writeStringField("teacherLastName", row.getTeacherLastName());
+            json.writeNumberField("userId", row.getUserId());
+            json.writeStringField("userFirstName", row.getUserFirstName());
+            json.writeStringField("userLastName", row.getUserLastName());
+            json.writeStringField("userEmail", row.getUserEmail());
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
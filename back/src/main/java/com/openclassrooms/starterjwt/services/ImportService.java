@@ -0,0 +1,453 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.importer.ImportKind;
+import com.openclassrooms.starterjwt.importer.ImportRecord;
+import com.openclassrooms.starterjwt.importer.RecordReader;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.response.ImportReport;
+import com.openclassrooms.starterjwt.repository.IdGeneratorRepository;
+import com.openclassrooms.starterjwt.repository.ImportJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users, teachers, sessions and participations from CSV or NDJSON, read as a stream and
+ * written in chunks. Each chunk is validated and checked against the studio's data as a whole,
+ * then inserted in one JDBC batch in a transaction of its own, which also records how far the
+ * import got: rerunning an import under the same id skips the rows already committed. Bad rows
+ * are reported and left out; they never fail the rest of their chunk.
+ */
+@Service
+public class ImportService {
+    // Passwords already hashed by the previous system are imported as they are
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    private static final List<String> USER_FIELDS = Arrays.asList("email", "firstName", "lastName", "password");
+
+    private static final List<String> TEACHER_FIELDS = Arrays.asList("firstName", "lastName");
+
+    private static final List<String> SESSION_FIELDS = Arrays.asList("name", "date", "teacher_id", "description");
+
+    private final ImportJdbcRepository importJdbcRepository;
+
+    private final IdGeneratorRepository idGeneratorRepository;
+
+    private final SessionService sessionService;
+
+    private final ResponseCache responseCache;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate chunkTransaction;
+
+    private final ExecutorService hashPool;
+
+    private final int chunkSize;
+
+    private final int maxErrors;
+
+    public ImportService(ImportJdbcRepository importJdbcRepository,
+                         IdGeneratorRepository idGeneratorRepository,
+                         SessionService sessionService,
+                         ResponseCache responseCache,
+                         PasswordEncoder passwordEncoder,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${oc.app.importChunkSize:1000}") int chunkSize,
+                         @Value("${oc.app.importHashThreads:4}") int hashThreads,
+                         @Value("${oc.app.importMaxErrors:1000}") int maxErrors) {
+        this.importJdbcRepository = importJdbcRepository;
+        this.idGeneratorRepository = idGeneratorRepository;
+        this.sessionService = sessionService;
+        this.responseCache = responseCache;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+
+        // Hashing is the slow part of a member import; the pool keeps it off the request threads' cores
+        CustomizableThreadFactory threads = new CustomizableThreadFactory("import-hash-");
+        threads.setDaemon(true);
+        this.hashPool = Executors.newFixedThreadPool(hashThreads, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.hashPool.shutdownNow();
+    }
+
+    /**
+     * Imports every record of {@code in} into the current studio. With an {@code importId},
+     * progress is recorded after each chunk and a rerun resumes after the last committed one.
+     * A chunk the database rejects stops the import; the report then says how far it got.
+     *
+     * @param chunkSize records per chunk, or null for the configured default
+     */
+    public ImportReport importRecords(ImportKind kind, DataFormat format, InputStream in, String importId,
+                                      Integer chunkSize) throws IOException {
+        int size = chunkSize != null ? chunkSize : this.chunkSize;
+        long committed = importId != null ? this.importJdbcRepository.findCommittedRows(importId, kind.name()) : 0;
+        ImportReport report = new ImportReport(kind.name().toLowerCase(Locale.ROOT), importId, committed);
+
+        try (RecordReader reader = RecordReader.open(format, in, this.objectMapper)) {
+            List<ImportRecord> chunk = new ArrayList<>(size);
+            ImportRecord record;
+            while ((record = reader.next()) != null) {
+                report.read();
+                if (record.getRow() <= committed) {
+                    report.skipped();
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() == size) {
+                    if (!importChunk(kind, chunk, importId, report)) {
+                        return report;
+                    }
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(kind, chunk, importId, report);
+            }
+        } finally {
+            if (report.getImported() > 0) {
+                imported(kind);
+            }
+        }
+        return report;
+    }
+
+    private boolean importChunk(ImportKind kind, List<ImportRecord> chunk, String importId, ImportReport report) {
+        List<ImportRecord> readable = new ArrayList<>(chunk.size());
+        for (ImportRecord record : chunk) {
+            if (record.getError() != null) {
+                fail(report, record, record.getError());
+            } else {
+                readable.add(record);
+            }
+        }
+
+        long lastRow = chunk.get(chunk.size() - 1).getRow();
+        try {
+            switch (kind) {
+                case USERS:
+                    importUsers(readable, importId, lastRow, report);
+                    break;
+                case TEACHERS:
+                    importTeachers(readable, importId, lastRow, report);
+                    break;
+                case SESSIONS:
+                    importSessions(readable, importId, lastRow, report);
+                    break;
+                default:
+                    importParticipations(readable, importId, lastRow, report);
+            }
+            return true;
+        } catch (DataAccessException e) {
+            report.aborted("rows " + chunk.get(0).getRow() + " to " + lastRow + " were rolled back: "
+                    + e.getMostSpecificCause().getMessage());
+            return false;
+        } finally {
+            report.chunkDone(this.maxErrors);
+        }
+    }
+
+    private void importUsers(List<ImportRecord> records, String importId, long lastRow, ImportReport report) {
+        Map<String, ImportRecord> byEmail = new HashMap<>();
+        List<ImportRecord> valid = new ArrayList<>();
+        for (ImportRecord record : records) {
+            SignupRequest request = new SignupRequest();
+            request.setEmail(trim(record.get("email")));
+            request.setFirstName(trim(record.get("firstname")));
+            request.setLastName(trim(record.get("lastname")));
+            request.setPassword(record.get("password"));
+            boolean hashed = request.getPassword() != null && BCRYPT.matcher(request.getPassword()).matches();
+
+            String error = violation(request, hashed ? USER_FIELDS.subList(0, 3) : USER_FIELDS);
+            if (error == null && parseAdmin(record.get("admin")) == null) {
+                error = "admin: must be true or false";
+            }
+            if (error == null && byEmail.putIfAbsent(request.getEmail().toLowerCase(Locale.ROOT), record) != null) {
+                error = "email: already in this import";
+            }
+            if (error != null) {
+                fail(report, record, error);
+            } else {
+                valid.add(record);
+            }
+        }
+
+        Map<String, Long> existing = findUserIds(valid);
+        List<ImportRecord> accepted = new ArrayList<>(valid.size());
+        List<CompletableFuture<String>> passwords = new ArrayList<>(valid.size());
+        for (ImportRecord record : valid) {
+            if (existing.containsKey(trim(record.get("email")).toLowerCase(Locale.ROOT))) {
+                fail(report, record, "email: is already taken");
+                continue;
+            }
+            String password = record.get("password");
+            passwords.add(BCRYPT.matcher(password).matches()
+                    ? CompletableFuture.completedFuture(password)
+                    : CompletableFuture.supplyAsync(() -> this.passwordEncoder.encode(password), this.hashPool));
+            accepted.add(record);
+        }
+
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            ImportRecord record = accepted.get(i);
+            users.add(User.builder()
+                    .email(trim(record.get("email")))
+                    .firstName(trim(record.get("firstname")))
+                    .lastName(trim(record.get("lastname")))
+                    .password(passwords.get(i).join())
+                    .admin(parseAdmin(record.get("admin")))
+                    .build());
+        }
+
+        long firstId = reserveIds("USERS", users.size());
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(firstId + i);
+        }
+        commit(ImportKind.USERS, importId, lastRow, users.size(), report,
+                now -> this.importJdbcRepository.insertUsers(users, now));
+    }
+
+    private void importTeachers(List<ImportRecord> records, String importId, long lastRow, ImportReport report) {
+        List<Teacher> teachers = new ArrayList<>(records.size());
+        for (ImportRecord record : records) {
+            TeacherDto teacher = new TeacherDto();
+            teacher.setFirstName(trim(record.get("firstname")));
+            teacher.setLastName(trim(record.get("lastname")));
+
+            String error = violation(teacher, TEACHER_FIELDS);
+            if (error != null) {
+                fail(report, record, error);
+            } else {
+                teachers.add(Teacher.builder().firstName(teacher.getFirstName()).lastName(teacher.getLastName()).build());
+            }
+        }
+
+        long firstId = reserveIds("TEACHERS", teachers.size());
+        for (int i = 0; i < teachers.size(); i++) {
+            teachers.get(i).setId(firstId + i);
+        }
+        commit(ImportKind.TEACHERS, importId, lastRow, teachers.size(), report,
+                now -> this.importJdbcRepository.insertTeachers(teachers, now));
+    }
+
+    private void importSessions(List<ImportRecord> records, String importId, long lastRow, ImportReport report) {
+        Map<ImportRecord, SessionDto> parsed = new HashMap<>();
+        List<ImportRecord> valid = new ArrayList<>();
+        for (ImportRecord record : records) {
+            SessionDto session = new SessionDto();
+            session.setName(trim(record.get("name")));
+            session.setDescription(record.get("description"));
+
+            String error = null;
+            try {
+                session.setDate(parseDate(record.get("date")));
+                session.setTeacher_id(parseId(record.get("teacherid")));
+            } catch (DateTimeParseException e) {
+                error = "date: must be an ISO date or date-time";
+            } catch (NumberFormatException e) {
+                error = "teacher_id: must be a number";
+            }
+            if (error == null) {
+                error = violation(session, SESSION_FIELDS);
+            }
+            if (error != null) {
+                fail(report, record, error);
+            } else {
+                parsed.put(record, session);
+                valid.add(record);
+            }
+        }
+
+        Set<Long> teachers = this.importJdbcRepository.findTeacherIds(
+                valid.stream().map(record -> parsed.get(record).getTeacher_id()).collect(Collectors.toSet()));
+        List<SessionDto> sessions = new ArrayList<>(valid.size());
+        for (ImportRecord record : valid) {
+            SessionDto session = parsed.get(record);
+            if (!teachers.contains(session.getTeacher_id())) {
+                fail(report, record, "teacher_id: no such teacher");
+            } else {
+                sessions.add(session);
+            }
+        }
+
+        long firstId = reserveIds("SESSIONS", sessions.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            sessions.get(i).setId(firstId + i);
+        }
+        commit(ImportKind.SESSIONS, importId, lastRow, sessions.size(), report,
+                now -> this.importJdbcRepository.insertSessions(sessions, now));
+    }
+
+    private void importParticipations(List<ImportRecord> records, String importId, long lastRow, ImportReport report) {
+        Map<ImportRecord, Long> sessionIds = new HashMap<>();
+        List<ImportRecord> valid = new ArrayList<>();
+        for (ImportRecord record : records) {
+            try {
+                Long sessionId = parseId(record.get("sessionid"));
+                if (sessionId == null) {
+                    fail(report, record, "session_id: must not be null");
+                } else if (trim(record.get("email")) == null) {
+                    fail(report, record, "email: must not be blank");
+                } else {
+                    sessionIds.put(record, sessionId);
+                    valid.add(record);
+                }
+            } catch (NumberFormatException e) {
+                fail(report, record, "session_id: must be a number");
+            }
+        }
+
+        Set<Long> sessions = this.importJdbcRepository.findSessionIds(new HashSet<>(sessionIds.values()));
+        Map<String, Long> users = findUserIds(valid);
+        Set<List<Long>> pairs = this.importJdbcRepository.findParticipations(sessions);
+        List<List<Long>> participations = new ArrayList<>(valid.size());
+        for (ImportRecord record : valid) {
+            Long sessionId = sessionIds.get(record);
+            Long userId = users.get(trim(record.get("email")).toLowerCase(Locale.ROOT));
+            if (!sessions.contains(sessionId)) {
+                fail(report, record, "session_id: no such session");
+            } else if (userId == null) {
+                fail(report, record, "email: no such user");
+            } else if (!pairs.add(Arrays.asList(sessionId, userId))) {
+                fail(report, record, "already participates in this session");
+            } else {
+                participations.add(Arrays.asList(sessionId, userId));
+            }
+        }
+
+        commit(ImportKind.PARTICIPATIONS, importId, lastRow, participations.size(), report,
+                now -> this.importJdbcRepository.insertParticipations(participations));
+    }
+
+    // Keyed by lower-cased email, as the unique index compares them on MySQL
+    private Map<String, Long> findUserIds(List<ImportRecord> records) {
+        Set<String> emails = records.stream().map(record -> trim(record.get("email"))).collect(Collectors.toSet());
+        Map<String, Long> ids = new HashMap<>();
+        this.importJdbcRepository.findUserIds(emails).forEach((email, id) -> ids.put(email.toLowerCase(Locale.ROOT), id));
+        return ids;
+    }
+
+    private long reserveIds(String sequence, int count) {
+        return count > 0 ? this.idGeneratorRepository.reserve(sequence, count) : 0;
+    }
+
+    private void commit(ImportKind kind, String importId, long lastRow, int count, ImportReport report,
+                        Consumer<Timestamp> insert) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        this.chunkTransaction.executeWithoutResult(status -> {
+            if (count > 0) {
+                insert.accept(now);
+            }
+            if (importId != null) {
+                this.importJdbcRepository.saveCommittedRows(importId, kind.name(), lastRow, now);
+            }
+        });
+        report.committed(count, lastRow);
+    }
+
+    private void imported(ImportKind kind) {
+        if (kind == ImportKind.TEACHERS) {
+            this.responseCache.invalidate(ResponseCache.TEACHERS);
+        } else if (kind != ImportKind.USERS) {
+            this.sessionService.sessionsChangedInBulk();
+        }
+    }
+
+    private void fail(ImportReport report, ImportRecord record, String message) {
+        report.failed(record.getRow(), message);
+    }
+
+    // The first broken constraint, in field order, so that a row always gets the same message
+    private <T> String violation(T value, List<String> fields) {
+        for (String field : fields) {
+            Set<ConstraintViolation<T>> violations = this.validator.validateProperty(value, field);
+            if (!violations.isEmpty()) {
+                return field + ": " + violations.stream().map(ConstraintViolation::getMessage).sorted()
+                        .collect(Collectors.joining(", "));
+            }
+        }
+        return null;
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : null;
+    }
+
+    private static Boolean parseAdmin(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Boolean.FALSE;
+        }
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private static Long parseId(String value) {
+        return value != null && !value.trim().isEmpty() ? Long.valueOf(value.trim()) : null;
+    }
+
+    private static Date parseDate(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String date = value.trim();
+        LocalDateTime dateTime = date.length() == 10 ? LocalDate.parse(date).atStartOfDay() : LocalDateTime.parse(date);
+        return Timestamp.valueOf(dateTime);
+    }
+}
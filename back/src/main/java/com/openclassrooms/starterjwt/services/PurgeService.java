@@ -0,0 +1,148 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.datasource.TenantRoutingDataSource;
+import com.openclassrooms.starterjwt.repository.PurgeJdbcRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Deleting a user or a session only marks its row, whatever history it has. This job removes the
+ * marked rows and their bookings in the background, in batches of {@code oc.app.purgeBatchSize}
+ * rows with a pause between them, each batch committed on its own.
+ */
+@Service
+public class PurgeService {
+    private static final Logger logger = LoggerFactory.getLogger(PurgeService.class);
+
+    private final PurgeJdbcRepository purgeJdbcRepository;
+
+    private final ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource;
+
+    private final int batchSize;
+
+    private final long pauseMs;
+
+    private final ScheduledExecutorService purges;
+
+    public PurgeService(PurgeJdbcRepository purgeJdbcRepository,
+                        ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource,
+                        @Value("${oc.app.purgeBatchSize:500}") int batchSize,
+                        @Value("${oc.app.purgePauseMs:50}") long pauseMs,
+                        @Value("${oc.app.purgeIntervalMs:60000}") long intervalMs,
+                        @Value("${oc.app.backgroundJobs:true}") boolean backgroundJobs) {
+        this.purgeJdbcRepository = purgeJdbcRepository;
+        this.tenantRoutingDataSource = tenantRoutingDataSource;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+
+        this.purges = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("purge-"));
+        if (backgroundJobs) {
+            this.purges.scheduleWithFixedDelay(this::purgeAllQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.purges.shutdownNow();
+    }
+
+    /**
+     * Removes every deleted user and session, with their bookings, from every database. Returns
+     * the number of rows removed.
+     */
+    public int purgeAll() {
+        List<String> databases = new ArrayList<>();
+        databases.add(TenantContext.DEFAULT);
+        this.tenantRoutingDataSource.ifAvailable(routing -> databases.addAll(routing.getDedicated().keySet()));
+
+        int removed = 0;
+        for (String database : databases) {
+            removed += TenantContext.callAs(database, this::purgeDatabase);
+        }
+        return removed;
+    }
+
+    private int purgeDatabase() {
+        return this.purgeBookings(this.purgeJdbcRepository::findDeletedSessionIds,
+                        this.purgeJdbcRepository::deleteParticipationsOfSessions)
+                + this.purgeBookings(this.purgeJdbcRepository::findDeletedUserIds,
+                        this.purgeJdbcRepository::deleteParticipationsOfUsers,
+                        this.purgeJdbcRepository::deleteArchivedParticipationsOfUsers)
+                + this.drain(this.purgeJdbcRepository::deleteSessions)
+                + this.drain(this.purgeJdbcRepository::deleteUsers);
+    }
+
+    // Walks the deleted rows a batch of ids at a time and drains the bookings of each batch
+    private int purgeBookings(DeletedIds deletedIds, BookingBatch... deletes) {
+        int removed = 0;
+        List<Long> ids = deletedIds.find(0, this.batchSize);
+        while (!ids.isEmpty()) {
+            List<Long> batch = ids;
+            for (BookingBatch delete : deletes) {
+                removed += this.drain(limit -> delete.delete(batch, limit));
+            }
+            if (ids.size() < this.batchSize || !this.pause()) {
+                break;
+            }
+            ids = deletedIds.find(ids.get(ids.size() - 1), this.batchSize);
+        }
+        return removed;
+    }
+
+    // Runs batches until one comes back short
+    private int drain(IntUnaryOperator batch) {
+        int removed = 0;
+        int count;
+        do {
+            count = batch.applyAsInt(this.batchSize);
+            removed += count;
+        } while (count == this.batchSize && this.pause());
+        return removed;
+    }
+
+    // Leaves room for requests between batches; false once the job is shut down
+    private boolean pause() {
+        try {
+            Thread.sleep(this.pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // An exception would cancel every later run of the job
+    private void purgeAllQuietly() {
+        try {
+            int removed = this.purgeAll();
+            if (removed > 0) {
+                logger.info("Purged {} deleted rows", removed);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Purging deleted rows failed", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface DeletedIds {
+        List<Long> find(long afterId, int limit);
+    }
+
+    @FunctionalInterface
+    private interface BookingBatch {
+        int delete(List<Long> ids, int limit);
+    }
+}
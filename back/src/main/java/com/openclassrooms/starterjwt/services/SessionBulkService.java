@@ -0,0 +1,75 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.payload.response.BulkSessionResponse;
+import com.openclassrooms.starterjwt.repository.SessionBulkJdbcRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Admin operations on every session matching a filter: each runs as a few set-based statements
+ * in one transaction, instead of loading and saving the sessions one by one, and drops the
+ * cached session lists once.
+ */
+@Service
+public class SessionBulkService {
+    private final SessionBulkJdbcRepository sessionBulkJdbcRepository;
+
+    private final TeacherRepository teacherRepository;
+
+    private final SessionService sessionService;
+
+    public SessionBulkService(SessionBulkJdbcRepository sessionBulkJdbcRepository,
+                              TeacherRepository teacherRepository,
+                              SessionService sessionService) {
+        this.sessionBulkJdbcRepository = sessionBulkJdbcRepository;
+        this.teacherRepository = teacherRepository;
+        this.sessionService = sessionService;
+    }
+
+    @Transactional
+    public BulkSessionResponse reassign(SessionFilter filter, Long substituteId) {
+        if (filter.getTeacherId() == null || filter.getTeacherId().equals(substituteId)) {
+            throw new BadRequestException();
+        }
+        this.teacherRepository.findById(substituteId).orElseThrow(BadRequestException::new);
+
+        int sessions = this.sessionBulkJdbcRepository.reassign(filter, substituteId, now());
+        return this.changed(sessions, 0);
+    }
+
+    @Transactional
+    public BulkSessionResponse shift(SessionFilter filter, Duration by) {
+        if (by.isZero() || by.getNano() != 0) {
+            throw new BadRequestException();
+        }
+
+        int sessions = this.sessionBulkJdbcRepository.shift(filter, by.getSeconds(), now());
+        return this.changed(sessions, 0);
+    }
+
+    // Bookings are counted while the sessions are still visible; the purge job removes both later
+    @Transactional
+    public BulkSessionResponse delete(SessionFilter filter) {
+        int participations = this.sessionBulkJdbcRepository.countParticipations(filter);
+        int sessions = this.sessionBulkJdbcRepository.delete(filter, now());
+        return this.changed(sessions, participations);
+    }
+
+    private BulkSessionResponse changed(int sessions, int participations) {
+        if (sessions > 0) {
+            this.sessionService.sessionsChangedInBulk();
+        }
+        return new BulkSessionResponse(sessions, participations);
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,294 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.datasource.TenantRoutingDataSource;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.repository.IdGeneratorRepository;
+import com.openclassrooms.starterjwt.repository.SessionSeriesJdbcRepository;
+import com.openclassrooms.starterjwt.repository.SessionSeriesRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recurring sessions. A series writes its occurrences as plain sessions up to a horizon, in one
+ * batch, and a background job moves the horizon forward as time passes. Editing or cancelling a
+ * series changes all of its upcoming occurrences in a single statement; past ones are left as
+ * they were.
+ */
+@Service
+public class SessionSeriesService {
+    private static final Logger logger = LoggerFactory.getLogger(SessionSeriesService.class);
+
+    private final SessionSeriesRepository sessionSeriesRepository;
+
+    private final SessionSeriesJdbcRepository sessionSeriesJdbcRepository;
+
+    private final IdGeneratorRepository idGeneratorRepository;
+
+    private final SessionService sessionService;
+
+    private final ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final long horizonDays;
+
+    private final ScheduledExecutorService extensions;
+
+    public SessionSeriesService(SessionSeriesRepository sessionSeriesRepository,
+                                SessionSeriesJdbcRepository sessionSeriesJdbcRepository,
+                                IdGeneratorRepository idGeneratorRepository,
+                                SessionService sessionService,
+                                ObjectProvider<TenantRoutingDataSource> tenantRoutingDataSource,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${oc.app.seriesHorizonDays:90}") long horizonDays,
+                                @Value("${oc.app.seriesExtendIntervalMs:3600000}") long extendIntervalMs,
+                                @Value("${oc.app.backgroundJobs:true}") boolean backgroundJobs) {
+        this.sessionSeriesRepository = sessionSeriesRepository;
+        this.sessionSeriesJdbcRepository = sessionSeriesJdbcRepository;
+        this.idGeneratorRepository = idGeneratorRepository;
+        this.sessionService = sessionService;
+        this.tenantRoutingDataSource = tenantRoutingDataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonDays = horizonDays;
+
+        // The first run waits a full interval, as series are written up to the horizon when created
+        this.extensions = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("series-extend-"));
+        if (backgroundJobs) {
+            this.extensions.scheduleWithFixedDelay(this::extendAllQuietly, extendIntervalMs, extendIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.extensions.shutdownNow();
+    }
+
+    @Transactional
+    public SessionSeries create(SessionSeries series) {
+        checkRule(series);
+        series.setId(null);
+        series.setMaterializedUntil(null);
+        this.sessionSeriesRepository.saveAndFlush(series);
+
+        if (this.materialize(series, this.horizon()) > 0) {
+            this.sessionService.sessionsChangedInBulk();
+        }
+        return series;
+    }
+
+    @Transactional(readOnly = true)
+    public SessionSeries getById(Long id) {
+        return this.sessionSeriesRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * Applies the template fields and the end date of {@code changes} to the series and to every
+     * occurrence from now on. The rule itself never changes; cancel the series and start a new one.
+     */
+    @Transactional
+    public SessionSeries update(Long id, SessionSeries changes, Long expectedVersion) {
+        SessionSeries current = this.sessionSeriesRepository.findForUpdateById(id).orElseThrow(NotFoundException::new);
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            throw new ConflictException(current.getVersion());
+        }
+
+        current.setName(changes.getName())
+                .setDescription(changes.getDescription())
+                .setTeacher(changes.getTeacher());
+        LocalDate endsOn = changes.getEndsOn();
+        boolean shortened = endsOn != null && (current.getEndsOn() == null || endsOn.isBefore(current.getEndsOn()));
+        current.setEndsOn(endsOn);
+        this.sessionSeriesRepository.flush();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        this.sessionSeriesJdbcRepository.updateUpcoming(current, LocalDateTime.now(), now);
+        if (shortened) {
+            this.truncate(current, endsOn.plusDays(1).atStartOfDay(), now);
+        }
+        this.materialize(current, this.horizon());
+
+        this.sessionService.sessionsChangedInBulk();
+        return current;
+    }
+
+    /**
+     * Removes every occurrence from {@code from} on, from now when null, and ends the series the
+     * day before. Returns the number of occurrences removed.
+     */
+    @Transactional
+    public int cancel(Long id, LocalDate from) {
+        SessionSeries series = this.sessionSeriesRepository.findForUpdateById(id).orElseThrow(NotFoundException::new);
+        LocalDateTime start = from != null ? from.atStartOfDay() : LocalDateTime.now();
+
+        int removed = this.truncate(series, start, Timestamp.valueOf(LocalDateTime.now()));
+        LocalDate endsOn = start.toLocalDate().minusDays(1);
+        if (series.getEndsOn() == null || endsOn.isBefore(series.getEndsOn())) {
+            series.setEndsOn(endsOn);
+        }
+
+        this.sessionService.sessionsChangedInBulk();
+        return removed;
+    }
+
+    /**
+     * Writes the occurrences every series of every studio needs to reach the horizon. Each series
+     * is extended in a transaction of its own, under a lock on its row. Returns the number written.
+     */
+    public int extendAll() {
+        LocalDateTime until = this.horizon();
+        List<String> databases = new ArrayList<>();
+        databases.add(TenantContext.DEFAULT);
+        this.tenantRoutingDataSource.ifAvailable(routing -> databases.addAll(routing.getDedicated().keySet()));
+
+        int written = 0;
+        for (String database : databases) {
+            List<String> studios = TenantContext.callAs(database, () -> this.sessionSeriesJdbcRepository.findStudiosToExtend(until));
+            for (String studio : studios) {
+                written += TenantContext.callAs(studio, () -> this.extendStudio(until));
+            }
+        }
+        return written;
+    }
+
+    private int extendStudio(LocalDateTime until) {
+        int written = 0;
+        for (Long id : this.sessionSeriesJdbcRepository.findSeriesToExtend(until)) {
+            written += this.transactionTemplate.execute(status -> this.sessionSeriesRepository.findForUpdateById(id)
+                    .map(series -> this.materialize(series, until))
+                    .orElse(0));
+        }
+        if (written > 0) {
+            this.sessionService.sessionsChangedInBulk();
+        }
+        return written;
+    }
+
+    // An exception would cancel every later run of the job
+    private void extendAllQuietly() {
+        try {
+            int written = this.extendAll();
+            if (written > 0) {
+                logger.info("Wrote {} session series occurrences", written);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Extending session series failed", e);
+        }
+    }
+
+    // Writes the occurrences after materializedUntil up to until, and no further than the end date
+    private int materialize(SessionSeries series, LocalDateTime until) {
+        LocalDateTime last = series.getEndsOn() != null && series.getEndsOn().atTime(23, 59, 59).isBefore(until)
+                ? series.getEndsOn().atTime(23, 59, 59)
+                : until;
+        List<LocalDateTime> dates = occurrences(series, series.getMaterializedUntil(), last);
+
+        if (!dates.isEmpty()) {
+            long firstId = this.idGeneratorRepository.reserve("SESSIONS", dates.size());
+            this.sessionSeriesJdbcRepository.insertOccurrences(series, dates, firstId, Timestamp.valueOf(LocalDateTime.now()));
+        }
+        if (series.getMaterializedUntil() == null || last.isAfter(series.getMaterializedUntil())) {
+            series.setMaterializedUntil(last);
+        }
+        return dates.size();
+    }
+
+    private int truncate(SessionSeries series, LocalDateTime from, Timestamp now) {
+        int removed = this.sessionSeriesJdbcRepository.deleteUpcoming(series.getId(), from, now);
+        LocalDateTime before = from.minusSeconds(1);
+        if (series.getMaterializedUntil() != null && series.getMaterializedUntil().isAfter(before)) {
+            series.setMaterializedUntil(before);
+        }
+        return removed;
+    }
+
+    private LocalDateTime horizon() {
+        return LocalDate.now().plusDays(this.horizonDays).atTime(23, 59, 59);
+    }
+
+    private static void checkRule(SessionSeries series) {
+        if (series.getFrequency() == null || series.getStartsAt() == null || series.getInterval() < 1
+                || series.getFrequency() == SessionSeries.Frequency.DAILY && series.getDaysOfWeek() != null
+                || series.getEndsOn() != null && series.getEndsOn().isBefore(start(series).toLocalDate())) {
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * The occurrences of a series after {@code after}, or from its start when null, up to
+     * {@code last}, both in date order and at the time of day of the first one.
+     */
+    static List<LocalDateTime> occurrences(SessionSeries series, LocalDateTime after, LocalDateTime last) {
+        LocalDateTime start = start(series);
+        LocalDateTime from = after != null && after.isAfter(start) ? after : null;
+        List<LocalDateTime> dates = new ArrayList<>();
+        int interval = series.getInterval();
+
+        if (series.getFrequency() == SessionSeries.Frequency.DAILY) {
+            long skipped = from != null ? ChronoUnit.DAYS.between(start, from) / interval : 0;
+            for (LocalDateTime date = start.plusDays(skipped * interval); !date.isAfter(last); date = date.plusDays(interval)) {
+                if (from == null || date.isAfter(from)) {
+                    dates.add(date);
+                }
+            }
+            return dates;
+        }
+
+        Set<DayOfWeek> days = days(series, start);
+        LocalTime time = start.toLocalTime();
+        LocalDate firstWeek = start.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long skipped = from != null ? ChronoUnit.WEEKS.between(firstWeek, from.toLocalDate()) / interval : 0;
+        for (LocalDate week = firstWeek.plusWeeks(skipped * interval); !week.atStartOfDay().isAfter(last); week = week.plusWeeks(interval)) {
+            for (DayOfWeek day : days) {
+                LocalDateTime date = week.plusDays(day.ordinal()).atTime(time);
+                if (date.isBefore(start) || date.isAfter(last) || from != null && !date.isAfter(from)) {
+                    continue;
+                }
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    private static LocalDateTime start(SessionSeries series) {
+        return new Timestamp(series.getStartsAt().getTime()).toLocalDateTime();
+    }
+
+    private static Set<DayOfWeek> days(SessionSeries series, LocalDateTime start) {
+        if (series.getDaysOfWeek() == null || series.getDaysOfWeek().isEmpty()) {
+            return Collections.singleton(start.getDayOfWeek());
+        }
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : series.getDaysOfWeek().split(",")) {
+            days.add(DayOfWeek.valueOf(day));
+        }
+        return days;
+    }
+}
@@ -1,14 +1,47 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.cache.RefreshAheadCache;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import com.openclassrooms.starterjwt.cache.SingleFlight;
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.SessionDetailDto;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.events.SessionEvent;
+import com.openclassrooms.starterjwt.events.SessionEventOutbox;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionDeletion;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+import com.openclassrooms.starterjwt.repository.SessionDeletionRepository;
+import com.openclassrooms.starterjwt.repository.SessionJdbcRepository;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.validation.Validator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,34 +50,232 @@ public class SessionService {
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final TeacherRepository teacherRepository;
+
+    private final SessionDeletionRepository sessionDeletionRepository;
+
+    private final SessionJdbcRepository sessionJdbcRepository;
+
+    private final ResponseCache responseCache;
+
+    private final SessionEventOutbox eventOutbox;
+
+    private final RefreshAheadCache<String, List<SessionDto>> sessionList;
+
+    private final SingleFlight<String, SessionDto> sessionReads;
+
+    // Looked up when used: the mapper needs the user service, which needs this one
+    private final ObjectProvider<SessionMapper> sessionMapper;
+
+    private final long tombstoneRetentionDays;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public SessionService(SessionRepository sessionRepository,
+                          UserRepository userRepository,
+                          TeacherRepository teacherRepository,
+                          SessionDeletionRepository sessionDeletionRepository,
+                          SessionJdbcRepository sessionJdbcRepository,
+                          ResponseCache responseCache,
+                          SessionEventOutbox eventOutbox,
+                          TaskExecutor taskExecutor,
+                          ObjectMapper objectMapper,
+                          Validator validator,
+                          ObjectProvider<SessionMapper> sessionMapper,
+                          @Value("${oc.app.sessionReadTimeoutMs:2000}") long readTimeoutMs,
+                          @Value("${oc.app.sessionListTtlMs:30000}") long listTtlMs,
+                          @Value("${oc.app.sessionListRefreshAfterMs:24000}") long listRefreshAfterMs,
+                          @Value("${oc.app.sessionTombstoneRetentionDays:30}") long tombstoneRetentionDays) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.teacherRepository = teacherRepository;
+        this.sessionDeletionRepository = sessionDeletionRepository;
+        this.sessionJdbcRepository = sessionJdbcRepository;
+        this.responseCache = responseCache;
+        this.eventOutbox = eventOutbox;
+        this.sessionList = new RefreshAheadCache<>(listTtlMs, listRefreshAfterMs, readTimeoutMs, taskExecutor);
+        this.sessionReads = new SingleFlight<>(readTimeoutMs);
+        this.tombstoneRetentionDays = tombstoneRetentionDays;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.sessionMapper = sessionMapper;
     }
 
+    @Transactional
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        Session created = this.sessionRepository.save(session);
+        this.sessionsChanged(SessionEvent.created(created.getId(), participantCount(created)));
+        return created;
     }
 
+    // A single update however many bookings the session has; the purge job removes them later
+    @Transactional
     public void delete(Long id) {
-        this.sessionRepository.deleteById(id);
+        LocalDateTime now = LocalDateTime.now();
+        if (this.sessionRepository.softDelete(id, TenantContext.current(), now) == 0) {
+            throw new NotFoundException();
+        }
+
+        this.sessionDeletionRepository.save(SessionDeletion.builder().sessionId(id).deletedAt(now).build());
+        this.sessionDeletionRepository.deleteOlderThan(now.minusDays(this.tombstoneRetentionDays));
+        this.sessionsChanged(SessionEvent.deleted(id));
     }
 
-    public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+    // Cache hits and coalesced followers never open a transaction; each load runs in the repository's own.
+    // Loads are shared with every caller, so they read the primary rather than a lagging replica, and are
+    // kept as DTOs rather than detached entities. Refreshes run on the cache's executor, hence the studio
+    // is passed along explicitly
+    public List<SessionDto> findAll() {
+        String tenant = TenantContext.current();
+        return this.sessionList.get(tenant, () -> TenantContext.callAs(tenant, () -> ReplicaRoutingDataSource.onPrimary(
+                () -> Collections.unmodifiableList(this.sessionMapper.getObject().toDto(this.sessionRepository.findAllForList())))));
     }
 
+    // Same shape as findAll() mapped to DTOs, read without entities. The serialized list is shared, so it reads the primary
+    @Transactional(readOnly = true)
+    public List<SessionDto> findAllRows() {
+        return ReplicaRoutingDataSource.onPrimary(this.sessionJdbcRepository::findAll);
+    }
+
+    // Not cached, so the list may come from a replica
+    @Transactional(readOnly = true)
+    public void forEachForList(Consumer<Session> action) {
+        this.sessionRepository.forEachForList(action);
+    }
+
+    @Transactional(readOnly = true)
     public Session getById(Long id) {
-        return this.sessionRepository.findById(id).orElse(null);
+        return this.sessionRepository.findForDetailById(id).orElse(null);
+    }
+
+    // Concurrent reads of a session share one load, mapped to a DTO and handed to each caller as a copy
+    // of its own. Loads are shared with every caller, so they read the primary rather than a lagging replica
+    public SessionDto getDto(Long id) {
+        SessionDto session = this.sessionReads.load(TenantContext.current() + ":" + this.dataVersion() + ":" + id,
+                () -> ReplicaRoutingDataSource.onPrimary(() -> this.sessionRepository.findForDetailById(id)
+                        .map(this.sessionMapper.getObject()::toDto).orElse(null)));
+        return session != null ? this.sessionMapper.getObject().copy(session) : null;
+    }
+
+    // Cached as a shared response too, so it reads the primary
+    @Transactional(readOnly = true)
+    public List<Session> findAll(SessionFieldSet fieldSet) {
+        return ReplicaRoutingDataSource.onPrimary(() -> this.sessionRepository.findSparse(fieldSet, null));
     }
 
-    public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+    @Transactional(readOnly = true)
+    public Session getById(Long id, SessionFieldSet fieldSet) {
+        return this.sessionRepository.findSparse(fieldSet, id).stream().findFirst().orElse(null);
     }
 
+    @Transactional(readOnly = true)
+    public SessionDetailDto getDetail(Long id, Long userId) {
+        return this.sessionRepository.findDetail(id, userId).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Session> findUpdatedSince(LocalDateTime since) {
+        return this.sessionRepository.findDistinctByUpdatedAtGreaterThanEqual(since);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findDeletedSince(LocalDateTime since) {
+        return this.sessionDeletionRepository.findSessionIdsDeletedSince(since);
+    }
+
+    // Tombstones older than the retention window are pruned, so older tokens need a full resync
+    public boolean canSyncSince(LocalDateTime since) {
+        return since.isAfter(LocalDateTime.now().minusDays(this.tombstoneRetentionDays));
+    }
+
+    // Changes are copied onto the loaded session, so only modified columns are written and
+    // participants are only rewritten when given and actually different
+    @Transactional
+    public Session update(Long id, Session session, Long expectedVersion) {
+        Session current = this.sessionRepository.findForBookingById(id).orElseThrow(NotFoundException::new);
+        checkVersion(current, expectedVersion);
+
+        current.setName(session.getName())
+                .setDate(session.getDate())
+                .setDescription(session.getDescription())
+                .setTeacher(session.getTeacher());
+        if (session.getUsers() != null) {
+            replaceUsers(current, session.getUsers());
+        }
+
+        return this.saveChanges(current);
+    }
+
+    /**
+     * Applies a JSON Merge Patch (RFC 7396) to a session. Fields missing from the patch are left
+     * alone; {@code users} replaces the participant list and {@code null} empties it. Read-only
+     * fields are ignored, unknown fields and nulls for required fields are rejected.
+     */
+    @Transactional
+    public Session patch(Long id, JsonNode patch, Long expectedVersion) {
+        if (patch == null || !patch.isObject()) {
+            throw new BadRequestException();
+        }
+
+        Session current = this.sessionRepository.findForBookingById(id).orElseThrow(NotFoundException::new);
+        checkVersion(current, expectedVersion);
+
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "name":
+                    current.setName(requiredText(value));
+                    break;
+                case "description":
+                    current.setDescription(requiredText(value));
+                    break;
+                case "date":
+                    current.setDate(this.requiredDate(value));
+                    break;
+                case "teacher_id":
+                    current.setTeacher(this.teacherRepository.findById(requiredId(value)).orElseThrow(BadRequestException::new));
+                    break;
+                case "users":
+                    replaceUsers(current, this.resolveUsers(value));
+                    break;
+                case "id":
+                case "createdAt":
+                case "updatedAt":
+                case "version":
+                case "series_id":
+                    break;
+                default:
+                    throw new BadRequestException();
+            }
+        }
+
+        if (!this.validator.validate(current).isEmpty()) {
+            throw new BadRequestException();
+        }
+        return this.saveChanges(current);
+    }
+
+    @Transactional(readOnly = true)
+    public Long getVersion(Long id) {
+        return this.sessionRepository.findVersionById(id).orElse(null);
+    }
+
+    // Flushing here surfaces a concurrent edit as an optimistic locking failure and fills in the new version.
+    // The lazy description is loaded too, since callers map the session once the transaction is over
+    private Session saveChanges(Session session) {
+        this.sessionRepository.flush();
+        session.getDescription();
+        this.sessionsChanged(SessionEvent.updated(session.getId(), participantCount(session)));
+        return session;
+    }
+
+    @Transactional
     public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
+        Session session = this.sessionRepository.findForBookingById(id).orElse(null);
         User user = this.userRepository.findById(userId).orElse(null);
         if (session == null || user == null) {
             throw new NotFoundException();
@@ -56,12 +287,15 @@ public class SessionService {
         }
 
         session.getUsers().add(user);
+        session.setUpdatedAt(LocalDateTime.now());
 
         this.sessionRepository.save(session);
+        this.sessionsChanged(SessionEvent.occupancy(id, participantCount(session)));
     }
 
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
+        Session session = this.sessionRepository.findForBookingById(id).orElse(null);
         if (session == null) {
             throw new NotFoundException();
         }
@@ -72,7 +306,103 @@ public class SessionService {
         }
 
         session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+        session.setUpdatedAt(LocalDateTime.now());
 
         this.sessionRepository.save(session);
+        this.sessionsChanged(SessionEvent.occupancy(id, participantCount(session)));
+    }
+
+    /**
+     * For set-based writes made around the repositories, such as imports and series: drops the
+     * cached lists and tells clients to reload rather than describing each change.
+     */
+    public void sessionsChangedInBulk() {
+        this.sessionsChanged(SessionEvent.refresh());
+    }
+
+    // Reads started before a write are never shared with callers arriving after it
+    private long dataVersion() {
+        return this.responseCache.getVersion(ResponseCache.SESSIONS);
+    }
+
+    // The event is written with the change and relayed to subscribers once committed. This instance's
+    // caches are dropped right at commit instead, so its next read sees the write.
+    // Inside a transaction, caches are only invalidated once the write is visible to readers
+    private void sessionsChanged(SessionEvent event) {
+        this.eventOutbox.record(event);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateCaches();
+                }
+            });
+        } else {
+            this.invalidateCaches();
+        }
+    }
+
+    private void invalidateCaches() {
+        this.sessionList.invalidate();
+        this.responseCache.invalidate(ResponseCache.SESSIONS);
+    }
+
+    private static void checkVersion(Session session, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(session.getVersion())) {
+            throw new ConflictException(session.getVersion());
+        }
+    }
+
+    private static void replaceUsers(Session session, List<User> users) {
+        List<User> replacement = users != null ? users : Collections.emptyList();
+        Set<Long> currentIds = session.getUsers().stream().map(User::getId).collect(Collectors.toSet());
+        Set<Long> replacementIds = replacement.stream().map(User::getId).collect(Collectors.toSet());
+        if (!currentIds.equals(replacementIds)) {
+            session.setUsers(new ArrayList<>(replacement));
+        }
+    }
+
+    private List<User> resolveUsers(JsonNode value) {
+        if (value.isNull()) {
+            return Collections.emptyList();
+        }
+        if (!value.isArray()) {
+            throw new BadRequestException();
+        }
+
+        List<User> users = new ArrayList<>();
+        for (JsonNode userId : value) {
+            users.add(this.userRepository.findById(requiredId(userId)).orElseThrow(BadRequestException::new));
+        }
+        return users;
+    }
+
+    private Date requiredDate(JsonNode value) {
+        if (value.isNull()) {
+            throw new BadRequestException();
+        }
+        try {
+            return this.objectMapper.convertValue(value, Date.class);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    private static String requiredText(JsonNode value) {
+        if (!value.isTextual()) {
+            throw new BadRequestException();
+        }
+        return value.asText();
+    }
+
+    private static Long requiredId(JsonNode value) {
+        if (!value.isIntegralNumber() || !value.canConvertToLong()) {
+            throw new BadRequestException();
+        }
+        return value.asLong();
+    }
+
+    private static int participantCount(Session session) {
+        return session == null || session.getUsers() == null ? 0 : session.getUsers().size();
     }
 }
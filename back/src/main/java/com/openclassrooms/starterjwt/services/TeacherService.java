@@ -1,8 +1,12 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.TeacherJdbcRepository;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -10,14 +14,26 @@ import java.util.List;
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final TeacherJdbcRepository teacherJdbcRepository;
+
+    public TeacherService(TeacherRepository teacherRepository, TeacherJdbcRepository teacherJdbcRepository) {
         this.teacherRepository = teacherRepository;
+        this.teacherJdbcRepository = teacherJdbcRepository;
     }
 
+    // The lists are cached as shared responses, so they read the primary: a lagging replica's list
+    // would be served to every client until the next write
+    @Transactional(readOnly = true)
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return ReplicaRoutingDataSource.onPrimary(this.teacherRepository::findAll);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TeacherDto> findAllRows() {
+        return ReplicaRoutingDataSource.onPrimary(this.teacherJdbcRepository::findAll);
     }
 
+    @Transactional(readOnly = true)
     public Teacher findById(Long id) {
         return this.teacherRepository.findById(id).orElse(null);
     }
@@ -1,21 +1,36 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final SessionService sessionService;
+
+    public UserService(UserRepository userRepository, SessionService sessionService) {
         this.userRepository = userRepository;
+        this.sessionService = sessionService;
     }
 
+    // A single update however long the user's history; the purge job removes their bookings later.
+    // They disappear from participant lists at once, hence the session caches are dropped
+    @Transactional
     public void delete(Long id) {
-        this.userRepository.deleteById(id);
+        if (this.userRepository.softDelete(id, TenantContext.current(), LocalDateTime.now()) == 0) {
+            throw new NotFoundException();
+        }
+        this.sessionService.sessionsChangedInBulk();
     }
 
+    @Transactional(readOnly = true)
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
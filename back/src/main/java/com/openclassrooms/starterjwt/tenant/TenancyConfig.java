@@ -0,0 +1,56 @@
+package com.openclassrooms.starterjwt.tenant;
+
+import org.hibernate.MultiTenancyStrategy;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+@Configuration
+public class TenancyConfig {
+    @Bean
+    public HibernatePropertiesCustomizer tenantHibernateProperties(DataSource dataSource) {
+        return properties -> {
+            properties.put(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.DATABASE);
+            properties.put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, new TenantConnectionProvider(dataSource));
+            properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new CurrentTenantIdentifierResolver() {
+                @Override
+                public String resolveCurrentTenantIdentifier() {
+                    return TenantContext.current();
+                }
+
+                @Override
+                public boolean validateExistingCurrentSessions() {
+                    return true;
+                }
+            });
+        };
+    }
+
+    // Every entity manager, transactional or not, only sees the current studio's rows
+    @Bean
+    public static BeanPostProcessor studioFilterInitializer() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean) {
+                    ((AbstractEntityManagerFactoryBean) bean).setEntityManagerInitializer(TenancyConfig::enableStudioFilter);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void enableStudioFilter(EntityManager entityManager) {
+        entityManager.unwrap(Session.class)
+                .enableFilter(TenantContext.FILTER)
+                .setParameter(TenantContext.FILTER_PARAMETER, TenantContext.current());
+    }
+}
@@ -0,0 +1,60 @@
+package com.openclassrooms.starterjwt.tenant;
+
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Gives Hibernate its connections from the application data source, which already routes on
+ * {@link TenantContext}. Hibernate's own tenant id only keeps per-studio state apart, such as
+ * the blocks of ids handed out by the table generators.
+ */
+public class TenantConnectionProvider implements MultiTenantConnectionProvider {
+    private final DataSource dataSource;
+
+    public TenantConnectionProvider(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getAnyConnection() throws SQLException {
+        return this.dataSource.getConnection();
+    }
+
+    @Override
+    public void releaseAnyConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public Connection getConnection(String tenantIdentifier) throws SQLException {
+        if (!tenantIdentifier.equals(TenantContext.current())) {
+            throw new IllegalStateException("Session opened for studio " + tenantIdentifier
+                    + " used while acting for " + TenantContext.current());
+        }
+        return this.dataSource.getConnection();
+    }
+
+    @Override
+    public void releaseConnection(String tenantIdentifier, Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return unwrapType.isInstance(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        return (T) this;
+    }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.tenant;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * The studio the current request acts for. Set from the JWT (or the {@code X-Studio} header
+ * before login) by the auth filter, and carried over explicitly to any other thread that
+ * works on the request's behalf. Code running outside a request acts for the default studio.
+ */
+public final class TenantContext {
+    public static final String DEFAULT = "default";
+
+    public static final String FILTER = "studio";
+
+    public static final String FILTER_PARAMETER = "studioId";
+
+    private static final Pattern VALID = Pattern.compile("[a-z0-9][a-z0-9-]{0,31}");
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT;
+    }
+
+    public static void set(String tenant) {
+        if (!isValid(tenant)) {
+            throw new IllegalArgumentException("Invalid studio id: " + tenant);
+        }
+        CURRENT.set(tenant);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static boolean isValid(String tenant) {
+        return tenant != null && VALID.matcher(tenant).matches();
+    }
+
+    public static <T> T callAs(String tenant, Supplier<T> work) {
+        String previous = CURRENT.get();
+        set(tenant);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    // Binds a task to the caller's studio, for work handed to another thread
+    public static <T> Callable<T> bind(Callable<T> work) {
+        String tenant = current();
+        return () -> {
+            String previous = CURRENT.get();
+            set(tenant);
+            try {
+                return work.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
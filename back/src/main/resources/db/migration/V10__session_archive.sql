@@ -0,0 +1,24 @@
+-- Finished sessions and their bookings, moved out of the live tables by the archive job. No foreign
+-- keys: teachers and users may go while their history stays
+CREATE TABLE `SESSIONS_ARCHIVE` (
+  `id` INT PRIMARY KEY,
+  `name` VARCHAR(50),
+  `description` VARCHAR(2000),
+  `date` TIMESTAMP,
+  `teacher_id` INT,
+  `series_id` INT,
+  `created_at` TIMESTAMP,
+  `updated_at` DATETIME,
+  `version` BIGINT NOT NULL DEFAULT 0,
+  `studio_id` VARCHAR(32) NOT NULL,
+  `archived_at` DATETIME NOT NULL
+);
+
+CREATE TABLE `PARTICIPATE_ARCHIVE` (
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  PRIMARY KEY (`session_id`, `user_id`)
+);
+
+CREATE INDEX `IDX_SESSIONS_ARCHIVE_STUDIO_DATE` ON `SESSIONS_ARCHIVE` (`studio_id`, `date`);
+CREATE INDEX `IDX_PARTICIPATE_ARCHIVE_USER_ID` ON `PARTICIPATE_ARCHIVE` (`user_id`);
@@ -0,0 +1,17 @@
+-- Session events, written in the transaction of the change they describe and relayed to subscribers once committed
+CREATE TABLE `OUTBOX` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `studio_id` VARCHAR(32) NOT NULL,
+  `type` VARCHAR(16) NOT NULL,
+  `payload` VARCHAR(1000) NOT NULL,
+  `created_at` DATETIME(3) NOT NULL
+);
+
+CREATE INDEX `IDX_OUTBOX_CREATED_AT` ON `OUTBOX` (`created_at`);
+
+-- The last event each relay handed to its subscribers
+CREATE TABLE `OUTBOX_CHECKPOINTS` (
+  `relay` VARCHAR(64) PRIMARY KEY,
+  `last_id` BIGINT NOT NULL,
+  `updated_at` DATETIME NOT NULL
+);
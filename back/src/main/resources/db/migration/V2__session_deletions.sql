@@ -0,0 +1,8 @@
+CREATE TABLE `SESSION_DELETIONS` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `deleted_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX `IDX_SESSIONS_UPDATED_AT` ON `SESSIONS` (`updated_at`);
+CREATE INDEX `IDX_SESSION_DELETIONS_DELETED_AT` ON `SESSION_DELETIONS` (`deleted_at`);
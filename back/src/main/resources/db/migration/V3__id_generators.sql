@@ -0,0 +1,15 @@
+CREATE TABLE `ID_GENERATORS` (
+  `sequence_name` VARCHAR(64) PRIMARY KEY,
+  `next_val` BIGINT NOT NULL
+);
+
+INSERT INTO ID_GENERATORS (sequence_name, next_val) SELECT 'TEACHERS', COALESCE(MAX(id), 0) + 1 FROM TEACHERS;
+INSERT INTO ID_GENERATORS (sequence_name, next_val) SELECT 'SESSIONS', COALESCE(MAX(id), 0) + 1 FROM SESSIONS;
+INSERT INTO ID_GENERATORS (sequence_name, next_val) SELECT 'USERS', COALESCE(MAX(id), 0) + 1 FROM USERS;
+
+-- Hibernate hands out these ids from ID_GENERATORS now; MySQL refuses to alter a referenced column with the checks on
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE `TEACHERS` MODIFY COLUMN `id` INT NOT NULL;
+ALTER TABLE `SESSIONS` MODIFY COLUMN `id` INT NOT NULL;
+ALTER TABLE `USERS` MODIFY COLUMN `id` INT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
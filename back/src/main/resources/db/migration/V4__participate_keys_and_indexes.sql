@@ -0,0 +1,29 @@
+-- Nothing kept these unique before: merge duplicate accounts into the oldest one with the same email,
+-- then drop repeated and incomplete participations, so the keys below cannot fail halfway
+CREATE TABLE `USERS_DUPLICATES` AS
+  SELECT u.`id` AS `duplicate_id`, k.`kept_id`
+  FROM `USERS` u
+  JOIN (SELECT `email`, MIN(`id`) AS `kept_id` FROM `USERS` WHERE `email` IS NOT NULL GROUP BY `email` HAVING COUNT(*) > 1) k
+    ON u.`email` = k.`email`
+  WHERE u.`id` <> k.`kept_id`;
+UPDATE `PARTICIPATE` SET `user_id` = (SELECT d.`kept_id` FROM `USERS_DUPLICATES` d WHERE d.`duplicate_id` = `PARTICIPATE`.`user_id`)
+  WHERE `user_id` IN (SELECT `duplicate_id` FROM `USERS_DUPLICATES`);
+DELETE FROM `USERS` WHERE `id` IN (SELECT `duplicate_id` FROM `USERS_DUPLICATES`);
+DROP TABLE `USERS_DUPLICATES`;
+
+DELETE FROM `PARTICIPATE` WHERE `session_id` IS NULL OR `user_id` IS NULL;
+CREATE TABLE `PARTICIPATE_DUPLICATES` AS
+  SELECT `session_id`, `user_id` FROM `PARTICIPATE` GROUP BY `session_id`, `user_id` HAVING COUNT(*) > 1;
+DELETE FROM `PARTICIPATE` WHERE EXISTS (SELECT 1 FROM `PARTICIPATE_DUPLICATES` d
+  WHERE d.`session_id` = `PARTICIPATE`.`session_id` AND d.`user_id` = `PARTICIPATE`.`user_id`);
+INSERT INTO `PARTICIPATE` (`session_id`, `user_id`) SELECT `session_id`, `user_id` FROM `PARTICIPATE_DUPLICATES`;
+DROP TABLE `PARTICIPATE_DUPLICATES`;
+
+ALTER TABLE `PARTICIPATE` MODIFY COLUMN `session_id` INT NOT NULL;
+ALTER TABLE `PARTICIPATE` MODIFY COLUMN `user_id` INT NOT NULL;
+ALTER TABLE `PARTICIPATE` ADD PRIMARY KEY (`session_id`, `user_id`);
+CREATE INDEX `IDX_PARTICIPATE_USER_ID` ON `PARTICIPATE` (`user_id`);
+
+CREATE INDEX `IDX_SESSIONS_DATE` ON `SESSIONS` (`date`);
+
+CREATE UNIQUE INDEX `UK_USERS_EMAIL` ON `USERS` (`email`);
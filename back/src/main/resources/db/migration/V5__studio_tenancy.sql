@@ -0,0 +1,13 @@
+ALTER TABLE `USERS` ADD COLUMN `studio_id` VARCHAR(32) NOT NULL DEFAULT 'default';
+ALTER TABLE `TEACHERS` ADD COLUMN `studio_id` VARCHAR(32) NOT NULL DEFAULT 'default';
+ALTER TABLE `SESSIONS` ADD COLUMN `studio_id` VARCHAR(32) NOT NULL DEFAULT 'default';
+ALTER TABLE `SESSION_DELETIONS` ADD COLUMN `studio_id` VARCHAR(32) NOT NULL DEFAULT 'default';
+
+-- The same email may sign up at several studios
+ALTER TABLE `USERS` DROP INDEX `UK_USERS_EMAIL`;
+CREATE UNIQUE INDEX `UK_USERS_STUDIO_EMAIL` ON `USERS` (`studio_id`, `email`);
+
+CREATE INDEX `IDX_TEACHERS_STUDIO` ON `TEACHERS` (`studio_id`);
+CREATE INDEX `IDX_SESSIONS_STUDIO_DATE` ON `SESSIONS` (`studio_id`, `date`);
+CREATE INDEX `IDX_SESSIONS_STUDIO_UPDATED_AT` ON `SESSIONS` (`studio_id`, `updated_at`);
+CREATE INDEX `IDX_SESSION_DELETIONS_STUDIO_DELETED_AT` ON `SESSION_DELETIONS` (`studio_id`, `deleted_at`);
@@ -0,0 +1,9 @@
+-- Rows of an import committed so far, so that a rerun with the same id resumes after them
+CREATE TABLE `IMPORT_PROGRESS` (
+  `studio_id` VARCHAR(32) NOT NULL,
+  `import_id` VARCHAR(64) NOT NULL,
+  `kind` VARCHAR(32) NOT NULL,
+  `committed_rows` BIGINT NOT NULL,
+  `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`studio_id`, `import_id`, `kind`)
+);
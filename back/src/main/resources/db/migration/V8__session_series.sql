@@ -0,0 +1,27 @@
+-- A recurrence rule on a template session; occurrences are ordinary sessions pointing back at it
+CREATE TABLE `SESSION_SERIES` (
+  `id` INT PRIMARY KEY,
+  `name` VARCHAR(50) NOT NULL,
+  `description` VARCHAR(2500) NOT NULL,
+  `teacher_id` INT,
+  `starts_at` DATETIME NOT NULL,
+  `frequency` VARCHAR(16) NOT NULL,
+  `interval_count` INT NOT NULL DEFAULT 1,
+  `days_of_week` VARCHAR(64),
+  `ends_on` DATE,
+  `materialized_until` DATETIME,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `version` BIGINT NOT NULL DEFAULT 0,
+  `studio_id` VARCHAR(32) NOT NULL DEFAULT 'default'
+);
+
+ALTER TABLE `SESSION_SERIES` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
+CREATE INDEX `IDX_SESSION_SERIES_STUDIO` ON `SESSION_SERIES` (`studio_id`);
+CREATE INDEX `IDX_SESSION_SERIES_MATERIALIZED_UNTIL` ON `SESSION_SERIES` (`materialized_until`);
+
+ALTER TABLE `SESSIONS` ADD COLUMN `series_id` INT;
+ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`series_id`) REFERENCES `SESSION_SERIES` (`id`);
+CREATE INDEX `IDX_SESSIONS_SERIES_DATE` ON `SESSIONS` (`series_id`, `date`);
+
+INSERT INTO ID_GENERATORS (sequence_name, next_val) VALUES ('SESSION_SERIES', 1);
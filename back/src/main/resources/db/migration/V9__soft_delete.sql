@@ -0,0 +1,12 @@
+-- Deleted users and sessions are hidden at once and removed later, with their bookings, by the purge job
+ALTER TABLE `USERS` ADD COLUMN `deleted_at` DATETIME;
+ALTER TABLE `SESSIONS` ADD COLUMN `deleted_at` DATETIME;
+
+CREATE INDEX `IDX_USERS_DELETED_AT` ON `USERS` (`deleted_at`);
+CREATE INDEX `IDX_SESSIONS_DELETED_AT` ON `SESSIONS` (`deleted_at`);
+
+-- Only live accounts hold their email, so it can sign up again straight away: `live` is NULL once
+-- deleted, and NULLs never clash in a unique index
+ALTER TABLE `USERS` ADD COLUMN `live` TINYINT AS (CASE WHEN `deleted_at` IS NULL THEN 1 END);
+ALTER TABLE `USERS` DROP INDEX `UK_USERS_STUDIO_EMAIL`;
+CREATE UNIQUE INDEX `UK_USERS_STUDIO_EMAIL` ON `USERS` (`studio_id`, `email`, `live`);
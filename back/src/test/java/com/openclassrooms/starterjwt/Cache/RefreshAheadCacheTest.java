@@ -0,0 +1,130 @@
+package com.openclassrooms.starterjwt.Cache;
+
+import com.openclassrooms.starterjwt.cache.RefreshAheadCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Unit tests for the refresh-ahead cache, driven by a manual clock
+// and an executor whose tasks run only when the test says so
+// =================================================================
+@DisplayName("RefreshAheadCache Unit Tests")
+public class RefreshAheadCacheTest {
+
+    private AtomicLong now;
+
+    private Queue<Runnable> background;
+
+    private AtomicInteger loads;
+
+    private RefreshAheadCache<String, Integer> cache;
+
+    private final Supplier<Integer> loader = () -> loads.incrementAndGet();
+
+    @BeforeEach
+    void setUp() {
+        // =================================================================
+        // 1000 ms TTL, refresh-ahead after 800 ms
+        // =================================================================
+        now = new AtomicLong();
+        background = new ArrayDeque<>();
+        loads = new AtomicInteger();
+        cache = new RefreshAheadCache<>(1000, 800, 1000, background::add, now::get);
+    }
+
+    @Test
+    @DisplayName("Should load once and serve from cache before the refresh point")
+    void get_Fresh_ServedFromCache() {
+        // =================================================================
+        // Act
+        // =================================================================
+        Integer first = cache.get("all", loader);
+        now.set(500);
+        Integer second = cache.get("all", loader);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, loads.get());
+        assertTrue(background.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should serve the old value while exactly one background reload runs")
+    void get_PastRefreshPoint_ServesStaleAndRefreshesOnce() {
+        // =================================================================
+        // Arrange - Warm the cache and move past the refresh point
+        // =================================================================
+        cache.get("all", loader);
+        now.set(900);
+
+        // =================================================================
+        // Act - Several readers arrive before the reload has run
+        // =================================================================
+        Integer first = cache.get("all", loader);
+        Integer second = cache.get("all", loader);
+
+        // =================================================================
+        // Assert - Both get the old value and only one reload is queued
+        // =================================================================
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, background.size());
+
+        background.poll().run();
+        assertEquals(2, cache.get("all", loader));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should reload synchronously once the entry has expired")
+    void get_Expired_LoadsSynchronously() {
+        // =================================================================
+        // Act
+        // =================================================================
+        cache.get("all", loader);
+        now.set(1500);
+        Integer value = cache.get("all", loader);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, value);
+        assertTrue(background.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should drop entries on invalidation and ignore reloads started before it")
+    void invalidate_DiscardsEntriesAndStaleReloads() {
+        // =================================================================
+        // Arrange - Queue a background reload, then invalidate
+        // =================================================================
+        cache.get("all", loader);
+        now.set(900);
+        cache.get("all", loader);
+        cache.invalidate();
+
+        // =================================================================
+        // Act - Next read loads fresh data, then the stale reload finishes
+        // =================================================================
+        Integer afterWrite = cache.get("all", loader);
+        background.poll().run();
+
+        // =================================================================
+        // Assert - The value loaded after the invalidation is kept
+        // =================================================================
+        assertEquals(2, afterWrite);
+        assertEquals(2, cache.get("all", loader));
+    }
+}
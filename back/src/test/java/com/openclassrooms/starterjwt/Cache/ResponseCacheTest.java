@@ -0,0 +1,121 @@
+package com.openclassrooms.starterjwt.Cache;
+
+import com.openclassrooms.starterjwt.cache.ResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Unit tests for the serialized response cache
+// =================================================================
+@DisplayName("ResponseCache Unit Tests")
+public class ResponseCacheTest {
+
+    private ResponseCache responseCache;
+
+    private AtomicInteger loads;
+
+    private List<String> payload;
+
+    @BeforeEach
+    void setUp() {
+        // =================================================================
+        // Build a cache over a plain Jackson mapper and a large enough
+        // payload for gzip to pay off
+        // =================================================================
+        responseCache = new ResponseCache(Jackson2ObjectMapperBuilder.json().build());
+        loads = new AtomicInteger();
+        payload = new ArrayList<>(Collections.nCopies(200, "Yoga session"));
+    }
+
+    @Test
+    @DisplayName("Should serialize once and reuse the bytes until invalidated")
+    void serve_ReusesBytesUntilInvalidated() {
+        // =================================================================
+        // Act - Serve the same route twice, invalidate, serve again
+        // =================================================================
+        ResponseEntity<byte[]> first = serve(null);
+        ResponseEntity<byte[]> second = serve(null);
+        responseCache.invalidate(ResponseCache.SESSIONS);
+        ResponseEntity<byte[]> third = serve(null);
+
+        // =================================================================
+        // Assert - The loader only runs once per data version
+        // =================================================================
+        assertSame(first.getBody(), second.getBody());
+        assertNotSame(first.getBody(), third.getBody());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should serve the gzip variant only when the client accepts it")
+    void serve_RespectsAcceptEncoding() throws IOException {
+        // =================================================================
+        // Act - Serve the route with and without gzip support
+        // =================================================================
+        ResponseEntity<byte[]> identity = serve("deflate, br");
+        ResponseEntity<byte[]> gzip = serve("br, gzip;q=0.8");
+        ResponseEntity<byte[]> refused = serve("gzip;q=0");
+
+        // =================================================================
+        // Assert - Headers and bodies match the negotiated encoding
+        // =================================================================
+        assertNull(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNull(refused.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, gzip.getHeaders().getFirst(HttpHeaders.VARY));
+        assertArrayEquals(identity.getBody(), gunzip(gzip.getBody()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should keep regions independent")
+    void invalidate_OnlyBumpsItsRegion() {
+        // =================================================================
+        // Act - Invalidate an unrelated region
+        // =================================================================
+        serve(null);
+        responseCache.invalidate(ResponseCache.TEACHERS);
+        serve(null);
+
+        // =================================================================
+        // Assert - Sessions are still served from cache
+        // =================================================================
+        assertEquals(1, loads.get());
+        assertEquals(1L, responseCache.getVersion(ResponseCache.TEACHERS));
+        assertEquals(0L, responseCache.getVersion(ResponseCache.SESSIONS));
+    }
+
+    private ResponseEntity<byte[]> serve(String acceptEncoding) {
+        return responseCache.serve(ResponseCache.SESSIONS, "/api/session", acceptEncoding, () -> {
+            loads.incrementAndGet();
+            return payload;
+        });
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
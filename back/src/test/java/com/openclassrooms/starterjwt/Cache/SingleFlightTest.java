@@ -0,0 +1,146 @@
+package com.openclassrooms.starterjwt.Cache;
+
+import com.openclassrooms.starterjwt.cache.SingleFlight;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Unit tests and concurrency benchmark for single-flight loading
+// =================================================================
+@DisplayName("SingleFlight Unit Tests")
+public class SingleFlightTest {
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightTest.class);
+
+    private static final int CLIENTS = 200;
+
+    @Test
+    @DisplayName("Should collapse concurrent identical loads into one call")
+    void load_ConcurrentCallers_ShareOneLoad() throws Exception {
+        // =================================================================
+        // Arrange - A slow loader standing in for the EAGER session query
+        // =================================================================
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>(5000);
+        AtomicInteger coalescedCalls = new AtomicInteger();
+        AtomicInteger directCalls = new AtomicInteger();
+
+        // =================================================================
+        // Act - Fire the same lookup from many clients at once, with and
+        // without coalescing
+        // =================================================================
+        List<String> results = burst(() -> singleFlight.load(1L, () -> slowLoad(coalescedCalls)));
+        burst(() -> slowLoad(directCalls));
+
+        logger.info("SingleFlight benchmark: {} clients, {} DB calls direct, {} coalesced",
+                CLIENTS, directCalls.get(), coalescedCalls.get());
+
+        // =================================================================
+        // Assert - Every client got the value, the DB was hit far less often
+        // =================================================================
+        assertEquals(CLIENTS, results.size());
+        assertTrue(results.stream().allMatch("session"::equals));
+        assertEquals(CLIENTS, directCalls.get());
+        assertTrue(coalescedCalls.get() <= CLIENTS / 20, "coalesced calls: " + coalescedCalls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should propagate a failed load and release the key")
+    void load_LoaderFails_ReleasesKey() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(1000);
+
+        // =================================================================
+        // Act & Assert - The error propagates and the key is released
+        // =================================================================
+        assertThrows(IllegalArgumentException.class, () -> singleFlight.load("key", () -> {
+            throw new IllegalArgumentException();
+        }));
+        assertEquals(0, singleFlight.inFlightCount());
+        assertEquals("value", singleFlight.load("key", () -> "value"));
+    }
+
+    @Test
+    @DisplayName("Should load independently once the wait times out")
+    void load_LeaderTooSlow_FollowerFallsBack() throws Exception {
+        // =================================================================
+        // Arrange - A leader that blocks until released
+        // =================================================================
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> leader = executor.submit(() -> singleFlight.load("key", () -> {
+            started.countDown();
+            await(release);
+            return "leader";
+        }));
+        started.await();
+
+        // =================================================================
+        // Act - A follower joins the flight and times out
+        // =================================================================
+        String follower = singleFlight.load("key", () -> "follower");
+        release.countDown();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals("follower", follower);
+        assertEquals("leader", leader.get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    private static List<String> burst(Callable<String> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return call.call();
+            }));
+        }
+        start.countDown();
+
+        List<String> results = new ArrayList<>();
+        for (Future<String> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static String slowLoad(AtomicInteger calls) {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "session";
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
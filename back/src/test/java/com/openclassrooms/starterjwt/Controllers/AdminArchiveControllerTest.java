@@ -0,0 +1,134 @@
+package com.openclassrooms.starterjwt.Controllers;
+
+import com.openclassrooms.starterjwt.controllers.AdminArchiveController;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.ArchiveService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+//===============================================================================================
+// Unit tests for the AdminArchiveController WITH Mockito for mocking the archive service
+//===============================================================================================
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AdminArchiveController Unit Tests")
+public class AdminArchiveControllerTest {
+
+    @Mock
+    private ArchiveService archiveService;
+
+    @InjectMocks
+    private AdminArchiveController adminArchiveController;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should return the archived sessions of the parsed range")
+    void findSessions_Admin_ReturnsSessions() {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        List<SessionDto> sessions = Collections.singletonList(new SessionDto());
+        ArgumentCaptor<SessionFilter> filter = ArgumentCaptor.forClass(SessionFilter.class);
+        when(archiveService.findArchived(filter.capture())).thenReturn(sessions);
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = adminArchiveController.findSessions("2024-01-01", "2024-12-31", null);
+
+        // ==========================================
+        // Assert: Verify the response and the filter
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(sessions, response.getBody());
+        assertEquals(LocalDate.of(2024, 1, 1), filter.getValue().getFrom());
+        assertEquals(LocalDate.of(2024, 12, 31), filter.getValue().getTo());
+        assertNull(filter.getValue().getTeacherId());
+    }
+
+    @Test
+    @DisplayName("Should return a member's archived sessions")
+    void findSessionsOfUser_Admin_ReturnsSessions() {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        List<SessionDto> sessions = Collections.singletonList(new SessionDto());
+        when(archiveService.findArchivedByUser(4L)).thenReturn(sessions);
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = adminArchiveController.findSessionsOfUser("4");
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(sessions, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should refuse the archive to a user who is not an admin")
+    void findSessions_NotAdmin_Forbidden() {
+        // ==========================================
+        // Arrange: Authenticate a regular user
+        // ==========================================
+        authenticate(false);
+
+        // ==========================================
+        // Act & Assert: Both endpoints are refused before the service is called
+        // ==========================================
+        assertEquals(403, adminArchiveController.findSessions("2024-01-01", "2024-12-31", null).getStatusCodeValue());
+        assertEquals(403, adminArchiveController.findSessionsOfUser("4").getStatusCodeValue());
+        verifyNoInteractions(archiveService);
+    }
+
+    @Test
+    @DisplayName("Should return bad request for a missing range or a malformed id")
+    void invalidParameters_BadRequest() {
+        // ==========================================
+        // Arrange: Authenticate an admin
+        // ==========================================
+        authenticate(true);
+
+        // ==========================================
+        // Act & Assert: Each invalid parameter is rejected before the service is called
+        // ==========================================
+        assertEquals(400, adminArchiveController.findSessions(null, "2024-12-31", null).getStatusCodeValue());
+        assertEquals(400, adminArchiveController.findSessions("2024-12-31", "2024-01-01", null).getStatusCodeValue());
+        assertEquals(400, adminArchiveController.findSessionsOfUser("abc").getStatusCodeValue());
+        verifyNoInteractions(archiveService);
+    }
+
+    // A fresh context, in case an earlier test left its own behind
+    private static void authenticate(boolean admin) {
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").admin(admin).build();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+    }
+}
@@ -0,0 +1,208 @@
+package com.openclassrooms.starterjwt.Controllers;
+
+import com.openclassrooms.starterjwt.controllers.AdminExportController;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.ExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+//===============================================================================================
+// Unit tests for the AdminExportController WITH Mockito for mocking the export service
+//===============================================================================================
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AdminExportController Unit Tests")
+public class AdminExportControllerTest {
+
+    @Mock
+    private ExportService exportService;
+
+    @InjectMocks
+    private AdminExportController adminExportController;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should stream the attendance export to an admin and free the export slot")
+    void attendance_Admin_StreamsAndFinishes() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        when(exportService.tryStart()).thenReturn(true);
+        when(exportService.exportAttendance(eq(LocalDate.of(2026, 1, 1)), eq(LocalDate.of(2026, 1, 31)), eq(DataFormat.CSV), any()))
+                .thenAnswer(invocation -> {
+                    Writer writer = invocation.getArgument(3);
+                    writer.write("session_id\r\n1\r\n");
+                    writer.flush();
+                    return 1L;
+                });
+
+        // ==========================================
+        // Act: Call the export, then write the body out
+        // ==========================================
+        ResponseEntity<?> response = adminExportController.attendance(null, "csv", "2026-01-01", "2026-01-31");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        // ==========================================
+        // Assert: Verify the headers, the body and the released slot
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertEquals("attachment; filename=\"attendance.csv\"", response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        assertEquals("session_id\r\n1\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        verify(exportService).finish();
+    }
+
+    @Test
+    @DisplayName("Should gzip the export and free the slot even when the export fails")
+    void attendance_GzipFailure_StillFinishes() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate an admin and make the export fail
+        // ==========================================
+        authenticate(true);
+        when(exportService.tryStart()).thenReturn(true);
+        when(exportService.exportAttendance(isNull(), isNull(), eq(DataFormat.NDJSON), any()))
+                .thenThrow(new IllegalStateException("Replica went away"));
+
+        // ==========================================
+        // Act: Call the export, then try to write the body out
+        // ==========================================
+        ResponseEntity<?> response = adminExportController.attendance("gzip", "ndjson", null, null);
+
+        // ==========================================
+        // Assert: Verify the encoding and the released slot
+        // ==========================================
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("application/x-ndjson;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertThrows(IllegalStateException.class,
+                () -> ((StreamingResponseBody) response.getBody()).writeTo(new ByteArrayOutputStream()));
+        verify(exportService).finish();
+    }
+
+    @Test
+    @DisplayName("Should produce a valid gzip stream")
+    void attendance_Gzip_Inflates() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        when(exportService.tryStart()).thenReturn(true);
+        when(exportService.exportAttendance(isNull(), isNull(), eq(DataFormat.NDJSON), any()))
+                .thenAnswer(invocation -> {
+                    Writer writer = invocation.getArgument(3);
+                    writer.write("{\"sessionId\":1}\n");
+                    writer.flush();
+                    return 1L;
+                });
+
+        // ==========================================
+        // Act: Call the export, then write and inflate the body
+        // ==========================================
+        ResponseEntity<?> response = adminExportController.attendance("gzip", "ndjson", null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        // ==========================================
+        // Assert: Verify the inflated body
+        // ==========================================
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("{\"sessionId\":1}\n", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse the export to a user who is not an admin")
+    void attendance_NotAdmin_Forbidden() {
+        // ==========================================
+        // Arrange: Authenticate a regular user
+        // ==========================================
+        authenticate(false);
+
+        // ==========================================
+        // Act: Call the export
+        // ==========================================
+        ResponseEntity<?> response = adminExportController.attendance(null, null, null, null);
+
+        // ==========================================
+        // Assert: Verify the response and that no slot was taken
+        // ==========================================
+        assertEquals(403, response.getStatusCodeValue());
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    @DisplayName("Should return bad request for an unknown format or a malformed date")
+    void attendance_InvalidParameters_BadRequest() {
+        // ==========================================
+        // Arrange: Authenticate an admin
+        // ==========================================
+        authenticate(true);
+
+        // ==========================================
+        // Act & Assert: Each invalid parameter is rejected before any slot is taken
+        // ==========================================
+        assertEquals(400, adminExportController.attendance(null, "xml", null, null).getStatusCodeValue());
+        assertEquals(400, adminExportController.attendance(null, null, "01/02/2026", null).getStatusCodeValue());
+        assertEquals(400, adminExportController.attendance(null, null, null, "2026-13-01").getStatusCodeValue());
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    @DisplayName("Should ask the admin to retry later while another export is running")
+    void attendance_Busy_ServiceUnavailable() {
+        // ==========================================
+        // Arrange: Authenticate an admin, with every slot taken
+        // ==========================================
+        authenticate(true);
+        when(exportService.tryStart()).thenReturn(false);
+
+        // ==========================================
+        // Act: Call the export
+        // ==========================================
+        ResponseEntity<?> response = adminExportController.attendance(null, null, null, null);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("60", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(exportService, never()).finish();
+    }
+
+    // A fresh context, in case an earlier test left its own behind
+    private static void authenticate(boolean admin) {
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").admin(admin).build();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+    }
+}
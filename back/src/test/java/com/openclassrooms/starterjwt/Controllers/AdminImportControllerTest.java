@@ -0,0 +1,156 @@
+package com.openclassrooms.starterjwt.Controllers;
+
+import com.openclassrooms.starterjwt.controllers.AdminImportController;
+import com.openclassrooms.starterjwt.importer.ImportKind;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.payload.response.ImportReport;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.ImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+//===============================================================================================
+// Unit tests for the AdminImportController WITH Mockito for mocking the import service
+//===============================================================================================
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AdminImportController Unit Tests")
+public class AdminImportControllerTest {
+
+    @Mock
+    private ImportService importService;
+
+    @InjectMocks
+    private AdminImportController adminImportController;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should hand the body to the import service and return its report")
+    void importRecords_Admin_ReturnsReport() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        ImportReport report = new ImportReport("users", "members", 0);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("email\n".getBytes(StandardCharsets.UTF_8));
+        when(importService.importRecords(eq(ImportKind.USERS), eq(DataFormat.CSV), any(), eq("members"), eq(500)))
+                .thenReturn(report);
+
+        // ==========================================
+        // Act: Call the import
+        // ==========================================
+        ResponseEntity<?> response = adminImportController.importRecords("users", "text/csv", null, null, "members", "500", request);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(report, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should read NDJSON from the Content-Type and inflate a gzipped body")
+    void importRecords_GzipNdjson_Inflated() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate an admin and gzip the body
+        // ==========================================
+        authenticate(true);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write("{\"name\":\"Flow\"}\n".getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent(gzipped.toByteArray());
+        when(importService.importRecords(eq(ImportKind.SESSIONS), eq(DataFormat.NDJSON), any(), isNull(), isNull()))
+                .thenAnswer(invocation -> {
+                    String body = StreamUtils.copyToString(invocation.<InputStream>getArgument(2), StandardCharsets.UTF_8);
+                    assertEquals("{\"name\":\"Flow\"}\n", body);
+                    return new ImportReport("sessions", null, 0);
+                });
+
+        // ==========================================
+        // Act: Call the import
+        // ==========================================
+        ResponseEntity<?> response = adminImportController.importRecords("sessions", "application/x-ndjson", "gzip", null, null, null, request);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        verify(importService).importRecords(eq(ImportKind.SESSIONS), eq(DataFormat.NDJSON), any(), isNull(), isNull());
+    }
+
+    @Test
+    @DisplayName("Should refuse the import to a user who is not an admin")
+    void importRecords_NotAdmin_Forbidden() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate a regular user
+        // ==========================================
+        authenticate(false);
+
+        // ==========================================
+        // Act: Call the import
+        // ==========================================
+        ResponseEntity<?> response = adminImportController.importRecords("users", null, null, null, null, null, new MockHttpServletRequest());
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(403, response.getStatusCodeValue());
+        verifyNoInteractions(importService);
+    }
+
+    @Test
+    @DisplayName("Should return bad request for an unknown kind or format, or a malformed id or chunk size")
+    void importRecords_InvalidParameters_BadRequest() throws Exception {
+        // ==========================================
+        // Arrange: Authenticate an admin
+        // ==========================================
+        authenticate(true);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        // ==========================================
+        // Act & Assert: Each invalid parameter is rejected before anything is read
+        // ==========================================
+        assertEquals(400, adminImportController.importRecords("payments", null, null, null, null, null, request).getStatusCodeValue());
+        assertEquals(400, adminImportController.importRecords("users", null, null, "xml", null, null, request).getStatusCodeValue());
+        assertEquals(400, adminImportController.importRecords("users", null, null, null, "../etc", null, request).getStatusCodeValue());
+        assertEquals(400, adminImportController.importRecords("users", null, null, null, null, "lots", request).getStatusCodeValue());
+        assertEquals(400, adminImportController.importRecords("users", null, null, null, null, "0", request).getStatusCodeValue());
+        verifyNoInteractions(importService);
+    }
+
+    // A fresh context, in case an earlier test left its own behind
+    private static void authenticate(boolean admin) {
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").admin(admin).build();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+    }
+}
@@ -0,0 +1,141 @@
+package com.openclassrooms.starterjwt.Controllers;
+
+import com.openclassrooms.starterjwt.controllers.AdminSessionController;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.payload.response.BulkSessionResponse;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.SessionBulkService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+//===============================================================================================
+// Unit tests for the AdminSessionController WITH Mockito for mocking the bulk service
+//===============================================================================================
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AdminSessionController Unit Tests")
+public class AdminSessionControllerTest {
+
+    @Mock
+    private SessionBulkService sessionBulkService;
+
+    @InjectMocks
+    private AdminSessionController adminSessionController;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should reassign with the parsed filter and return the counts")
+    void reassign_Admin_ReturnsCounts() {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        BulkSessionResponse counts = new BulkSessionResponse(4, 0);
+        ArgumentCaptor<SessionFilter> filter = ArgumentCaptor.forClass(SessionFilter.class);
+        when(sessionBulkService.reassign(filter.capture(), eq(9L))).thenReturn(counts);
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = adminSessionController.reassign("2026-05-01", "2026-05-31", "3", "9");
+
+        // ==========================================
+        // Assert: Verify the response and the filter
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(counts, response.getBody());
+        assertEquals(LocalDate.of(2026, 5, 1), filter.getValue().getFrom());
+        assertEquals(LocalDate.of(2026, 5, 31), filter.getValue().getTo());
+        assertEquals(3L, filter.getValue().getTeacherId());
+    }
+
+    @Test
+    @DisplayName("Should shift by an ISO-8601 duration")
+    void shift_Duration_Parsed() {
+        // ==========================================
+        // Arrange: Authenticate an admin and mock the service
+        // ==========================================
+        authenticate(true);
+        when(sessionBulkService.shift(any(SessionFilter.class), eq(Duration.ofMinutes(-30)))).thenReturn(new BulkSessionResponse(2, 0));
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = adminSessionController.shift("2026-05-01", "2026-05-01", null, "-PT30M");
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, ((BulkSessionResponse) response.getBody()).getSessions());
+    }
+
+    @Test
+    @DisplayName("Should refuse bulk operations to a user who is not an admin")
+    void delete_NotAdmin_Forbidden() {
+        // ==========================================
+        // Arrange: Authenticate a regular user
+        // ==========================================
+        authenticate(false);
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = adminSessionController.delete("2026-05-01", "2026-05-01", null);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(403, response.getStatusCodeValue());
+        verifyNoInteractions(sessionBulkService);
+    }
+
+    @Test
+    @DisplayName("Should return bad request for a missing or malformed range, teacher or duration")
+    void invalidParameters_BadRequest() {
+        // ==========================================
+        // Arrange: Authenticate an admin
+        // ==========================================
+        authenticate(true);
+
+        // ==========================================
+        // Act & Assert: Each invalid parameter is rejected before the service is called
+        // ==========================================
+        assertEquals(400, adminSessionController.delete(null, null, null).getStatusCodeValue());
+        assertEquals(400, adminSessionController.delete("2026-05-02", "2026-05-01", null).getStatusCodeValue());
+        assertEquals(400, adminSessionController.delete("May 1st", "2026-05-01", null).getStatusCodeValue());
+        assertEquals(400, adminSessionController.reassign("2026-05-01", "2026-05-01", "abc", "9").getStatusCodeValue());
+        assertEquals(400, adminSessionController.reassign("2026-05-01", "2026-05-01", "3", null).getStatusCodeValue());
+        assertEquals(400, adminSessionController.shift("2026-05-01", "2026-05-01", null, "a week").getStatusCodeValue());
+        verifyNoInteractions(sessionBulkService);
+    }
+
+    // A fresh context, in case an earlier test left its own behind
+    private static void authenticate(boolean admin) {
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").admin(admin).build();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        SecurityContextHolder.setContext(context);
+    }
+}
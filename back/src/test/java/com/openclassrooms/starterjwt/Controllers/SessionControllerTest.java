@@ -1,10 +1,24 @@
 package com.openclassrooms.starterjwt.Controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.openclassrooms.starterjwt.cache.ResponseCache;
 import com.openclassrooms.starterjwt.controllers.SessionController;
+import com.openclassrooms.starterjwt.dto.SessionChangesDto;
+import com.openclassrooms.starterjwt.dto.SessionDetailDto;
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionViewDto;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+import com.openclassrooms.starterjwt.payload.response.VersionConflictResponse;
+import com.openclassrooms.starterjwt.repository.ListReadPath;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
 import com.openclassrooms.starterjwt.services.SessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,14 +26,25 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +62,12 @@ public class SessionControllerTest {
     @Mock
     private SessionMapper sessionMapper;
 
+    @Spy
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Spy
+    private ResponseCache responseCache = new ResponseCache(objectMapper);
+
     @InjectMocks
     private SessionController sessionController;
 
@@ -96,20 +127,19 @@ public class SessionControllerTest {
         // ==========================================
         // Arrange: Mock the session service to return the test session
         // ==========================================
-        when(sessionService.getById(1L)).thenReturn(testSession);
-        when(sessionMapper.toDto(testSession)).thenReturn(testSessionDto);
+        when(sessionService.getDto(1L)).thenReturn(testSessionDto);
 
         // ==========================================
         // Act: Call the findById method with a valid ID
         // ==========================================
-        ResponseEntity<?> response = sessionController.findById("1");
+        ResponseEntity<?> response = sessionController.findById("1", null, null);
 
         // ==========================================
         // Assert: Verify the response is a session entity
         // ==========================================
         assertTrue(response.getStatusCode().is2xxSuccessful());
-        verify(sessionService).getById(1L);
-        verify(sessionMapper).toDto(testSession);
+        assertEquals(testSessionDto, response.getBody());
+        verify(sessionService).getDto(1L);
     }
 
     // =================================================================
@@ -121,12 +151,12 @@ public class SessionControllerTest {
         // ==========================================
         // Arrange: Mock the session service to return null
         // ==========================================
-        when(sessionService.getById(1L)).thenReturn(null);
+        when(sessionService.getDto(1L)).thenReturn(null);
 
         // ==========================================
         // Act: Call the findById method with a valid ID
         // ==========================================
-        ResponseEntity<?> response = sessionController.findById("1");
+        ResponseEntity<?> response = sessionController.findById("1", null, null);
 
         // ==========================================
         // Assert: Verify the response is not found
@@ -143,7 +173,7 @@ public class SessionControllerTest {
         // ==========================================
         // Act: Call the findById method with an invalid ID
         // ==========================================
-        ResponseEntity<?> response = sessionController.findById("invalid");
+        ResponseEntity<?> response = sessionController.findById("invalid", null, null);
 
         // ==========================================
         // Assert: Verify the response is bad request
@@ -156,25 +186,321 @@ public class SessionControllerTest {
     // =================================================================
     @Test
     @DisplayName("Should find all sessions")
-    void findAll_Success() {
+    void findAll_Success() throws Exception {
         // ==========================================
         // Arrange: Mock the session service
         // ==========================================
-        List<Session> sessions = Arrays.asList(testSession);
         List<SessionDto> sessionDtos = Arrays.asList(testSessionDto);
-        when(sessionService.findAll()).thenReturn(sessions);
-        when(sessionMapper.toDto(sessions)).thenReturn(sessionDtos);
+        when(sessionService.findAll()).thenReturn(sessionDtos);
 
         // ==========================================
         // Act: Call the findAll method
         // ==========================================
-        ResponseEntity<?> response = sessionController.findAll();
+        ResponseEntity<?> response = sessionController.findAll(null, null, null);
 
         // ==========================================
-        // Assert: Verify the response
+        // Assert: Verify the response holds the serialized list
         // ==========================================
         assertTrue(response.getStatusCode().is2xxSuccessful());
-        assertEquals(sessionDtos, response.getBody());
+        assertArrayEquals(objectMapper.writeValueAsBytes(sessionDtos), (byte[]) response.getBody());
+    }
+
+    // =================================================================
+    // Test that the session list is served from the response cache
+    // =================================================================
+    @Test
+    @DisplayName("Should serve the session list from cache until sessions change")
+    void findAll_Cached_UntilInvalidated() {
+        // ==========================================
+        // Arrange: Mock the session service
+        // ==========================================
+        when(sessionService.findAll()).thenReturn(Arrays.asList(testSessionDto));
+
+        // ==========================================
+        // Act: Call findAll twice, then again after a write
+        // ==========================================
+        sessionController.findAll("gzip", null, null);
+        sessionController.findAll(null, null, null);
+        responseCache.invalidate(ResponseCache.SESSIONS);
+        sessionController.findAll(null, null, null);
+
+        // ==========================================
+        // Assert: Verify the list was only loaded once per data version
+        // ==========================================
+        verify(sessionService, times(2)).findAll();
+    }
+
+    // =================================================================
+    // Test the streamed session list
+    // =================================================================
+    @Test
+    @DisplayName("Should stream the session list as a JSON array without caching it")
+    void findAll_Streamed_WritesEachSession() throws Exception {
+        // ==========================================
+        // Arrange: A controller configured to stream, over a service yielding two sessions
+        // ==========================================
+        SessionController streaming = new SessionController(sessionService, sessionMapper, responseCache, null, objectMapper, ListReadPath.STREAM);
+        doAnswer(invocation -> {
+            Consumer<Session> action = invocation.getArgument(0);
+            action.accept(testSession);
+            action.accept(testSession);
+            return null;
+        }).when(sessionService).forEachForList(any());
+        when(sessionMapper.toDto(testSession)).thenReturn(testSessionDto);
+
+        // ==========================================
+        // Act: Call findAll, then write the body out
+        // ==========================================
+        ResponseEntity<?> response = streaming.findAll(null, null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        // ==========================================
+        // Assert: Verify the array and that nothing was cached
+        // ==========================================
+        JsonNode sessions = objectMapper.readTree(out.toByteArray());
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, sessions.size());
+        assertEquals("Test Session", sessions.get(0).get("name").asText());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        verify(sessionService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should gzip the streamed session list when the client accepts it")
+    void findAll_StreamedGzip_Compressed() throws Exception {
+        // ==========================================
+        // Arrange: A controller configured to stream, over an empty service
+        // ==========================================
+        SessionController streaming = new SessionController(sessionService, sessionMapper, responseCache, null, objectMapper, ListReadPath.STREAM);
+
+        // ==========================================
+        // Act: Call findAll, then write and inflate the body
+        // ==========================================
+        ResponseEntity<?> response = streaming.findAll("gzip", null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        // ==========================================
+        // Assert: Verify the encoding and the empty array
+        // ==========================================
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(0, objectMapper.readTree(in).size());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // =================================================================
+    // Test the composite detail endpoint
+    // =================================================================
+    @Test
+    @DisplayName("Should return the session detail for the calling user")
+    void detail_ValidId_UsesCallerId() {
+        // ==========================================
+        // Arrange: Authenticate user 42 and mock the service
+        // ==========================================
+        UserDetailsImpl principal = UserDetailsImpl.builder().id(42L).username("test@test.com").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        SessionDetailDto detail = new SessionDetailDto(testSessionDto, null, 3, true);
+        when(sessionService.getDetail(1L, 42L)).thenReturn(detail);
+
+        // ==========================================
+        // Act: Call the detail method
+        // ==========================================
+        ResponseEntity<?> response = sessionController.detail("1");
+
+        // ==========================================
+        // Assert: Verify the detail is returned as is
+        // ==========================================
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        assertEquals(detail, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should return not found or bad request for the detail endpoint")
+    void detail_MissingOrInvalid() {
+        // ==========================================
+        // Arrange: No session with this ID
+        // ==========================================
+        when(sessionService.getDetail(2L, null)).thenReturn(null);
+
+        // ==========================================
+        // Act & Assert
+        // ==========================================
+        assertEquals(404, sessionController.detail("2").getStatusCodeValue());
+        assertEquals(400, sessionController.detail("invalid").getStatusCodeValue());
+    }
+
+    // =================================================================
+    // Test sparse fieldsets on the session list
+    // =================================================================
+    @Test
+    @DisplayName("Should load only the requested fields when fields are given")
+    void findAll_WithFields_UsesSparsePath() {
+        // ==========================================
+        // Arrange: Mock the sparse service and mapper paths
+        // ==========================================
+        List<Session> sessions = Arrays.asList(testSession);
+        SessionViewDto view = new SessionViewDto();
+        view.setId(1L);
+        view.setName("Test Session");
+        when(sessionService.findAll(any(SessionFieldSet.class))).thenReturn(sessions);
+        when(sessionMapper.toView(eq(sessions), any(SessionFieldSet.class))).thenReturn(Arrays.asList(view));
+
+        // ==========================================
+        // Act: Call findAll with a field list
+        // ==========================================
+        ResponseEntity<?> response = sessionController.findAll(null, "name,date", null);
+
+        // ==========================================
+        // Assert: Verify the full entity path was not used
+        // ==========================================
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        verify(sessionService, never()).findAll();
+        verify(sessionMapper, never()).toDto(anyList());
+    }
+
+    @Test
+    @DisplayName("Should return bad request for unknown fields or expansions")
+    void findAll_UnknownField_BadRequest() {
+        // ==========================================
+        // Act: Call findAll and findById with unknown names
+        // ==========================================
+        ResponseEntity<?> unknownField = sessionController.findAll(null, "name,password", null);
+        ResponseEntity<?> unknownExpand = sessionController.findById("1", null, "owner");
+
+        // ==========================================
+        // Assert: Verify both are rejected
+        // ==========================================
+        assertEquals(400, unknownField.getStatusCodeValue());
+        assertEquals(400, unknownExpand.getStatusCodeValue());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    @DisplayName("Should expand the teacher of a single session")
+    void findById_ExpandTeacher_UsesSparsePath() {
+        // ==========================================
+        // Arrange: Mock the sparse service and mapper paths
+        // ==========================================
+        SessionViewDto view = new SessionViewDto();
+        view.setId(1L);
+        when(sessionService.getById(eq(1L), any(SessionFieldSet.class))).thenReturn(testSession);
+        when(sessionMapper.toView(eq(testSession), any(SessionFieldSet.class))).thenReturn(view);
+
+        // ==========================================
+        // Act: Call findById with an expansion
+        // ==========================================
+        ResponseEntity<?> response = sessionController.findById("1", null, "teacher");
+
+        // ==========================================
+        // Assert: Verify the view is returned
+        // ==========================================
+        assertEquals(view, response.getBody());
+        verify(sessionService, never()).getDto(1L);
+    }
+
+    @Test
+    @DisplayName("Should only expand participants for admins")
+    void expandUsers_NonAdmin_Forbidden() {
+        // ==========================================
+        // Arrange: Authenticate a member, then an admin
+        // ==========================================
+        UserDetailsImpl member = UserDetailsImpl.builder().id(42L).username("test@test.com").admin(false).build();
+        UserDetailsImpl admin = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").admin(true).build();
+        when(sessionService.findAll(any(SessionFieldSet.class))).thenReturn(Arrays.asList(testSession));
+        when(sessionMapper.toView(anyList(), any(SessionFieldSet.class))).thenReturn(new ArrayList<>());
+
+        // ==========================================
+        // Act & Assert
+        // ==========================================
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(member, null, member.getAuthorities()));
+        assertEquals(403, sessionController.findAll(null, null, "users").getStatusCodeValue());
+        assertEquals(403, sessionController.findById("1", "name", "users").getStatusCodeValue());
+        verifyNoInteractions(sessionService);
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+        assertEquals(200, sessionController.findAll(null, null, "users").getStatusCodeValue());
+    }
+
+    // =================================================================
+    // Test delta sync without a token
+    // =================================================================
+    @Test
+    @DisplayName("Should return the full list and a token when no sync token is given")
+    void changes_NoToken_FullResync() {
+        // ==========================================
+        // Arrange: Mock the session service
+        // ==========================================
+        when(sessionService.findAll()).thenReturn(Arrays.asList(testSessionDto));
+
+        // ==========================================
+        // Act: Call the changes method without a token
+        // ==========================================
+        ResponseEntity<?> response = sessionController.changes(null);
+
+        // ==========================================
+        // Assert: Verify a reset with every session
+        // ==========================================
+        SessionChangesDto changes = (SessionChangesDto) response.getBody();
+        assertTrue(changes.isReset());
+        assertEquals(Arrays.asList(testSessionDto), changes.getSessions());
+        assertTrue(changes.getDeleted().isEmpty());
+        assertNotNull(changes.getSyncToken());
+    }
+
+    // =================================================================
+    // Test delta sync with a token
+    // =================================================================
+    @Test
+    @DisplayName("Should return only changed sessions and tombstones since the token")
+    void changes_ValidToken_ReturnsDelta() {
+        // ==========================================
+        // Arrange: Mock the session service
+        // ==========================================
+        List<Session> changed = Arrays.asList(testSession);
+        when(sessionService.canSyncSince(any())).thenReturn(true);
+        when(sessionService.findUpdatedSince(any())).thenReturn(changed);
+        when(sessionService.findDeletedSince(any())).thenReturn(Arrays.asList(7L));
+        when(sessionMapper.toDto(changed)).thenReturn(Arrays.asList(testSessionDto));
+
+        // ==========================================
+        // Act: Call the changes method with a token
+        // ==========================================
+        String since = String.valueOf(System.currentTimeMillis() - 60000);
+        ResponseEntity<?> response = sessionController.changes(since);
+
+        // ==========================================
+        // Assert: Verify the delta and a newer token
+        // ==========================================
+        SessionChangesDto changes = (SessionChangesDto) response.getBody();
+        assertFalse(changes.isReset());
+        assertEquals(Arrays.asList(testSessionDto), changes.getSessions());
+        assertEquals(Arrays.asList(7L), changes.getDeleted());
+        assertTrue(Long.parseLong(changes.getSyncToken()) > Long.parseLong(since));
+        verify(sessionService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Should return bad request for a malformed sync token")
+    void changes_InvalidToken_BadRequest() {
+        // ==========================================
+        // Act: Call the changes method with a malformed token
+        // ==========================================
+        ResponseEntity<?> response = sessionController.changes("yesterday");
+
+        // ==========================================
+        // Assert: Verify the response is bad request
+        // ==========================================
+        assertEquals(400, response.getStatusCodeValue());
     }
 
     // =================================================================
@@ -212,13 +538,13 @@ public class SessionControllerTest {
         // Arrange: Mock the service and mapper
         // ==========================================
         when(sessionMapper.toEntity(testSessionDto)).thenReturn(testSession);
-        when(sessionService.update(1L, testSession)).thenReturn(testSession);
+        when(sessionService.update(1L, testSession, null)).thenReturn(testSession);
         when(sessionMapper.toDto(testSession)).thenReturn(testSessionDto);
 
         // ==========================================
         // Act: Call the update method
         // ==========================================
-        ResponseEntity<?> response = sessionController.update("1", testSessionDto);
+        ResponseEntity<?> response = sessionController.update("1", null, testSessionDto);
 
         // ==========================================
         // Assert: Verify the response
@@ -227,13 +553,38 @@ public class SessionControllerTest {
         assertEquals(testSessionDto, response.getBody());
     }
 
+    @Test
+    @DisplayName("Should update against the If-Match version and leave participants alone when users are absent")
+    void update_IfMatchWithoutUsers_KeepsParticipants() {
+        // ==========================================
+        // Arrange: The form sends neither users nor a version
+        // ==========================================
+        testSession.setUsers(new ArrayList<>());
+        testSession.setVersion(4L);
+        when(sessionMapper.toEntity(testSessionDto)).thenReturn(testSession);
+        when(sessionService.update(1L, testSession, 3L)).thenReturn(testSession);
+        when(sessionMapper.toDto(testSession)).thenReturn(testSessionDto);
+
+        // ==========================================
+        // Act: Call the update method with If-Match
+        // ==========================================
+        ResponseEntity<?> response = sessionController.update("1", "\"3\"", testSessionDto);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+        assertNull(testSession.getUsers());
+    }
+
     @Test
     @DisplayName("Should return bad request when updating with invalid ID")
     void update_InvalidId_BadRequest() {
         // ==========================================
         // Act: Call the update method with invalid ID
         // ==========================================
-        ResponseEntity<?> response = sessionController.update("invalid", testSessionDto);
+        ResponseEntity<?> response = sessionController.update("invalid", null, testSessionDto);
 
         // ==========================================
         // Assert: Verify the response
@@ -241,6 +592,77 @@ public class SessionControllerTest {
         assertEquals(400, response.getStatusCodeValue());
     }
 
+    // =================================================================
+    // Test partial session update
+    // =================================================================
+    @Test
+    @DisplayName("Should patch a session and return its new version as ETag")
+    void patch_MatchingVersion_Success() {
+        // ==========================================
+        // Arrange: Mock the service and mapper
+        // ==========================================
+        ObjectNode patch = objectMapper.createObjectNode().put("name", "Patched");
+        testSession.setVersion(4L);
+        when(sessionService.patch(1L, patch, 3L)).thenReturn(testSession);
+        when(sessionMapper.toDto(testSession)).thenReturn(testSessionDto);
+
+        // ==========================================
+        // Act: Call the patch method with a weak If-Match
+        // ==========================================
+        ResponseEntity<?> response = sessionController.patch("1", "W/\"3\"", patch);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+        assertEquals(testSessionDto, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should return conflict with the current version when patching a stale session")
+    void patch_StaleVersion_Conflict() {
+        // ==========================================
+        // Arrange: Mock the service
+        // ==========================================
+        ObjectNode patch = objectMapper.createObjectNode().put("name", "Patched");
+        when(sessionService.patch(1L, patch, 3L)).thenThrow(new ConflictException(5L));
+
+        // ==========================================
+        // Act: Call the patch method
+        // ==========================================
+        ResponseEntity<?> response = sessionController.patch("1", "\"3\"", patch);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals("\"5\"", response.getHeaders().getETag());
+        assertEquals(5L, ((VersionConflictResponse) response.getBody()).getVersion());
+    }
+
+    @Test
+    @DisplayName("Should return conflict when a concurrent write wins the race")
+    void patch_ConcurrentWrite_Conflict() {
+        // ==========================================
+        // Arrange: The version check passes but the flush loses
+        // ==========================================
+        ObjectNode patch = objectMapper.createObjectNode().put("name", "Patched");
+        when(sessionService.patch(1L, patch, null)).thenThrow(new ObjectOptimisticLockingFailureException(Session.class, 1L));
+        when(sessionService.getVersion(1L)).thenReturn(6L);
+
+        // ==========================================
+        // Act: Call the patch method without If-Match
+        // ==========================================
+        ResponseEntity<?> response = sessionController.patch("1", null, patch);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals(6L, ((VersionConflictResponse) response.getBody()).getVersion());
+    }
+
     // =================================================================
     // Test session deletion
     // =================================================================
@@ -250,7 +672,6 @@ public class SessionControllerTest {
         // ==========================================
         // Arrange: Mock the service
         // ==========================================
-        when(sessionService.getById(1L)).thenReturn(testSession);
         doNothing().when(sessionService).delete(1L);
 
         // ==========================================
@@ -269,20 +690,15 @@ public class SessionControllerTest {
     @DisplayName("Should return not found when deleting non-existent session")
     void delete_NonExistentSession_NotFound() {
         // ==========================================
-        // Arrange: Mock the service to return null
+        // Arrange: Mock the service to find nothing to delete
         // ==========================================
-        when(sessionService.getById(1L)).thenReturn(null);
+        doThrow(new NotFoundException()).when(sessionService).delete(1L);
 
         // ==========================================
-        // Act: Call the delete method
+        // Act & Assert: The 404 comes from the exception, with no load first
         // ==========================================
-        ResponseEntity<?> response = sessionController.save("1");
-
-        // ==========================================
-        // Assert: Verify the response
-        // ==========================================
-        assertEquals(404, response.getStatusCodeValue());
-        verify(sessionService, never()).delete(anyLong());
+        assertThrows(NotFoundException.class, () -> sessionController.save("1"));
+        verify(sessionService, never()).getById(anyLong());
     }
 
     @Test
@@ -0,0 +1,138 @@
+package com.openclassrooms.starterjwt.Controllers;
+
+import com.openclassrooms.starterjwt.controllers.SessionSeriesController;
+import com.openclassrooms.starterjwt.dto.SessionSeriesDto;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.mapper.SessionSeriesMapper;
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.services.SessionSeriesService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+//===============================================================================================
+// Unit tests for the SessionSeriesController WITH Mockito for mocking the service and mapper
+//===============================================================================================
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SessionSeriesController Unit Tests")
+public class SessionSeriesControllerTest {
+
+    @Mock
+    private SessionSeriesService sessionSeriesService;
+
+    @Mock
+    private SessionSeriesMapper sessionSeriesMapper;
+
+    @InjectMocks
+    private SessionSeriesController sessionSeriesController;
+
+    @Test
+    @DisplayName("Should return the series with its version as ETag")
+    void findById_Found_ReturnsSeriesWithETag() {
+        // ==========================================
+        // Arrange: Mock the service and mapper
+        // ==========================================
+        SessionSeries series = SessionSeries.builder().id(1L).version(3L).build();
+        SessionSeriesDto dto = new SessionSeriesDto();
+        when(sessionSeriesService.getById(1L)).thenReturn(series);
+        when(sessionSeriesMapper.toDto(series)).thenReturn(dto);
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = sessionSeriesController.findById("1");
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("\"3\"", response.getHeaders().getETag());
+        assertSame(dto, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should return bad request for a rule the mapper cannot read")
+    void create_InvalidRule_BadRequest() {
+        // ==========================================
+        // Arrange: The mapper rejects the frequency
+        // ==========================================
+        SessionSeriesDto dto = new SessionSeriesDto();
+        when(sessionSeriesMapper.toEntity(dto)).thenThrow(new IllegalArgumentException("frequency"));
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = sessionSeriesController.create(dto);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(400, response.getStatusCodeValue());
+        verifyNoInteractions(sessionSeriesService);
+    }
+
+    @Test
+    @DisplayName("Should return conflict with the current version when If-Match is stale")
+    void update_StaleVersion_Conflict() {
+        // ==========================================
+        // Arrange: The service reports a newer version
+        // ==========================================
+        SessionSeriesDto dto = new SessionSeriesDto();
+        when(sessionSeriesMapper.toEntity(dto)).thenReturn(new SessionSeries());
+        when(sessionSeriesService.update(eq(1L), any(SessionSeries.class), eq(2L))).thenThrow(new ConflictException(4L));
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = sessionSeriesController.update("1", "W/\"2\"", dto);
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should cancel the occurrences from the given day")
+    void cancel_FromDate_ReturnsCount() {
+        // ==========================================
+        // Arrange: Mock the service
+        // ==========================================
+        when(sessionSeriesService.cancel(1L, LocalDate.of(2026, 3, 2))).thenReturn(12);
+
+        // ==========================================
+        // Act: Call the controller
+        // ==========================================
+        ResponseEntity<?> response = sessionSeriesController.cancel("1", "2026-03-02");
+
+        // ==========================================
+        // Assert: Verify the response
+        // ==========================================
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("12 sessions cancelled", ((MessageResponse) response.getBody()).getMessage());
+    }
+
+    @Test
+    @DisplayName("Should return bad request for a malformed id or date")
+    void cancel_InvalidParameters_BadRequest() {
+        // ==========================================
+        // Act & Assert: Each invalid parameter is rejected
+        // ==========================================
+        assertEquals(400, sessionSeriesController.cancel("abc", null).getStatusCodeValue());
+        assertEquals(400, sessionSeriesController.cancel("1", "March 2nd").getStatusCodeValue());
+        verifyNoInteractions(sessionSeriesService);
+    }
+}
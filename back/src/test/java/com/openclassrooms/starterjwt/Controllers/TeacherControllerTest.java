@@ -1,8 +1,11 @@
 package com.openclassrooms.starterjwt.Controllers;
 
+import com.openclassrooms.starterjwt.cache.ResponseCache;
 import com.openclassrooms.starterjwt.controllers.TeacherController;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.ListReadPath;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,15 +13,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 //===============================================================================================
@@ -34,6 +41,8 @@ class TeacherControllerTest {
     private TeacherService teacherService; // Mock object for teacher service
     @Mock
     private TeacherMapper teacherMapper; // Mock object for teacher mapper
+    @Spy
+    private ResponseCache responseCache = new ResponseCache(Jackson2ObjectMapperBuilder.json().build()); // Real cache over a plain mapper
 
     @InjectMocks
     private TeacherController teacherController; // Injects mock objects into the controller
@@ -154,11 +163,35 @@ class TeacherControllerTest {
         // Act: Call the findAll method
         // ==========================================
 
-        ResponseEntity<?> response = teacherController.findAll();
+        ResponseEntity<?> response = teacherController.findAll(null);
 
         // ==========================================
         // Assert: Verify the response is a ok status
         // ==========================================
         assertEquals(HttpStatus.OK, response.getStatusCode()); // Verify HTTP 200 OK status
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should read all teachers through JDBC when configured to")
+    void findAll_JdbcReads_SkipsEntities() {
+
+        // ==========================================
+        // Arrange: A controller reading the list with plain JDBC
+        // ==========================================
+
+        TeacherController jdbcController = new TeacherController(teacherService, teacherMapper, responseCache, ListReadPath.JDBC);
+        when(teacherService.findAllRows()).thenReturn(Arrays.asList(new TeacherDto(1L, "Doe", "John", null, null)));
+
+        // ==========================================
+        // Act: Call the findAll method
+        // ==========================================
+
+        ResponseEntity<?> response = jdbcController.findAll(null);
+
+        // ==========================================
+        // Assert: Verify the response and that no entity was loaded
+        // ==========================================
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(teacherService, never()).findAll();
+    }
+}
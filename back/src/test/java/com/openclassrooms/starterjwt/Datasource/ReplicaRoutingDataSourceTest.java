@@ -0,0 +1,197 @@
+package com.openclassrooms.starterjwt.Datasource;
+
+import com.openclassrooms.starterjwt.datasource.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// =================================================================
+// Unit tests for replica routing, with mocked pools, a manual clock
+// and the transaction flags set by hand
+// =================================================================
+@DisplayName("ReplicaRoutingDataSource Unit Tests")
+public class ReplicaRoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+
+    private final Connection firstConnection = mock(Connection.class);
+
+    private final Connection secondConnection = mock(Connection.class);
+
+    private DataSource first;
+
+    private AtomicLong now;
+
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // =================================================================
+        // One primary, two replicas, 1000 ms read-your-writes window
+        // =================================================================
+        DataSource primary = mock(DataSource.class);
+        first = mock(DataSource.class);
+        DataSource second = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(first.getConnection()).thenReturn(firstConnection);
+        when(second.getConnection()).thenReturn(secondConnection);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("first", first);
+        replicas.put("second", second);
+        now = new AtomicLong(10_000);
+        routing = new ReplicaRoutingDataSource(primary, replicas, 1000, now::get);
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("yoga@studio.com", null, Collections.emptyList()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to the replicas in turn")
+    void getConnection_ReadOnly_RoundRobin() throws SQLException {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        inTransaction(true);
+
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertSame(firstConnection, routing.getConnection());
+        assertSame(secondConnection, routing.getConnection());
+        assertSame(firstConnection, routing.getConnection());
+    }
+
+    @Test
+    @DisplayName("Should use the primary for writes and outside transactions")
+    void getConnection_WriteOrNoTransaction_Primary() throws SQLException {
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertSame(primaryConnection, routing.getConnection());
+
+        inTransaction(false);
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    @Test
+    @DisplayName("Should keep a caller on the primary until the read-your-writes window has passed")
+    void getConnection_AfterWrite_ReadsOwnWrites() throws SQLException {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        inTransaction(false);
+        routing.getConnection();
+
+        // =================================================================
+        // Act & Assert - Same caller, inside then outside the window
+        // =================================================================
+        inTransaction(true);
+        now.addAndGet(500);
+        assertSame(primaryConnection, routing.getConnection());
+
+        now.addAndGet(600);
+        assertSame(firstConnection, routing.getConnection());
+    }
+
+    @Test
+    @DisplayName("Should not hold back other callers after a write")
+    void getConnection_OtherCallerAfterWrite_Replica() throws SQLException {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        inTransaction(false);
+        routing.getConnection();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("other@studio.com", null, Collections.emptyList()));
+        inTransaction(true);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertSame(firstConnection, routing.getConnection());
+    }
+
+    @Test
+    @DisplayName("Should read from the primary while pinned")
+    void onPrimary_ReadOnly_Primary() throws SQLException {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        inTransaction(true);
+
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertSame(primaryConnection, ReplicaRoutingDataSource.onPrimary(this::connection));
+        assertSame(firstConnection, routing.getConnection());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the primary and skip a replica that fails until it recovers")
+    void getConnection_ReplicaDown_FallsBack() throws SQLException {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        inTransaction(true);
+        when(first.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        // =================================================================
+        // Act & Assert - The failing replica is skipped afterwards
+        // =================================================================
+        assertSame(primaryConnection, routing.getConnection());
+        assertFalse(routing.isHealthy("first"));
+        assertSame(secondConnection, routing.getConnection());
+        assertSame(secondConnection, routing.getConnection());
+
+        // =================================================================
+        // Act & Assert - The health check brings it back
+        // =================================================================
+        reset(first);
+        when(first.getConnection()).thenReturn(firstConnection);
+        when(firstConnection.isValid(anyInt())).thenReturn(true);
+        when(secondConnection.isValid(anyInt())).thenReturn(true);
+        routing.checkHealth();
+
+        assertTrue(routing.isHealthy("first"));
+    }
+
+    private Connection connection() {
+        try {
+            return routing.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void inTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+}
@@ -0,0 +1,124 @@
+package com.openclassrooms.starterjwt.Datasource;
+
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for read-replica routing, with a second H2
+// database standing in for the replica
+// =================================================================
+@SpringBootTest(properties = {
+        "oc.app.replicas.urls=" + ReplicaRoutingIntegrationTest.REPLICA_URL,
+        "oc.app.replicas.readYourWritesMs=0"
+})
+@ActiveProfiles("test")
+@DisplayName("Replica Routing Integration Tests")
+public class ReplicaRoutingIntegrationTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=MySQL";
+
+    private static final DriverManagerDataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void migrateReplica() throws Exception {
+        Flyway.configure().dataSource(replica).load().migrate();
+        new JdbcTemplate(replica).update(
+                "INSERT INTO TEACHERS (id, first_name, last_name) VALUES (9001, 'Only', 'OnReplica')");
+        new JdbcTemplate(replica).update(
+                "INSERT INTO SESSIONS (id, name, description, date) VALUES (9001, 'OnReplica', 'd', CURRENT_TIMESTAMP)");
+    }
+
+    @AfterAll
+    static void dropReplica() {
+        new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'OnPrimary'");
+    }
+
+    @Test
+    @DisplayName("Should serve read-only service calls from the replica")
+    void readOnlyTransaction_ReadsReplica() {
+        // =================================================================
+        // Act
+        // =================================================================
+        Teacher teacher = teacherService.findById(9001L);
+
+        // =================================================================
+        // Assert - The marker row exists only in the replica
+        // =================================================================
+        assertNotNull(teacher);
+        assertEquals("OnReplica", teacher.getLastName());
+    }
+
+    @Test
+    @DisplayName("Should read the cached lists from the primary")
+    void cachedLists_ReadPrimary() {
+        // =================================================================
+        // Act
+        // =================================================================
+        List<String> lastNames = teacherService.findAll().stream().map(Teacher::getLastName).collect(Collectors.toList());
+        List<String> rowLastNames = teacherService.findAllRows().stream().map(TeacherDto::getLastName).collect(Collectors.toList());
+        List<String> sessionNames = sessionService.findAll(SessionFieldSet.parse("name", null)).stream()
+                .map(Session::getName).collect(Collectors.toList());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertFalse(lastNames.contains("OnReplica"));
+        assertFalse(rowLastNames.contains("OnReplica"));
+        assertFalse(sessionNames.contains("OnReplica"));
+    }
+
+    @Test
+    @DisplayName("Should send writes to the primary")
+    void writeTransaction_WritesPrimary() {
+        // =================================================================
+        // Act
+        // =================================================================
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "INSERT INTO TEACHERS (id, first_name, last_name) VALUES (9002, 'Only', 'OnPrimary')"));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TEACHERS WHERE last_name = 'OnPrimary'", Integer.class));
+        assertEquals(0, new JdbcTemplate(replica).queryForObject("SELECT COUNT(*) FROM TEACHERS WHERE last_name = 'OnPrimary'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TEACHERS WHERE last_name = 'OnReplica'", Integer.class));
+    }
+}
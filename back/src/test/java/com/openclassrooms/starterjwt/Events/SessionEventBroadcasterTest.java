@@ -0,0 +1,176 @@
+package com.openclassrooms.starterjwt.Events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.events.SessionEvent;
+import com.openclassrooms.starterjwt.events.SessionEventBroadcaster;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Unit tests for the SSE broadcaster, using emitters that record the
+// frames they are asked to send
+// =================================================================
+@DisplayName("SessionEventBroadcaster Unit Tests")
+public class SessionEventBroadcasterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor();
+
+    private SessionEventBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+        heartbeats.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should push each event once to every subscriber")
+    void publish_DeliversToAllSubscribers() {
+        // =================================================================
+        // Arrange - Senders run inline so delivery is immediate
+        // =================================================================
+        broadcaster = broadcaster(64, Runnable::run);
+        broadcaster.subscribe();
+        broadcaster.subscribe();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        broadcaster.publish(SessionEvent.occupancy(1L, 3));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, emitters.size());
+        for (RecordingEmitter emitter : emitters) {
+            assertEquals(1, emitter.frames.size());
+            assertTrue(emitter.frames.get(0).contains("event:occupancy"));
+            assertTrue(emitter.frames.get(0).contains("{\"type\":\"occupancy\",\"id\":1,\"participants\":3}"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should disconnect a client whose buffer overflows without affecting others")
+    void publish_SlowConsumer_IsDisconnected() {
+        // =================================================================
+        // Arrange - The first client's sender never runs, so its buffer
+        // only fills up
+        // =================================================================
+        List<Runnable> stalled = new ArrayList<>();
+        broadcaster = broadcaster(2, stalled::add);
+        broadcaster.subscribe();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        broadcaster.publish(SessionEvent.occupancy(1L, 1));
+        broadcaster.publish(SessionEvent.occupancy(1L, 2));
+        broadcaster.publish(SessionEvent.occupancy(1L, 3));
+
+        // =================================================================
+        // Assert - Only one drain was queued and the client is gone
+        // =================================================================
+        assertEquals(1, stalled.size());
+        assertEquals(0, broadcaster.getClientCount());
+        assertTrue(emitters.get(0).completed);
+    }
+
+    @Test
+    @DisplayName("Should drop a client whose connection fails")
+    void publish_SendFails_RemovesClient() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        broadcaster = broadcaster(64, Runnable::run);
+        broadcaster.subscribe();
+        emitters.get(0).failing = true;
+
+        // =================================================================
+        // Act
+        // =================================================================
+        broadcaster.publish(SessionEvent.deleted(1L));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(0, broadcaster.getClientCount());
+    }
+
+    @Test
+    @DisplayName("Should send heartbeat comments to idle clients")
+    void heartbeat_SendsComment() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        broadcaster = broadcaster(64, Runnable::run);
+        broadcaster.subscribe();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        broadcaster.heartbeat();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, emitters.get(0).frames.size());
+        assertTrue(emitters.get(0).frames.get(0).startsWith(":heartbeat"));
+        assertEquals(1, broadcaster.getClientCount());
+    }
+
+    private SessionEventBroadcaster broadcaster(int bufferSize, Executor senders) {
+        return new SessionEventBroadcaster(objectMapper, bufferSize, 60000, senders, heartbeats) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMs) {
+                RecordingEmitter emitter = new RecordingEmitter(timeoutMs);
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        private volatile boolean completed;
+
+        private RecordingEmitter(long timeoutMs) {
+            super(timeoutMs);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            frames.add(builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+}
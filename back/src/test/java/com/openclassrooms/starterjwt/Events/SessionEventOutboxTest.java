@@ -0,0 +1,261 @@
+package com.openclassrooms.starterjwt.Events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.events.SessionEvent;
+import com.openclassrooms.starterjwt.events.SessionEventOutbox;
+import com.openclassrooms.starterjwt.events.SessionEventSubscriber;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.OutboxJdbcRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the session event outbox: events are written
+// with the change and relayed to a recording subscriber standing in
+// for a broker, at least once and in order
+// =================================================================
+@SpringBootTest(properties = {"oc.app.outboxRelay=" + SessionEventOutboxTest.RELAY, "oc.app.outboxBatchSize=2",
+        "oc.app.outboxSettleMs=" + SessionEventOutboxTest.SETTLE_MS})
+@ActiveProfiles("test")
+@Import(SessionEventOutboxTest.RecordingSubscriberConfig.class)
+@DisplayName("Session Event Outbox Integration Tests")
+public class SessionEventOutboxTest {
+
+    static final String RELAY = "outbox-test";
+
+    static final long SETTLE_MS = 200;
+
+    @Autowired
+    private SessionEventOutbox eventOutbox;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OutboxJdbcRepository outboxJdbcRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Session session;
+
+    private User member;
+
+    @BeforeEach
+    void setUp() {
+        member = userRepository.save(new User("member@outbox.com", "Member", "Outbox", "x", false));
+        session = sessionService.create(Session.builder().name("Outbox").description("d")
+                .date(Timestamp.valueOf(LocalDateTime.of(2031, 7, 1, 9, 0))).users(new ArrayList<>()).build());
+
+        // Starts the relay's checkpoint, then skips whatever earlier tests left behind, gaps included.
+        // The second pass waits for any relay woken by a commit to finish first
+        eventOutbox.relayAll();
+        jdbcTemplate.update("UPDATE OUTBOX_CHECKPOINTS SET last_id = (SELECT MAX(id) FROM OUTBOX) WHERE relay = ?", RELAY);
+        eventOutbox.relayAll();
+        subscriber.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscriber.failures.set(0);
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Outbox%'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@outbox.com'");
+    }
+
+    @Test
+    @DisplayName("Should write the event with the change and relay it once, in order, for its studio")
+    void relayAll_CommittedEvents_RelayedInOrder() {
+        // =================================================================
+        // Act
+        // =================================================================
+        sessionService.participate(session.getId(), member.getId());
+        sessionService.noLongerParticipate(session.getId(), member.getId());
+        sessionService.delete(session.getId());
+        eventOutbox.relayAll();
+
+        // =================================================================
+        // Assert - Three events, more than a batch's worth, and none the next time
+        // =================================================================
+        assertEquals(Arrays.asList(SessionEvent.occupancy(session.getId(), 1), SessionEvent.occupancy(session.getId(), 0),
+                SessionEvent.deleted(session.getId())), subscriber.events());
+        assertTrue(subscriber.studios.stream().allMatch(TenantContext.DEFAULT::equals));
+        assertEquals(0, eventOutbox.relayAll());
+        assertEquals(3, subscriber.events().size());
+    }
+
+    @Test
+    @DisplayName("Should write no event for a change that is rolled back")
+    void record_RolledBack_NothingRelayed() {
+        // =================================================================
+        // Act
+        // =================================================================
+        new TransactionTemplate(transactionManager).execute(status -> {
+            sessionService.participate(session.getId(), member.getId());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(0, eventOutbox.relayAll());
+        assertTrue(subscriber.events().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should relay an event again after its subscriber failed")
+    void relayAll_SubscriberFails_RetriedOnNextPass() throws JsonProcessingException {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        subscriber.failures.set(1);
+        append(SessionEvent.occupancy(session.getId(), 1), LocalDateTime.now());
+
+        // =================================================================
+        // Act - A relay woken in the background may take either pass
+        // =================================================================
+        eventOutbox.relayAll();
+        eventOutbox.relayAll();
+
+        // =================================================================
+        // Assert - Failed once, then delivered once
+        // =================================================================
+        assertEquals(0, subscriber.failures.get());
+        assertEquals(Arrays.asList(SessionEvent.occupancy(session.getId(), 1)), subscriber.events());
+    }
+
+    @Test
+    @DisplayName("Should wait behind missing ids for one settle time, however old the events after them")
+    void relayAll_Gaps_HeldBackUntilSettled() throws JsonProcessingException, InterruptedException {
+        // =================================================================
+        // Arrange - Two ids are missing, as if long transactions still held them
+        // =================================================================
+        LocalDateTime longAgo = LocalDateTime.now().minusMinutes(1);
+        append(SessionEvent.occupancy(session.getId(), 1), longAgo);
+        append(SessionEvent.occupancy(session.getId(), 2), longAgo);
+        append(SessionEvent.occupancy(session.getId(), 3), longAgo);
+        append(SessionEvent.occupancy(session.getId(), 4), longAgo);
+        Long last = jdbcTemplate.queryForObject("SELECT MAX(id) FROM OUTBOX", Long.class);
+        jdbcTemplate.update("DELETE FROM OUTBOX WHERE id IN (?, ?)", last - 3, last - 1);
+
+        // =================================================================
+        // Act & Assert - Held back when first seen, both skipped after a single settle time
+        // =================================================================
+        eventOutbox.relayAll();
+        assertTrue(subscriber.events().isEmpty());
+
+        Thread.sleep(SETTLE_MS);
+        eventOutbox.relayAll();
+        assertEquals(Arrays.asList(SessionEvent.occupancy(session.getId(), 2), SessionEvent.occupancy(session.getId(), 4)),
+                subscriber.events());
+    }
+
+    @Test
+    @DisplayName("Should still relay an event committed after its id was skipped")
+    void relayAll_CommittedAfterSkip_RelayedLate() throws JsonProcessingException, InterruptedException {
+        // =================================================================
+        // Arrange - The first id is skipped once settled
+        // =================================================================
+        append(SessionEvent.occupancy(session.getId(), 1), LocalDateTime.now());
+        append(SessionEvent.occupancy(session.getId(), 0), LocalDateTime.now());
+        Long skipped = jdbcTemplate.queryForObject("SELECT MAX(id) - 1 FROM OUTBOX", Long.class);
+        jdbcTemplate.update("DELETE FROM OUTBOX WHERE id = ?", skipped);
+        eventOutbox.relayAll();
+        Thread.sleep(SETTLE_MS);
+        eventOutbox.relayAll();
+
+        // =================================================================
+        // Act - Its transaction commits at last
+        // =================================================================
+        jdbcTemplate.update("INSERT INTO OUTBOX (id, studio_id, type, payload, created_at) VALUES (?, ?, ?, ?, ?)",
+                skipped, TenantContext.DEFAULT, SessionEvent.occupancy(session.getId(), 1).getType(),
+                objectMapper.writeValueAsString(SessionEvent.occupancy(session.getId(), 1)), Timestamp.valueOf(LocalDateTime.now()));
+        eventOutbox.relayAll();
+
+        // =================================================================
+        // Assert - Relayed late, out of order, and only once
+        // =================================================================
+        assertEquals(Arrays.asList(SessionEvent.occupancy(session.getId(), 0), SessionEvent.occupancy(session.getId(), 1)),
+                subscriber.events());
+        assertEquals(0, eventOutbox.relayAll());
+    }
+
+    // Straight to the table, so no commit wakes the relay behind the test's back
+    private void append(SessionEvent event, LocalDateTime createdAt) throws JsonProcessingException {
+        outboxJdbcRepository.append(event.getType(), objectMapper.writeValueAsString(event), Timestamp.valueOf(createdAt));
+    }
+
+    @TestConfiguration
+    static class RecordingSubscriberConfig {
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+    // Records what it receives, after failing as many times as asked
+    static class RecordingSubscriber implements SessionEventSubscriber {
+        private final List<SessionEvent> received = new CopyOnWriteArrayList<>();
+
+        private final List<String> studios = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void onSessionEvent(SessionEvent event) {
+            if (failures.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+                throw new IllegalStateException("Subscriber down");
+            }
+            received.add(event);
+            studios.add(TenantContext.current());
+        }
+
+        List<SessionEvent> events() {
+            return new ArrayList<>(received);
+        }
+
+        void clear() {
+            received.clear();
+            studios.clear();
+        }
+    }
+}
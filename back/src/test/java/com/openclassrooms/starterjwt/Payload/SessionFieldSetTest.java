@@ -0,0 +1,49 @@
+package com.openclassrooms.starterjwt.Payload;
+
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Tests for the fields/expand query parameter parsing
+// =================================================================
+class SessionFieldSetTest {
+
+    @Test
+    @DisplayName("Should select every field when no parameters are given")
+    void parse_NoParameters_IsDefault() {
+        SessionFieldSet fieldSet = SessionFieldSet.parse(null, null);
+
+        assertTrue(fieldSet.isDefault());
+        SessionFieldSet.FIELDS.forEach(field -> assertTrue(fieldSet.includes(field)));
+    }
+
+    @Test
+    @DisplayName("Should always include the id and the users an expansion needs")
+    void parse_FieldsWithExpansion_AddsImpliedFields() {
+        SessionFieldSet fieldSet = SessionFieldSet.parse("name", "users");
+
+        assertFalse(fieldSet.isDefault());
+        assertTrue(fieldSet.includes(SessionFieldSet.ID));
+        assertTrue(fieldSet.includes(SessionFieldSet.USERS));
+        assertFalse(fieldSet.includes(SessionFieldSet.DESCRIPTION));
+        assertTrue(fieldSet.expandUsers());
+        assertFalse(fieldSet.expandTeacher());
+    }
+
+    @Test
+    @DisplayName("Should build the same key regardless of parameter order")
+    void key_IsCanonical() {
+        assertEquals(SessionFieldSet.parse("date, name", "users,teacher").key(),
+                SessionFieldSet.parse("name,date", "teacher,users").key());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown fields and expansions")
+    void parse_UnknownNames_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> SessionFieldSet.parse("password", null));
+        assertThrows(IllegalArgumentException.class, () -> SessionFieldSet.parse(null, "description"));
+    }
+}
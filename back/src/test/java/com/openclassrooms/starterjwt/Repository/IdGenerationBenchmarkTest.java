@@ -0,0 +1,107 @@
+package com.openclassrooms.starterjwt.Repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.SessionDeletion;
+import com.openclassrooms.starterjwt.repository.SessionDeletionRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Insert throughput with pooled table ids (sessions) against
+// IDENTITY ids (tombstones), on the H2 test database. Left out of
+// the default build; run it with -DexcludedGroups= -Dgroups=benchmark
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+@DisplayName("ID Generation Benchmark")
+public class IdGenerationBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(IdGenerationBenchmarkTest.class);
+
+    private static final int ROWS = 500;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private SessionDeletionRepository sessionDeletionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAllInBatch();
+        sessionDeletionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Should batch inserts of entities with pooled ids")
+    void saveAll_PooledIds_InsertsInBatches() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        List<Session> sessions = new ArrayList<>();
+        List<SessionDeletion> tombstones = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            sessions.add(Session.builder().name("Session " + i).date(new Date()).description("Bulk").users(new ArrayList<>()).build());
+            tombstones.add(SessionDeletion.builder().sessionId((long) i).deletedAt(LocalDateTime.now()).build());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // =================================================================
+        // Act - Warm up once, then time each id strategy
+        // =================================================================
+        sessionDeletionRepository.saveAll(copy(tombstones.subList(0, 10)));
+
+        statistics.clear();
+        long start = System.nanoTime();
+        sessionDeletionRepository.saveAll(tombstones);
+        long identityNanos = System.nanoTime() - start;
+        long identityStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        start = System.nanoTime();
+        List<Session> saved = sessionRepository.saveAll(sessions);
+        long pooledNanos = System.nanoTime() - start;
+        long pooledStatements = statistics.getPrepareStatementCount();
+
+        logger.info("ID generation benchmark: {} rows, IDENTITY {} statements in {} ms, pooled table {} statements in {} ms",
+                ROWS, identityStatements, identityNanos / 1_000_000, pooledStatements, pooledNanos / 1_000_000);
+
+        // =================================================================
+        // Assert - One statement per row before, a handful of batches after
+        // =================================================================
+        assertEquals(ROWS, identityStatements);
+        assertTrue(pooledStatements <= ROWS / 50 + 2, "statements: " + pooledStatements);
+
+        List<Long> ids = saved.stream().map(Session::getId).sorted().collect(Collectors.toList());
+        assertEquals(ROWS, ids.stream().distinct().count());
+        assertEquals(ROWS, sessionRepository.count());
+    }
+
+    private static List<SessionDeletion> copy(List<SessionDeletion> tombstones) {
+        return tombstones.stream()
+                .map(t -> SessionDeletion.builder().sessionId(t.getSessionId()).deletedAt(t.getDeletedAt()).build())
+                .collect(Collectors.toList());
+    }
+}
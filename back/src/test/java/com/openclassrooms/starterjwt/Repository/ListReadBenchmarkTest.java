@@ -0,0 +1,148 @@
+package com.openclassrooms.starterjwt.Repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionJdbcRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherJdbcRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Throughput of what GET /api/session and GET /api/teacher do on a
+// response cache miss, JPA entities mapped to DTOs against plain
+// JDBC, serialization included, on the H2 test database. Left out
+// of the default build; run it with -DexcludedGroups= -Dgroups=benchmark
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+@DisplayName("List Read Benchmark")
+public class ListReadBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(ListReadBenchmarkTest.class);
+
+    private static final int ROWS = 300;
+
+    private static final int WARMUP = 20;
+
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private SessionJdbcRepository sessionJdbcRepository;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private TeacherJdbcRepository teacherJdbcRepository;
+
+    @Autowired
+    private TeacherMapper teacherMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        List<Teacher> teachers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            teachers.add(Teacher.builder().firstName("Bench " + i).lastName("Benchmark").build());
+        }
+        teachers = teacherRepository.saveAll(teachers);
+
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            sessions.add(Session.builder().name("Benchmark " + i).date(new Date()).description("A fairly long description " + i)
+                    .teacher(teachers.get(i)).users(new ArrayList<>()).build());
+        }
+        sessionRepository.saveAll(sessions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Benchmark %'");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'Benchmark'");
+    }
+
+    @Test
+    @DisplayName("Should serve the same session list through JPA and JDBC")
+    void sessions_JdbcAgainstJpa() {
+        int jpa = measure("GET /api/session JPA", () -> sessionMapper.toDto(sessionRepository.findAllForList()));
+        int jdbc = measure("GET /api/session JDBC", sessionJdbcRepository::findAll);
+
+        assertEquals(jpa, jdbc);
+    }
+
+    @Test
+    @DisplayName("Should serve the same teacher list through JPA and JDBC")
+    void teachers_JdbcAgainstJpa() {
+        int jpa = measure("GET /api/teacher JPA", () -> teacherMapper.toDto(teacherRepository.findAll()));
+        int jdbc = measure("GET /api/teacher JDBC", teacherJdbcRepository::findAll);
+
+        assertEquals(jpa, jdbc);
+    }
+
+    // Each load runs in a transaction of its own, as the services do, and is serialized as the response
+    // cache does. Returns the number of rows loaded
+    private int measure(String path, Supplier<List<?>> load) {
+        List<?> rows = null;
+        for (int i = 0; i < WARMUP; i++) {
+            rows = transactionTemplate.execute(status -> load.get());
+        }
+        byte[] body = serialize(rows);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serialize(transactionTemplate.execute(status -> load.get()));
+        }
+        long nanos = System.nanoTime() - start;
+
+        logger.info("List read benchmark {}: {} rows x {} loads, {} loads/s, {} KB/response",
+                path, ROWS, ITERATIONS, Math.round(ITERATIONS * 1e9 / nanos), body.length / 1024);
+        assertTrue(rows.size() >= ROWS);
+        return rows.size();
+    }
+
+    private byte[] serialize(List<?> list) {
+        try {
+            return objectMapper.writeValueAsBytes(list);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
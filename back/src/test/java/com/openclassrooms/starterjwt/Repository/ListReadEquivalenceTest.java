@@ -0,0 +1,159 @@
+package com.openclassrooms.starterjwt.Repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionJdbcRepository;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherJdbcRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests checking that the JDBC list reads serialize to
+// exactly what the JPA path returns
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("List Read Equivalence Tests")
+public class ListReadEquivalenceTest {
+
+    private static final String OTHER_STUDIO = "lotus";
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private SessionJdbcRepository sessionJdbcRepository;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private TeacherJdbcRepository teacherJdbcRepository;
+
+    @Autowired
+    private TeacherMapper teacherMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Eq").lastName("Teacher").build());
+        User first = userRepository.save(new User("first@equivalence.com", "First", "F", "x", false));
+        User second = userRepository.save(new User("second@equivalence.com", "Second", "S", "x", false));
+
+        sessionRepository.save(Session.builder().name("Booked").date(new Date()).description("Two participants")
+                .teacher(teacher).users(new ArrayList<>(Arrays.asList(second, first))).build());
+        sessionRepository.save(Session.builder().name("Empty").date(new Date()).description("Nobody yet")
+                .teacher(teacher).users(new ArrayList<>()).build());
+        sessionRepository.save(Session.builder().name("Untaught").date(new Date()).description("No teacher")
+                .users(new ArrayList<>(Arrays.asList(first))).build());
+        TenantContext.callAs(OTHER_STUDIO, () -> sessionRepository.save(Session.builder().name("Elsewhere")
+                .date(new Date()).description("Other studio").users(new ArrayList<>()).build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name IN ('Booked', 'Empty', 'Untaught', 'Elsewhere')");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'Teacher'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@equivalence.com'");
+    }
+
+    @Test
+    @DisplayName("Should read the same sessions, teachers and participants through JDBC as through JPA")
+    void sessions_JdbcMatchesJpa() {
+        // =================================================================
+        // Act
+        // =================================================================
+        List<SessionDto> jpa = normalize(sessionMapper.toDto(sessionRepository.findAllForList()));
+        List<SessionDto> jdbc = normalize(sessionJdbcRepository.findAll());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertTrue(jdbc.stream().anyMatch(s -> s.getTeacher_id() == null));
+        assertTrue(jdbc.stream().anyMatch(s -> s.getUsers().size() == 2));
+        assertFalse(jdbc.stream().anyMatch(s -> s.getName().equals("Elsewhere")));
+        assertEquals(json(jpa), json(jdbc));
+    }
+
+    @Test
+    @DisplayName("Should read the same teachers through JDBC as through JPA")
+    void teachers_JdbcMatchesJpa() {
+        // =================================================================
+        // Act
+        // =================================================================
+        List<TeacherDto> jpa = teacherMapper.toDto(teacherRepository.findAll());
+        jpa.sort(Comparator.comparing(TeacherDto::getId));
+        List<TeacherDto> jdbc = teacherJdbcRepository.findAll();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertFalse(jdbc.isEmpty());
+        assertEquals(json(jpa), json(jdbc));
+    }
+
+    @Test
+    @DisplayName("Should only read the current studio's rows")
+    void otherStudio_SeesOnlyItsSessions() {
+        // =================================================================
+        // Act
+        // =================================================================
+        List<String> names = TenantContext.callAs(OTHER_STUDIO,
+                () -> sessionJdbcRepository.findAll().stream().map(SessionDto::getName).collect(Collectors.toList()));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(Arrays.asList("Elsewhere"), names);
+        assertTrue(TenantContext.callAs(OTHER_STUDIO, teacherJdbcRepository::findAll).isEmpty());
+    }
+
+    // Neither path promises an order for sessions or their participants
+    private static List<SessionDto> normalize(List<SessionDto> sessions) {
+        sessions.forEach(session -> session.getUsers().sort(Comparator.naturalOrder()));
+        sessions.sort(Comparator.comparing(SessionDto::getId));
+        return sessions;
+    }
+
+    private JsonNode json(Object value) {
+        return objectMapper.valueToTree(value);
+    }
+}
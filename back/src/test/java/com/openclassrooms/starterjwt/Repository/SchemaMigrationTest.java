@@ -0,0 +1,151 @@
+package com.openclassrooms.starterjwt.Repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the versioned migrations: history, keys,
+// and the indexes the hot queries rely on (checked with EXPLAIN)
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Schema Migration Integration Tests")
+public class SchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name = 'Migration'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email = 'migration@test.com'");
+    }
+
+    @Test
+    @DisplayName("Should record every applied migration in order")
+    void migrate_RecordsHistory() {
+        // =================================================================
+        // Act
+        // =================================================================
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL ORDER BY \"installed_rank\"", String.class);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertTrue(versions.size() >= 2);
+        assertEquals("1", versions.get(0));
+        assertEquals("2", versions.get(1));
+    }
+
+    @Test
+    @DisplayName("Should baseline a schema created before migrations and apply only the newer ones")
+    void migrate_ExistingSchema_Baselined() throws Exception {
+        // =================================================================
+        // Arrange - A separate database set up by hand with the old script, and rows
+        // the old schema let through: a repeated email and a repeated participation
+        // =================================================================
+        DriverManagerDataSource legacy = new DriverManagerDataSource("jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(legacy);
+        JdbcTemplate legacyJdbc = new JdbcTemplate(legacy);
+        legacyJdbc.update("INSERT INTO USERS (id, first_name, last_name, email, password) VALUES (11, 'A', 'A', 'twice@test.com', 'x')");
+        legacyJdbc.update("INSERT INTO USERS (id, first_name, last_name, email, password) VALUES (12, 'B', 'B', 'twice@test.com', 'x')");
+        legacyJdbc.update("INSERT INTO SESSIONS (id, name, description, date) VALUES (11, 'Legacy', 'd', CURRENT_TIMESTAMP)");
+        legacyJdbc.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (11, 11)");
+        legacyJdbc.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (11, 11)");
+        legacyJdbc.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (11, 12)");
+
+        // =================================================================
+        // Act - Migrating twice is a no-op the second time
+        // =================================================================
+        Flyway flyway = Flyway.configure().dataSource(legacy).baselineOnMigrate(true).baselineVersion("1").load();
+        flyway.migrate();
+        assertEquals(0, flyway.migrate().migrationsExecuted);
+
+        // =================================================================
+        // Assert - Baselined at V1, duplicates merged into the oldest account
+        // =================================================================
+        assertEquals(11, legacyJdbc.queryForObject("SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL", Integer.class));
+        assertEquals(1, legacyJdbc.queryForObject("SELECT COUNT(*) FROM TEACHERS WHERE last_name = 'DELAHAYE'", Integer.class));
+        assertEquals(11, legacyJdbc.queryForObject("SELECT id FROM USERS WHERE email = 'twice@test.com'", Integer.class));
+        assertEquals(1, legacyJdbc.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = 11", Integer.class));
+        legacyJdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    @DisplayName("Should reject a duplicate participation and a duplicate email")
+    void migrate_AddsParticipateKeyAndEmailUniqueIndex() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        jdbcTemplate.update("INSERT INTO USERS (id, first_name, last_name, email, password) VALUES (9001, 'M', 'M', 'migration@test.com', 'x')");
+        jdbcTemplate.update("INSERT INTO SESSIONS (id, name, description, date) VALUES (9001, 'Migration', 'd', CURRENT_TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (9001, 9001)");
+
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (9001, 9001)"));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO USERS (id, first_name, last_name, email, password) VALUES (9002, 'M', 'M', 'migration@test.com', 'x')"));
+    }
+
+    @Test
+    @DisplayName("Should leave ids to the generator table instead of auto-increment")
+    void migrate_MovesIdsToGeneratorTable() {
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ID_GENERATORS WHERE sequence_name = 'SESSIONS'", Integer.class));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO TEACHERS (first_name, last_name) VALUES ('M', 'Migration')"));
+    }
+
+    @Test
+    @DisplayName("Should serve the hot queries from indexes")
+    void hotQueries_UseIndexes() {
+        // =================================================================
+        // Assert - Participants of a session, and sessions of a user
+        // =================================================================
+        assertUsesIndex("SELECT user_id FROM PARTICIPATE WHERE session_id = 1", "PRIMARY_KEY");
+        // H2 may pick the foreign key's own index here, which is equally good
+        assertUsesIndex("SELECT session_id FROM PARTICIPATE WHERE user_id = 1", "USER_ID = 1");
+
+        // =================================================================
+        // Assert - Delta sync, tombstones and the session calendar
+        // =================================================================
+        assertUsesIndex("SELECT id FROM SESSIONS WHERE updated_at >= CURRENT_TIMESTAMP", "IDX_SESSIONS_UPDATED_AT");
+        assertUsesIndex("SELECT session_id FROM SESSION_DELETIONS WHERE deleted_at >= CURRENT_TIMESTAMP", "IDX_SESSION_DELETIONS_DELETED_AT");
+        assertUsesIndex("SELECT id FROM SESSIONS WHERE date >= CURRENT_TIMESTAMP", "IDX_SESSIONS_DATE");
+
+        // =================================================================
+        // Assert - Login lookup by email, and the studio filter
+        // =================================================================
+        assertUsesIndex("SELECT id FROM USERS WHERE studio_id = 'default' AND email = 'yoga@studio.com'", "UK_USERS_STUDIO_EMAIL");
+        assertUsesIndex("SELECT id FROM TEACHERS WHERE studio_id = 'default'", "IDX_TEACHERS_STUDIO");
+        assertUsesIndex("SELECT id FROM SESSIONS WHERE studio_id = 'default' AND date >= CURRENT_TIMESTAMP", "IDX_SESSIONS_STUDIO_DATE");
+    }
+
+    private void assertUsesIndex(String query, String index) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        assertNotNull(plan);
+        assertFalse(plan.contains("tableScan"), "Table scan in plan: " + plan);
+        assertTrue(plan.toUpperCase().contains(index), "Expected " + index + " in plan: " + plan);
+    }
+}
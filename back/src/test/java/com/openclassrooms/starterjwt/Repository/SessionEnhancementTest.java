@@ -0,0 +1,109 @@
+package com.openclassrooms.starterjwt.Repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the build-time enhanced Session entity:
+// lazy description and in-line dirty tracking
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Session Bytecode Enhancement Tests")
+public class SessionEnhancementTest {
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long sessionId;
+
+    @BeforeEach
+    void setUp() {
+        sessionId = sessionRepository.save(Session.builder().name("Enhanced").date(new Date())
+                .description("A long description").users(new ArrayList<>()).build()).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteById(sessionId);
+    }
+
+    @Test
+    @DisplayName("Should leave the description unloaded until it is read")
+    void findForBooking_DescriptionLoadedOnAccess() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // =================================================================
+            // Act
+            // =================================================================
+            Session session = sessionRepository.findForBookingById(sessionId).orElseThrow(AssertionError::new);
+
+            // =================================================================
+            // Assert
+            // =================================================================
+            assertFalse(Hibernate.isPropertyInitialized(session, "description"));
+            assertEquals("A long description", session.getDescription());
+            assertTrue(Hibernate.isPropertyInitialized(session, "description"));
+        });
+    }
+
+    @Test
+    @DisplayName("Should load the description with the list, which is served outside any transaction")
+    void findAllForList_DescriptionLoaded() {
+        // =================================================================
+        // Act
+        // =================================================================
+        List<Session> sessions = sessionRepository.findAllForList();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        Session session = sessions.stream().filter(s -> s.getId().equals(sessionId)).findFirst().orElseThrow(AssertionError::new);
+        assertTrue(Hibernate.isPropertyInitialized(session, "description"));
+        assertEquals("A long description", session.getDescription());
+    }
+
+    @Test
+    @DisplayName("Should track changed attributes on the entity itself")
+    void setName_TrackedAsDirty() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // =================================================================
+            // Arrange
+            // =================================================================
+            Session session = sessionRepository.findForBookingById(sessionId).orElseThrow(AssertionError::new);
+            SelfDirtinessTracker tracker = (SelfDirtinessTracker) session;
+            assertFalse(tracker.$$_hibernate_hasDirtyAttributes());
+
+            // =================================================================
+            // Act
+            // =================================================================
+            session.setName("Renamed");
+
+            // =================================================================
+            // Assert
+            // =================================================================
+            assertEquals(Arrays.asList("name"), Arrays.asList(tracker.$$_hibernate_getDirtyAttributes()));
+        });
+
+        assertEquals("Renamed", sessionRepository.findById(sessionId).orElseThrow(AssertionError::new).getName());
+    }
+}
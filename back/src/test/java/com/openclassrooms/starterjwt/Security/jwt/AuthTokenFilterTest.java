@@ -3,10 +3,12 @@ package com.openclassrooms.starterjwt.Security.jwt;
 import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -24,6 +26,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
 
 import org.junit.jupiter.api.DisplayName;
 // =================================================================
@@ -91,6 +94,7 @@ class AuthTokenFilterTest {
 
         when(request.getHeader("Authorization")).thenReturn(bearerToken);
         when(jwtUtils.validateJwtToken(token)).thenReturn(true);
+        when(jwtUtils.getStudioFromJwtToken(token)).thenReturn("default");
         when(jwtUtils.getUserNameFromJwtToken(token)).thenReturn("test@test.com");
         when(userDetailsService.loadUserByUsername("test@test.com")).thenReturn(userDetails);
 
@@ -174,4 +178,62 @@ class AuthTokenFilterTest {
         assertNull(SecurityContextHolder.getContext().getAuthentication());
     }
 
-}
\ No newline at end of file
+    // =================================================================
+    // Test studio resolution
+    // =================================================================
+
+    @Test
+    @DisplayName("Should act for the studio in the token while the request runs")
+    void doFilter_WithValidToken_ShouldActForTokenStudio() throws ServletException, IOException {
+
+        // =================================================================
+        // Arrange - The token names a studio, the header tries another
+        // =================================================================
+        String token = "valid.jwt.token";
+        AtomicReference<String> studioDuringRequest = new AtomicReference<>();
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(jwtUtils.validateJwtToken(token)).thenReturn(true);
+        when(jwtUtils.getStudioFromJwtToken(token)).thenReturn("zen-loft");
+        when(jwtUtils.getUserNameFromJwtToken(token)).thenReturn("test@test.com");
+        when(userDetailsService.loadUserByUsername("test@test.com")).thenReturn(userDetails);
+        doAnswer(invocation -> {
+            studioDuringRequest.set(TenantContext.current());
+            return null;
+        }).when(filterChain).doFilter(request, response);
+
+        // =================================================================
+        // Act - Process the filter chain
+        // =================================================================
+        authTokenFilter.doFilter(request, response, filterChain);
+
+        // =================================================================
+        // Assert - Token studio applied, then cleared
+        // =================================================================
+        assertEquals("zen-loft", studioDuringRequest.get());
+        assertEquals(TenantContext.DEFAULT, TenantContext.current());
+        verify(request, never()).getHeader(AuthTokenFilter.STUDIO_HEADER);
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid studio header before login")
+    void doFilter_WithInvalidStudioHeader_ShouldReject() throws ServletException, IOException {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        when(request.getHeader("Authorization")).thenReturn(null);
+        when(request.getHeader(AuthTokenFilter.STUDIO_HEADER)).thenReturn("../other");
+
+        // =================================================================
+        // Act - Process the filter chain
+        // =================================================================
+        authTokenFilter.doFilter(request, response, filterChain);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+}
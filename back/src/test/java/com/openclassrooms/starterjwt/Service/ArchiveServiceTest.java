@@ -0,0 +1,218 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.ArchiveService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the archive job: old sessions move to the
+// archive tables with their bookings, and are read back from there
+// =================================================================
+@SpringBootTest(properties = {"oc.app.archiveBatchSize=2", "oc.app.archivePauseMs=0",
+        "oc.app.archiveExportDir=target/archive-test"})
+@ActiveProfiles("test")
+@DisplayName("Archive Service Integration Tests")
+public class ArchiveServiceTest {
+
+    private static final Path EXPORT_DIR = Paths.get("target/archive-test");
+
+    private static final LocalDate LONG_AGO = LocalDate.now().minusYears(2);
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User member;
+
+    private List<Session> old;
+
+    private Session upcoming;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Sessions left old by other tests would be archived too
+        archiveService.archiveAll();
+        FileSystemUtils.deleteRecursively(EXPORT_DIR);
+
+        // Three old sessions, more than a batch's worth, and one to come, all booked
+        member = userRepository.save(new User("member@archive.com", "Member", "Archive", "x", false));
+        old = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            old.add(session("Archive old " + i, LONG_AGO.plusDays(i).atTime(9, 0)));
+        }
+        upcoming = session("Archive upcoming", LocalDate.now().plusDays(7).atTime(9, 0));
+        for (Session session : old) {
+            sessionService.participate(session.getId(), member.getId());
+        }
+        sessionService.participate(upcoming.getId(), member.getId());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM PARTICIPATE_ARCHIVE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Archive%'");
+        jdbcTemplate.update("DELETE FROM SESSIONS_ARCHIVE WHERE name LIKE 'Archive%'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@archive.com'");
+        FileSystemUtils.deleteRecursively(EXPORT_DIR);
+    }
+
+    @Test
+    @DisplayName("Should move old sessions and their bookings out of the live tables, leaving tombstones")
+    void archiveAll_OldSessions_Moved() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        int archived = archiveService.archiveAll();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(3, archived);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS WHERE name LIKE 'Archive%'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE user_id = ?", Integer.class, member.getId()));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PARTICIPATE_ARCHIVE WHERE user_id = ?", Integer.class, member.getId()));
+        assertTrue(sessionService.findDeletedSince(since).containsAll(ids(old)));
+        assertTrue(sessionService.findAllRows().stream().noneMatch(s -> ids(old).contains(s.getId())));
+        assertEquals(0, archiveService.archiveAll());
+    }
+
+    @Test
+    @DisplayName("Should read archived sessions back by range and by member")
+    void findArchived_RangeAndMember() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        archiveService.archiveAll();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        List<SessionDto> range = archiveService.findArchived(new SessionFilter(LONG_AGO, LONG_AGO.plusDays(1), null));
+        List<SessionDto> history = archiveService.findArchivedByUser(member.getId());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(Arrays.asList(old.get(0).getId(), old.get(1).getId()), range.stream().map(SessionDto::getId).collect(Collectors.toList()));
+        assertEquals("Archive old 0", range.get(0).getName());
+        assertEquals(Collections.singletonList(member.getId()), range.get(0).getUsers());
+        assertEquals(ids(old), history.stream().map(SessionDto::getId).collect(Collectors.toList()));
+        assertTrue(TenantContext.callAs("lotus", () -> archiveService.findArchivedByUser(member.getId())).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should write each archived batch to a gzipped NDJSON file under the studio's folder")
+    void archiveAll_ExportDir_OneFilePerBatch() throws IOException {
+        // =================================================================
+        // Act
+        // =================================================================
+        archiveService.archiveAll();
+
+        // =================================================================
+        // Assert - Batches of two: two files holding the three sessions
+        // =================================================================
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(EXPORT_DIR.resolve(TenantContext.DEFAULT))) {
+            files = listed.sorted().collect(Collectors.toList());
+        }
+        assertEquals(2, files.size());
+        assertTrue(files.stream().allMatch(file -> file.getFileName().toString().endsWith(".ndjson.gz")));
+
+        List<Long> exported = new ArrayList<>();
+        for (Path file : files) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JsonNode session = objectMapper.readTree(line);
+                    exported.add(session.get("id").asLong());
+                    assertEquals(member.getId().longValue(), session.get("users").get(0).asLong());
+                }
+            }
+        }
+        Collections.sort(exported);
+        assertEquals(ids(old), exported);
+    }
+
+    @Test
+    @DisplayName("Should leave deleted sessions to the purge job")
+    void archiveAll_DeletedSession_NotArchived() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        sessionService.delete(old.get(0).getId());
+
+        // =================================================================
+        // Act
+        // =================================================================
+        int archived = archiveService.archiveAll();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, archived);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS_ARCHIVE WHERE id = ?", Integer.class, old.get(0).getId()));
+    }
+
+    private Session session(String name, LocalDateTime date) {
+        return sessionService.create(Session.builder().name(name).description("d").date(Timestamp.valueOf(date))
+                .users(new ArrayList<>()).build());
+    }
+
+    private static List<Long> ids(List<Session> sessions) {
+        return sessions.stream().map(Session::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,195 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.payload.request.BatchRequest;
+import com.openclassrooms.starterjwt.payload.response.BatchResponse;
+import com.openclassrooms.starterjwt.services.BatchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Unit tests for the batch dispatcher, running sub-requests through
+// a real DispatcherServlet over a small test controller
+// =================================================================
+@DisplayName("BatchService Unit Tests")
+public class BatchServiceTest {
+
+    private static CountDownLatch parallelReads;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AnnotationConfigWebApplicationContext context;
+
+    private BatchService batchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // =================================================================
+        // A dispatcher servlet over the echo controller below
+        // =================================================================
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(WebConfig.class, EchoController.class);
+        context.refresh();
+
+        DispatcherServlet dispatcherServlet = new DispatcherServlet(context);
+        dispatcherServlet.init(new MockServletConfig());
+
+        batchService = new BatchService(() -> dispatcherServlet, objectMapper, Executors.newFixedThreadPool(4), 20, 5000);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("yoga@studio.com", null, Collections.emptyList()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchService.shutdown();
+        context.close();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should return results in request order with per-item status codes")
+    void execute_MixedRequests_ResultsInOrder() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        List<BatchRequest> requests = Arrays.asList(
+                new BatchRequest("GET", "/api/echo/1?q=a%20b", null),
+                new BatchRequest("GET", "/api/missing", null),
+                new BatchRequest("POST", "/api/echo", objectMapper.createObjectNode().put("name", "Yoga")),
+                new BatchRequest("GET", "/api/echo/x", null));
+
+        // =================================================================
+        // Act
+        // =================================================================
+        List<BatchResponse> results = execute(requests);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(4, results.size());
+        assertEquals(200, results.get(0).getStatus());
+        assertEquals("1", results.get(0).getBody().get("id").asText());
+        assertEquals("a b", results.get(0).getBody().get("q").asText());
+        assertEquals(404, results.get(1).getStatus());
+        assertEquals(201, results.get(2).getStatus());
+        assertEquals("Yoga", results.get(2).getBody().get("name").asText());
+        assertEquals(400, results.get(3).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should run independent reads in parallel under the batch principal")
+    void execute_Reads_RunInParallelAsCaller() {
+        // =================================================================
+        // Arrange - Each read blocks until all three have started
+        // =================================================================
+        parallelReads = new CountDownLatch(3);
+        List<BatchRequest> requests = Arrays.asList(
+                new BatchRequest("GET", "/api/echo/wait", null),
+                new BatchRequest("GET", "/api/echo/wait", null),
+                new BatchRequest("GET", "/api/echo/wait", null));
+
+        // =================================================================
+        // Act
+        // =================================================================
+        List<BatchResponse> results = execute(requests);
+
+        // =================================================================
+        // Assert - None timed out waiting for the others
+        // =================================================================
+        for (BatchResponse result : results) {
+            assertEquals(200, result.getStatus());
+            assertEquals("yoga@studio.com", result.getBody().get("user").asText());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject sub-requests outside the API, nested batches and unsupported methods")
+    void execute_InvalidRequests_BadRequest() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        List<BatchRequest> requests = Arrays.asList(
+                new BatchRequest("GET", "/actuator", null),
+                new BatchRequest("POST", "/api/batch", objectMapper.createArrayNode()),
+                new BatchRequest("PATCH", "/api/echo", null),
+                new BatchRequest("GET", "/api/../echo/1", null));
+
+        // =================================================================
+        // Act
+        // =================================================================
+        List<BatchResponse> results = execute(requests);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        results.forEach(result -> assertEquals(400, result.getStatus()));
+    }
+
+    private List<BatchResponse> execute(List<BatchRequest> requests) {
+        return batchService.execute(requests, new MockHttpServletRequest("POST", "/api/batch"), new MockHttpServletResponse());
+    }
+
+    // Neither class is a stereotype, so the application's component scan never picks them up
+    @EnableWebMvc
+    static class WebConfig {
+    }
+
+    @ResponseBody
+    @RequestMapping("/api")
+    static class EchoController {
+        @GetMapping("/echo/{id}")
+        public ResponseEntity<?> findById(@PathVariable("id") String id,
+                                          @RequestParam(value = "q", required = false) String q) throws InterruptedException {
+            if ("wait".equals(id)) {
+                parallelReads.countDown();
+                if (!parallelReads.await(2, TimeUnit.SECONDS)) {
+                    return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).build();
+                }
+            } else if (!id.matches("\\d+")) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            Map<String, String> body = new HashMap<>();
+            body.put("id", id);
+            body.put("q", q);
+            body.put("user", SecurityContextHolder.getContext().getAuthentication().getName());
+            return ResponseEntity.ok().body(body);
+        }
+
+        @GetMapping("/missing")
+        public ResponseEntity<?> missing() {
+            return ResponseEntity.notFound().build();
+        }
+
+        @PostMapping("/echo")
+        public ResponseEntity<?> create(@RequestBody Map<String, Object> body) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(body);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.ExportService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the attendance export: one row per
+// participant, date filters, CSV quoting and studio scoping
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Export Service Integration Tests")
+public class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Margot").lastName("Export").build());
+        User ana = userRepository.save(new User("ana@export.com", "Quote \"Q\", Jr", "Ana", "x", false));
+        User bo = userRepository.save(new User("bo@export.com", "Smith", "Bo", "x", false));
+
+        sessionRepository.save(Session.builder().name("January flow").date(at(2026, 1, 10)).description("d")
+                .teacher(teacher).users(new ArrayList<>(Arrays.asList(ana, bo))).build());
+        sessionRepository.save(Session.builder().name("February flow").date(at(2026, 2, 10)).description("d")
+                .users(new ArrayList<>(Arrays.asList(bo))).build());
+        sessionRepository.save(Session.builder().name("Nobody").date(at(2026, 1, 20)).description("d")
+                .teacher(teacher).users(new ArrayList<>()).build());
+        TenantContext.callAs("lotus", () -> sessionRepository.save(Session.builder().name("Elsewhere")
+                .date(at(2026, 1, 15)).description("d").users(new ArrayList<>()).build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name IN ('January flow', 'February flow', 'Nobody', 'Elsewhere')");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'Export'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@export.com'");
+    }
+
+    @Test
+    @DisplayName("Should write one quoted CSV line per participant, in session date order")
+    void exportAttendance_Csv() {
+        // =================================================================
+        // Act
+        // =================================================================
+        StringWriter out = new StringWriter();
+        long rows = exportService.exportAttendance(null, null, DataFormat.CSV, out);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(3, rows);
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("session_id,session_name,session_date,"));
+        assertTrue(lines[1].contains(",January flow,2026-01-10T09:30:00,Margot,Export,"));
+        assertTrue(out.toString().contains(",Ana,\"Quote \"\"Q\"\", Jr\",ana@export.com"));
+        assertTrue(lines[3].contains(",February flow,2026-02-10T09:30:00,,,"));
+        assertTrue(lines[3].endsWith(",Bo,Smith,bo@export.com"));
+    }
+
+    @Test
+    @DisplayName("Should write one JSON object per line within the requested dates")
+    void exportAttendance_NdjsonBetweenDates() throws Exception {
+        // =================================================================
+        // Act - Both ends are whole days, inclusive
+        // =================================================================
+        StringWriter out = new StringWriter();
+        long rows = exportService.exportAttendance(LocalDate.of(2026, 2, 1), LocalDate.of(2026, 2, 10), DataFormat.NDJSON, out);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        String[] lines = out.toString().split("\n");
+        assertEquals(1, rows);
+        assertEquals(1, lines.length);
+        assertTrue(out.toString().endsWith("\n"));
+        JsonNode row = objectMapper.readTree(lines[0]);
+        assertEquals("February flow", row.get("sessionName").asText());
+        assertEquals("2026-02-10T09:30:00", row.get("sessionDate").asText());
+        assertTrue(row.get("teacherLastName").isNull());
+        assertEquals("bo@export.com", row.get("userEmail").asText());
+    }
+
+    @Test
+    @DisplayName("Should only export the current studio's attendance")
+    void exportAttendance_OtherStudio_Empty() {
+        // =================================================================
+        // Act
+        // =================================================================
+        StringWriter out = new StringWriter();
+        long rows = TenantContext.callAs("lotus", () -> exportService.exportAttendance(null, null, DataFormat.CSV, out));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(0, rows);
+        assertEquals(1, out.toString().split("\r\n").length);
+    }
+
+    @Test
+    @DisplayName("Should only let the configured number of exports run at once")
+    void tryStart_LimitedSlots() {
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertTrue(exportService.tryStart());
+        assertFalse(exportService.tryStart());
+        exportService.finish();
+        assertTrue(exportService.tryStart());
+        exportService.finish();
+    }
+
+    private static Timestamp at(int year, int month, int day) {
+        return Timestamp.valueOf(LocalDateTime.of(year, month, day, 9, 30));
+    }
+}
@@ -0,0 +1,234 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.importer.ImportKind;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.DataFormat;
+import com.openclassrooms.starterjwt.payload.response.ImportReport;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.ImportService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the bulk import: row validation, duplicates,
+// pre-hashed passwords, resuming and references between imports
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Import Service Integration Tests")
+public class ImportServiceTest {
+
+    private static final String HASHED = "$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq";
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Imported%'");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'Imported'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@import.com'");
+        jdbcTemplate.update("DELETE FROM IMPORT_PROGRESS");
+    }
+
+    @Test
+    @DisplayName("Should import valid members and report each rejected row")
+    void importUsers_Csv_ReportsBadRows() throws Exception {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        userRepository.save(new User("taken@import.com", "Taken", "Already", HASHED, false));
+        String csv = "email,first_name,last_name,password,admin\r\n"
+                + "ana@import.com,Ana,\"Quote, Jr\",secret1,\r\n"
+                + "not-an-email,Bob,Smith,secret1,false\r\n"
+                + "ANA@import.com,Ana,Again,secret1,false\r\n"
+                + "taken@import.com,Taken,Again,secret1,true\r\n"
+                + "cy@import.com,Cyril,Hashed," + HASHED + ",true\r\n"
+                + "di@import.com,Diane,Short,pw,false\r\n"
+                + "ed@import.com,Edith\r\n";
+
+        // =================================================================
+        // Act
+        // =================================================================
+        ImportReport report = importService.importRecords(ImportKind.USERS, DataFormat.CSV, stream(csv), null, 3);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(7, report.getRows());
+        assertEquals(2, report.getImported());
+        assertEquals(5, report.getFailed());
+        assertEquals(Arrays.asList(2L, 3L, 4L, 6L, 7L),
+                report.getErrors().stream().map(ImportReport.RowError::getRow).collect(Collectors.toList()));
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("email: "));
+        assertEquals("email: already in this import", report.getErrors().get(1).getMessage());
+        assertEquals("email: is already taken", report.getErrors().get(2).getMessage());
+        assertTrue(report.getErrors().get(3).getMessage().startsWith("password: "));
+        assertEquals("expected 5 fields, found 2", report.getErrors().get(4).getMessage());
+
+        User ana = userRepository.findByEmail("ana@import.com").orElseThrow(AssertionError::new);
+        assertEquals("Quote, Jr", ana.getLastName());
+        assertFalse(ana.isAdmin());
+        assertTrue(passwordEncoder.matches("secret1", ana.getPassword()));
+        User cyril = userRepository.findByEmail("cy@import.com").orElseThrow(AssertionError::new);
+        assertEquals(HASHED, cyril.getPassword());
+        assertTrue(cyril.isAdmin());
+    }
+
+    @Test
+    @DisplayName("Should take ids Hibernate will not hand out again")
+    void importUsers_IdsReserved() throws Exception {
+        // =================================================================
+        // Act - An import, then a user saved through JPA
+        // =================================================================
+        importService.importRecords(ImportKind.USERS, DataFormat.NDJSON,
+                stream("{\"email\":\"ana@import.com\",\"firstName\":\"Ana\",\"lastName\":\"Imported\",\"password\":\"" + HASHED + "\"}\n"),
+                null, null);
+        User saved = userRepository.save(new User("jpa@import.com", "Saved", "Jpa", HASHED, false));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        Long imported = userRepository.findByEmail("ana@import.com").orElseThrow(AssertionError::new).getId();
+        Long next = jdbcTemplate.queryForObject("SELECT next_val FROM ID_GENERATORS WHERE sequence_name = 'USERS'", Long.class);
+        assertNotEquals(imported, saved.getId());
+        assertTrue(imported < next);
+    }
+
+    @Test
+    @DisplayName("Should skip the rows committed by an earlier run of the same import")
+    void importUsers_SameId_Resumes() throws Exception {
+        // =================================================================
+        // Arrange - The first run got through two rows
+        // =================================================================
+        String header = "email,first_name,last_name,password\n";
+        String first = "a1@import.com,Ana,Imported," + HASHED + "\n"
+                + "a2@import.com,Bob,Imported," + HASHED + "\n";
+        String rest = "a3@import.com,Cyril,Imported," + HASHED + "\n"
+                + "a4@import.com,Diane,Imported," + HASHED + "\n";
+        ImportReport firstRun = importService.importRecords(ImportKind.USERS, DataFormat.CSV, stream(header + first), "members", 1);
+
+        // =================================================================
+        // Act - The whole file again
+        // =================================================================
+        ImportReport secondRun = importService.importRecords(ImportKind.USERS, DataFormat.CSV, stream(header + first + rest), "members", 1);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, firstRun.getCommittedRows());
+        assertEquals(2, secondRun.getSkipped());
+        assertEquals(2, secondRun.getImported());
+        assertEquals(0, secondRun.getFailed());
+        assertEquals(4, secondRun.getCommittedRows());
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS WHERE email LIKE 'a_@import.com'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should import sessions and participations against existing teachers, sessions and members")
+    void importSessionsAndParticipations() throws Exception {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        importService.importRecords(ImportKind.USERS, DataFormat.CSV,
+                stream("email,first_name,last_name,password\nana@import.com,Ana,Imported," + HASHED + "\n"), null, null);
+        importService.importRecords(ImportKind.TEACHERS, DataFormat.CSV,
+                stream("first_name,last_name\nMargot,Imported\n"), null, null);
+        Long teacherId = jdbcTemplate.queryForObject("SELECT id FROM TEACHERS WHERE last_name = 'Imported'", Long.class);
+        sessionService.findAll();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        ImportReport sessions = importService.importRecords(ImportKind.SESSIONS, DataFormat.NDJSON, stream(
+                "{\"name\":\"Imported flow\",\"date\":\"2026-03-01T09:30:00\",\"teacher_id\":" + teacherId + ",\"description\":\"d\"}\n"
+                        + "\n"
+                        + "{\"name\":\"Imported nowhere\",\"date\":\"2026-03-02\",\"teacher_id\":999999,\"description\":\"d\"}\n"
+                        + "{\"name\":\"Imported badly\",\"date\":\"March 3rd\",\"teacher_id\":" + teacherId + ",\"description\":\"d\"}\n"
+                        + "[1, 2]\n"), null, null);
+        Long sessionId = jdbcTemplate.queryForObject("SELECT id FROM SESSIONS WHERE name = 'Imported flow'", Long.class);
+        ImportReport participations = importService.importRecords(ImportKind.PARTICIPATIONS, DataFormat.CSV, stream(
+                "session_id,email\n"
+                        + sessionId + ",ana@import.com\n"
+                        + sessionId + ",ana@import.com\n"
+                        + sessionId + ",nobody@import.com\n"
+                        + "999999,ana@import.com\n"), null, null);
+
+        // =================================================================
+        // Assert - The cached session list was dropped by the imports
+        // =================================================================
+        assertEquals(1, sessions.getImported());
+        assertEquals(Arrays.asList("teacher_id: no such teacher", "date: must be an ISO date or date-time", "expected a JSON object"),
+                sessions.getErrors().stream().map(ImportReport.RowError::getMessage).collect(Collectors.toList()));
+        assertEquals(1, participations.getImported());
+        assertEquals(Arrays.asList("already participates in this session", "email: no such user", "session_id: no such session"),
+                participations.getErrors().stream().map(ImportReport.RowError::getMessage).collect(Collectors.toList()));
+
+        SessionDto imported = sessionService.findAll().stream().filter(s -> s.getId().equals(sessionId))
+                .findFirst().orElseThrow(AssertionError::new);
+        Long anaId = jdbcTemplate.queryForObject("SELECT id FROM USERS WHERE email = 'ana@import.com'", Long.class);
+        assertEquals(teacherId, imported.getTeacher_id());
+        assertEquals(Arrays.asList(anaId), imported.getUsers());
+    }
+
+    @Test
+    @DisplayName("Should only look for taken emails within the current studio")
+    void importUsers_OtherStudio_EmailFree() throws Exception {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        importService.importRecords(ImportKind.USERS, DataFormat.CSV,
+                stream("email,first_name,last_name,password\nana@import.com,Ana,Imported," + HASHED + "\n"), null, null);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        ImportReport report = TenantContext.callAs("lotus", () -> {
+            try {
+                return importService.importRecords(ImportKind.USERS, DataFormat.CSV,
+                        stream("email,first_name,last_name,password\nana@import.com,Ana,Lotus," + HASHED + "\n"), null, null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // =================================================================
+        // Assert - The same email may join another studio
+        // =================================================================
+        assertEquals(1, report.getImported());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS WHERE email = 'ana@import.com'", Integer.class));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
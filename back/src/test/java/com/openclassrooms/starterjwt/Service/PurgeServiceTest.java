@@ -0,0 +1,160 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.PurgeService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for soft deletes: deleted users and sessions
+// vanish at once, and the purge job removes them in batches later
+// =================================================================
+@SpringBootTest(properties = {"oc.app.purgeBatchSize=2", "oc.app.purgePauseMs=0"})
+@ActiveProfiles("test")
+@DisplayName("Purge Service Integration Tests")
+public class PurgeServiceTest {
+
+    @Autowired
+    private PurgeService purgeService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User member;
+
+    private List<Session> booked;
+
+    @BeforeEach
+    void setUp() {
+        // Rows deleted by other tests would be counted too
+        purgeService.purgeAll();
+
+        // Five bookings, more than two batches' worth
+        member = userRepository.save(new User("member@purge.com", "Member", "Purge", "x", false));
+        booked = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Session session = sessionService.create(Session.builder().name("Purge " + i).description("d")
+                    .date(Timestamp.valueOf(LocalDateTime.of(2031, 6, 1 + i, 9, 0))).users(new ArrayList<>()).build());
+            sessionService.participate(session.getId(), member.getId());
+            booked.add(session);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Purge%'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@purge.com'");
+    }
+
+    @Test
+    @DisplayName("Should hide a deleted member everywhere at once and free their email")
+    void deleteUser_HiddenAtOnce() {
+        // =================================================================
+        // Act
+        // =================================================================
+        userService.delete(member.getId());
+
+        // =================================================================
+        // Assert - The bookings are still there, but no longer seen
+        // =================================================================
+        assertNull(userService.findById(member.getId()));
+        assertFalse(userRepository.findByEmail("member@purge.com").isPresent());
+        assertEquals(5, bookings());
+        for (SessionDto session : sessionService.findAll()) {
+            if (session.getName().startsWith("Purge")) {
+                assertTrue(session.getUsers().isEmpty());
+            }
+        }
+        for (SessionDto session : sessionService.findAllRows()) {
+            if (session.getName().startsWith("Purge")) {
+                assertEquals(Collections.emptyList(), session.getUsers());
+            }
+        }
+        assertFalse(userRepository.existsByEmail("member@purge.com"));
+        assertNotNull(userRepository.save(new User("member@purge.com", "Member", "Again", "x", false)).getId());
+    }
+
+    @Test
+    @DisplayName("Should purge a deleted member's bookings in batches, then the member")
+    void purgeAll_DeletedUser_RemovesBookingsThenUser() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        userService.delete(member.getId());
+
+        // =================================================================
+        // Act
+        // =================================================================
+        int removed = purgeService.purgeAll();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(6, removed);
+        assertEquals(0, bookings());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS WHERE id = ?", Integer.class, member.getId()));
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS WHERE name LIKE 'Purge%'", Integer.class));
+        assertEquals(0, purgeService.purgeAll());
+    }
+
+    @Test
+    @DisplayName("Should hide a deleted session at once and purge it with its bookings later")
+    void deleteSession_HiddenThenPurged() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        Session deleted = booked.get(0);
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        sessionService.delete(deleted.getId());
+
+        // =================================================================
+        // Assert - Gone for readers, with a tombstone, and still on disk until the purge
+        // =================================================================
+        assertNull(sessionService.getById(deleted.getId()));
+        assertTrue(sessionService.findAll().stream().noneMatch(s -> s.getId().equals(deleted.getId())));
+        assertTrue(sessionService.findAllRows().stream().noneMatch(s -> s.getId().equals(deleted.getId())));
+        assertTrue(sessionService.findDeletedSince(since).contains(deleted.getId()));
+        assertEquals(5, bookings());
+
+        assertEquals(2, purgeService.purgeAll());
+        assertEquals(4, bookings());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS WHERE id = ?", Integer.class, deleted.getId()));
+    }
+
+    private int bookings() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE user_id = ?", Integer.class, member.getId());
+    }
+}
@@ -0,0 +1,196 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.payload.response.BulkSessionResponse;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionBulkService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for the admin bulk operations on sessions:
+// only matching sessions change, in the current studio only
+// =================================================================
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Session Bulk Service Integration Tests")
+public class SessionBulkServiceTest {
+
+    private static final LocalDate HOLIDAY = LocalDate.of(2031, 5, 1);
+
+    @Autowired
+    private SessionBulkService sessionBulkService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Teacher teacher;
+
+    private Teacher substitute;
+
+    private Session before;
+
+    private Session morning;
+
+    private Session evening;
+
+    private Session otherTeacher;
+
+    private Session after;
+
+    @BeforeEach
+    void setUp() {
+        teacher = teacherRepository.save(Teacher.builder().firstName("Margot").lastName("Bulk").build());
+        substitute = teacherRepository.save(Teacher.builder().firstName("Helene").lastName("Bulk").build());
+        before = session("Bulk before", HOLIDAY.minusDays(1).atTime(18, 0), teacher);
+        morning = session("Bulk morning", HOLIDAY.atStartOfDay(), teacher);
+        evening = session("Bulk evening", HOLIDAY.atTime(23, 30), teacher);
+        otherTeacher = session("Bulk other", HOLIDAY.atTime(12, 0), substitute);
+        after = session("Bulk after", HOLIDAY.plusDays(1).atStartOfDay(), teacher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE 'Bulk%'");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'Bulk'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@bulk.com'");
+    }
+
+    @Test
+    @DisplayName("Should hand a teacher's sessions in the range to the substitute")
+    void reassign_Range_OnlyMatchingSessions() {
+        // =================================================================
+        // Act
+        // =================================================================
+        BulkSessionResponse response = sessionBulkService.reassign(new SessionFilter(HOLIDAY, HOLIDAY, teacher.getId()), substitute.getId());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, response.getSessions());
+        assertEquals(substitute.getId(), row(morning).get("teacher_id"));
+        assertEquals(substitute.getId(), row(evening).get("teacher_id"));
+        assertEquals(1L, row(evening).get("version"));
+        assertEquals(teacher.getId(), row(before).get("teacher_id"));
+        assertEquals(teacher.getId(), row(after).get("teacher_id"));
+        assertEquals(0L, row(otherTeacher).get("version"));
+    }
+
+    @Test
+    @DisplayName("Should refuse a reassignment without a teacher or to an unknown substitute")
+    void reassign_InvalidTeachers_BadRequest() {
+        assertThrows(BadRequestException.class,
+                () -> sessionBulkService.reassign(new SessionFilter(HOLIDAY, HOLIDAY, null), substitute.getId()));
+        assertThrows(BadRequestException.class,
+                () -> sessionBulkService.reassign(new SessionFilter(HOLIDAY, HOLIDAY, teacher.getId()), 999999L));
+    }
+
+    @Test
+    @DisplayName("Should move every session in the range by the same amount")
+    void shift_Range_MovesDates() {
+        // =================================================================
+        // Act
+        // =================================================================
+        BulkSessionResponse response = sessionBulkService.shift(new SessionFilter(HOLIDAY, HOLIDAY, null), Duration.ofDays(7));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(3, response.getSessions());
+        assertEquals(HOLIDAY.plusDays(7).atStartOfDay(), date(morning));
+        assertEquals(HOLIDAY.plusDays(7).atTime(23, 30), date(evening));
+        assertEquals(HOLIDAY.plusDays(7).atTime(12, 0), date(otherTeacher));
+        assertEquals(HOLIDAY.plusDays(1).atStartOfDay(), date(after));
+    }
+
+    @Test
+    @DisplayName("Should cancel the sessions of a day with their bookings, leaving tombstones")
+    void delete_Day_RemovesSessionsAndBookings() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        User member = userRepository.save(new User("member@bulk.com", "Member", "Bulk", "x", false));
+        sessionService.participate(morning.getId(), member.getId());
+        sessionService.participate(after.getId(), member.getId());
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        BulkSessionResponse response = sessionBulkService.delete(new SessionFilter(HOLIDAY, HOLIDAY, null));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(3, response.getSessions());
+        assertEquals(1, response.getParticipations());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS WHERE name LIKE 'Bulk%' AND deleted_at IS NULL", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = ?", Integer.class, after.getId()));
+        assertTrue(sessionService.findDeletedSince(since).containsAll(Arrays.asList(morning.getId(), evening.getId(), otherTeacher.getId())));
+        assertTrue(sessionService.findAll().stream().noneMatch(s -> s.getId().equals(morning.getId())));
+    }
+
+    @Test
+    @DisplayName("Should leave the sessions of other studios alone")
+    void delete_OtherStudio_Untouched() {
+        // =================================================================
+        // Act
+        // =================================================================
+        BulkSessionResponse response = TenantContext.callAs("lotus",
+                () -> sessionBulkService.delete(new SessionFilter(HOLIDAY.minusDays(1), HOLIDAY.plusDays(1), null)));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(0, response.getSessions());
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS WHERE name LIKE 'Bulk%' AND deleted_at IS NULL", Integer.class));
+    }
+
+    private Session session(String name, LocalDateTime date, Teacher teacher) {
+        return sessionService.create(Session.builder().name(name).description("d").date(Timestamp.valueOf(date))
+                .teacher(teacher).users(new ArrayList<>()).build());
+    }
+
+    private Map<String, Object> row(Session session) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT teacher_id, version FROM SESSIONS WHERE id = ?", session.getId());
+        row.replaceAll((column, value) -> ((Number) value).longValue());
+        return row;
+    }
+
+    private LocalDateTime date(Session session) {
+        return jdbcTemplate.queryForObject("SELECT date FROM SESSIONS WHERE id = ?", Timestamp.class, session.getId()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,223 @@
+package com.openclassrooms.starterjwt.Service;
+
+import com.openclassrooms.starterjwt.models.SessionSeries;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionSeriesService;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for recurring session series: occurrences up to
+// the horizon, extension, and set-based edits and cancellation
+// =================================================================
+@SpringBootTest(properties = "oc.app.seriesHorizonDays=30")
+@ActiveProfiles("test")
+@DisplayName("Session Series Service Integration Tests")
+public class SessionSeriesServiceTest {
+
+    @Autowired
+    private SessionSeriesService sessionSeriesService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Teacher teacher;
+
+    // Next week's Monday, so that every weekday of the rule is still ahead
+    private LocalDate monday;
+
+    @BeforeEach
+    void setUp() {
+        teacher = teacherRepository.save(Teacher.builder().firstName("Margot").lastName("Series").build());
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE");
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE series_id IS NOT NULL");
+        jdbcTemplate.update("DELETE FROM SESSION_SERIES");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = 'Series'");
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE '%@series.com'");
+    }
+
+    @Test
+    @DisplayName("Should write every occurrence of a weekly rule up to its end date")
+    void create_Weekly_WritesOccurrences() {
+        // =================================================================
+        // Act - Mondays and Wednesdays for two weeks
+        // =================================================================
+        SessionSeries series = sessionSeriesService.create(weekly("MONDAY,WEDNESDAY", 1).setEndsOn(monday.plusDays(13)));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        List<Map<String, Object>> occurrences = occurrences(series.getId());
+        assertEquals(4, occurrences.size());
+        assertEquals(at(monday), date(occurrences.get(0)));
+        assertEquals(at(monday.plusDays(2)), date(occurrences.get(1)));
+        assertEquals(at(monday.plusDays(7)), date(occurrences.get(2)));
+        assertEquals(at(monday.plusDays(9)), date(occurrences.get(3)));
+        assertEquals("Vinyasa", occurrences.get(0).get("name"));
+        assertEquals(monday.plusDays(13).atTime(23, 59, 59), series.getMaterializedUntil());
+        assertTrue(sessionService.findAll().stream().anyMatch(s -> series.getId().equals(s.getSeries_id())));
+    }
+
+    @Test
+    @DisplayName("Should stop at the horizon and let the extension job write the rest later")
+    void create_OpenEnded_StopsAtHorizonThenExtends() {
+        // =================================================================
+        // Arrange - Every other day with no end date; the horizon is 30 days
+        // =================================================================
+        SessionSeries series = sessionSeriesService.create(SessionSeries.builder().name("Daily").description("d")
+                .teacher(teacher).startsAt(Timestamp.valueOf(at(monday))).frequency(SessionSeries.Frequency.DAILY)
+                .interval(2).build());
+        int written = occurrences(series.getId()).size();
+
+        // =================================================================
+        // Act - As if the horizon had been ten days shorter
+        // =================================================================
+        LocalDateTime earlier = series.getMaterializedUntil().minusDays(10);
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE series_id = ? AND date > ?", series.getId(), Timestamp.valueOf(earlier));
+        jdbcTemplate.update("UPDATE SESSION_SERIES SET materialized_until = ? WHERE id = ?", Timestamp.valueOf(earlier), series.getId());
+        int extended = sessionSeriesService.extendAll();
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertTrue(written > 0);
+        assertEquals(5, extended);
+        assertEquals(written, occurrences(series.getId()).size());
+        assertEquals(0, sessionSeriesService.extendAll());
+    }
+
+    @Test
+    @DisplayName("Should edit the upcoming occurrences only, in one statement")
+    void update_ChangesUpcomingOccurrences() {
+        // =================================================================
+        // Arrange - A series that started two weeks ago
+        // =================================================================
+        SessionSeries series = sessionSeriesService.create(SessionSeries.builder().name("Vinyasa").description("d")
+                .teacher(teacher).startsAt(Timestamp.valueOf(at(LocalDate.now().minusDays(14))))
+                .frequency(SessionSeries.Frequency.WEEKLY).interval(1).endsOn(LocalDate.now().plusDays(14)).build());
+        Teacher other = teacherRepository.save(Teacher.builder().firstName("Helene").lastName("Series").build());
+
+        // =================================================================
+        // Act
+        // =================================================================
+        SessionSeries changes = SessionSeries.builder().name("Yin").description("Slower").teacher(other)
+                .endsOn(LocalDate.now().plusDays(14)).build();
+        SessionSeries updated = sessionSeriesService.update(series.getId(), changes, series.getVersion());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        List<Map<String, Object>> occurrences = occurrences(series.getId());
+        assertEquals(5, occurrences.size());
+        assertEquals("Vinyasa", occurrences.get(0).get("name"));
+        assertEquals("Vinyasa", occurrences.get(1).get("name"));
+        for (Map<String, Object> upcoming : occurrences.subList(3, 5)) {
+            assertEquals("Yin", upcoming.get("name"));
+            assertEquals(other.getId(), ((Number) upcoming.get("teacher_id")).longValue());
+            assertEquals(1L, ((Number) upcoming.get("version")).longValue());
+        }
+        assertEquals("Yin", updated.getName());
+    }
+
+    @Test
+    @DisplayName("Should write the missing occurrences when the end date moves later, and drop them when it moves earlier")
+    void update_EndDateMoved() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        SessionSeries series = sessionSeriesService.create(weekly(null, 1).setEndsOn(monday.plusDays(7)));
+        SessionSeries later = SessionSeries.builder().name("Vinyasa").description("d").teacher(teacher)
+                .endsOn(monday.plusDays(21)).build();
+        SessionSeries earlier = SessionSeries.builder().name("Vinyasa").description("d").teacher(teacher)
+                .endsOn(monday.plusDays(6)).build();
+
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertEquals(2, occurrences(series.getId()).size());
+        sessionSeriesService.update(series.getId(), later, null);
+        assertEquals(4, occurrences(series.getId()).size());
+        sessionSeriesService.update(series.getId(), earlier, null);
+        assertEquals(1, occurrences(series.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Should cancel the occurrences from a day on, with their bookings, leaving tombstones")
+    void cancel_FromDate_RemovesOccurrences() {
+        // =================================================================
+        // Arrange - Three Mondays, someone booked on the last one
+        // =================================================================
+        SessionSeries series = sessionSeriesService.create(weekly(null, 1).setEndsOn(monday.plusDays(20)));
+        List<Map<String, Object>> occurrences = occurrences(series.getId());
+        User member = userRepository.save(new User("member@series.com", "Member", "Series", "x", false));
+        Long booked = ((Number) occurrences.get(2).get("id")).longValue();
+        sessionService.participate(booked, member.getId());
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        int cancelled = sessionSeriesService.cancel(series.getId(), monday.plusDays(7));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, cancelled);
+        assertEquals(1, occurrences(series.getId()).size());
+        assertTrue(sessionService.findDeletedSince(since).contains(booked));
+        assertEquals(monday.plusDays(6), sessionSeriesService.getById(series.getId()).getEndsOn());
+        assertEquals(0, sessionSeriesService.extendAll());
+    }
+
+    private SessionSeries weekly(String days, int interval) {
+        return SessionSeries.builder().name("Vinyasa").description("Flow").teacher(teacher)
+                .startsAt(Timestamp.valueOf(at(monday))).frequency(SessionSeries.Frequency.WEEKLY)
+                .interval(interval).daysOfWeek(days).build();
+    }
+
+    private List<Map<String, Object>> occurrences(Long seriesId) {
+        return jdbcTemplate.queryForList("SELECT id, name, date, teacher_id, version FROM SESSIONS WHERE series_id = ? AND deleted_at IS NULL ORDER BY date", seriesId);
+    }
+
+    private static LocalDateTime at(LocalDate day) {
+        return day.atTime(18, 30);
+    }
+
+    private static LocalDateTime date(Map<String, Object> row) {
+        return ((Timestamp) row.get("date")).toLocalDateTime();
+    }
+}
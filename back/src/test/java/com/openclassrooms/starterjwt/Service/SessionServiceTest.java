@@ -1,24 +1,41 @@
 package com.openclassrooms.starterjwt.Service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.dto.SessionDetailDto;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionViewDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFieldSet;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.PurgeService;
 import com.openclassrooms.starterjwt.services.SessionService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -40,6 +57,9 @@ public class SessionServiceTest {
     @Autowired
     private SessionService sessionService;
 
+    @Autowired
+    private PurgeService purgeService;
+
     @Autowired
     private SessionRepository sessionRepository;
 
@@ -49,6 +69,21 @@ public class SessionServiceTest {
     @Autowired
     private TeacherRepository teacherRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     // =================================================================
     // Define test data
     // =================================================================
@@ -62,9 +97,13 @@ public class SessionServiceTest {
         // =================================================================
         // // Clean database to ensure test isolation
         // =================================================================
+        // Sessions deleted by earlier tests are only hidden until purged
+        purgeService.purgeAll();
         sessionRepository.deleteAll();
         userRepository.deleteAll();
         teacherRepository.deleteAll();
+        // Deletes must reach the database before the inserts below, or they hit the email unique index
+        teacherRepository.flush();
 
         // =================================================================
         // Create test teacher
@@ -142,7 +181,7 @@ public class SessionServiceTest {
         // =================================================================
         // Act - Retrieves all sessions
         // =================================================================
-        List<Session> sessions = sessionService.findAll();
+        List<SessionDto> sessions = sessionService.findAll();
 
         // =================================================================
         // Assert - Verifies list contents
@@ -193,6 +232,33 @@ public class SessionServiceTest {
         assertNull(foundSession);
     }
 
+    @Test
+    @DisplayName("Should hand each reader its own copy of a session")
+    void getDto_EachCallerGetsOwnCopy() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        Session savedSession = sessionRepository.save(testSession);
+
+        // =================================================================
+        // Act - One reader changes what it got
+        // =================================================================
+        SessionDto first = sessionService.getDto(savedSession.getId());
+        first.setName("Changed");
+        first.getUsers().clear();
+        SessionDto second = sessionService.getDto(savedSession.getId());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertNotSame(first, second);
+        assertEquals(testSession.getName(), second.getName());
+        assertEquals(Collections.singletonList(testUser.getId()), second.getUsers());
+        assertNull(sessionService.getDto(999L));
+    }
+
     // =================================================================
     // Test updating a session
     // =================================================================
@@ -211,7 +277,7 @@ public class SessionServiceTest {
         // =================================================================
         // Act - Updates the session
         // =================================================================
-        Session updatedSession = sessionService.update(savedSession.getId(), savedSession);
+        Session updatedSession = sessionService.update(savedSession.getId(), savedSession, null);
 
         // =================================================================
         // Assert - Verifies update
@@ -219,6 +285,35 @@ public class SessionServiceTest {
         assertEquals(updatedName, updatedSession.getName());
     }
 
+    @Test
+    @DisplayName("Should keep participants on an update without users, and reject a stale version")
+    void update_WithoutUsers_KeepsParticipants() {
+
+        // =================================================================
+        // Arrange - A user books, then the admin form saves without users
+        // =================================================================
+        Session created = sessionService.create(testSession);
+        Long version = sessionService.getVersion(created.getId());
+        sessionService.participate(created.getId(), testUser.getId());
+        Session changes = Session.builder().name("Edited").date(testSession.getDate())
+                .description("Edited description").teacher(testTeacher).build();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        sessionService.update(created.getId(), changes, version);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        Session reloaded = sessionService.getById(created.getId());
+        assertEquals("Edited", reloaded.getName());
+        assertEquals(1, reloaded.getUsers().size());
+        assertThrows(ConflictException.class, () -> sessionService.update(created.getId(), changes, version));
+
+        sessionService.delete(created.getId());
+    }
+
     // =================================================================
     // Test deleting a session
     // =================================================================
@@ -243,6 +338,149 @@ public class SessionServiceTest {
         assertFalse(sessionRepository.findById(savedSession.getId()).isPresent());
     }
 
+    // =================================================================
+    // Test loading a sparse fieldset with expansions
+    // =================================================================
+    @Test
+    @DisplayName("Should load only requested columns and expanded relations")
+    @Transactional
+    void findAllSparse_LoadsOnlyRequestedFields() {
+
+        // =================================================================
+        // Arrange - Saves a session with one participant
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        sessionRepository.save(testSession);
+
+        // =================================================================
+        // Act - Requests the name only, with teacher and users expanded
+        // =================================================================
+        List<Session> sessions = sessionService.findAll(SessionFieldSet.parse("name", "teacher,users"));
+
+        // =================================================================
+        // Assert - Unrequested columns stay empty, expansions are filled
+        // =================================================================
+        assertEquals(1, sessions.size());
+        Session session = sessions.get(0);
+        assertEquals("Test Session", session.getName());
+        assertNull(session.getDescription());
+        assertNull(session.getDate());
+        assertEquals("John", session.getTeacher().getFirstName());
+        assertEquals(1, session.getUsers().size());
+        assertEquals("test@test.com", session.getUsers().get(0).getEmail());
+        assertNull(session.getUsers().get(0).getPassword());
+    }
+
+    @Test
+    @DisplayName("Should return the version with a sparse fieldset, for If-Match")
+    @Transactional
+    void findAllSparse_Version_Returned() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        Session saved = sessionRepository.save(testSession);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        SessionFieldSet fieldSet = SessionFieldSet.parse("version,series_id", null);
+        List<SessionViewDto> views = sessionMapper.toView(sessionService.findAll(fieldSet), fieldSet);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, views.size());
+        assertEquals(saved.getVersion(), views.get(0).getVersion());
+        assertNull(views.get(0).getSeries_id());
+        assertNull(views.get(0).getName());
+    }
+
+    // =================================================================
+    // Test the composite session detail
+    // =================================================================
+    @Test
+    @DisplayName("Should build the session detail with teacher, count and participation flag")
+    @Transactional
+    void getDetail_Success() {
+
+        // =================================================================
+        // Arrange - Saves a session with the test user participating
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        Session savedSession = sessionRepository.save(testSession);
+
+        // =================================================================
+        // Act - Loads the detail for a participant and for someone else
+        // =================================================================
+        SessionDetailDto forParticipant = sessionService.getDetail(savedSession.getId(), testUser.getId());
+        SessionDetailDto forOther = sessionService.getDetail(savedSession.getId(), testUser.getId() + 1000);
+
+        // =================================================================
+        // Assert - Verifies every part of the detail
+        // =================================================================
+        assertEquals("Test Session", forParticipant.getSession().getName());
+        assertEquals(testTeacher.getId(), forParticipant.getSession().getTeacher_id());
+        assertEquals("John", forParticipant.getTeacher().getFirstName());
+        assertEquals(1, forParticipant.getParticipantCount());
+        assertTrue(forParticipant.isParticipating());
+        assertFalse(forOther.isParticipating());
+        assertNull(sessionService.getDetail(999L, testUser.getId()));
+    }
+
+    // =================================================================
+    // Test that deleting a session leaves a tombstone for delta sync
+    // =================================================================
+    @Test
+    @DisplayName("Should record a tombstone when a session is deleted")
+    void deleteSession_RecordsTombstone() {
+
+        // =================================================================
+        // Arrange - Saves a test session and remembers the sync point
+        // =================================================================
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1);
+        Session savedSession = sessionRepository.save(testSession);
+
+        // =================================================================
+        // Act - Deletes the session
+        // =================================================================
+        sessionService.delete(savedSession.getId());
+
+        // =================================================================
+        // Assert - The deletion shows up as a tombstone, not as a change
+        // =================================================================
+        assertTrue(sessionService.findDeletedSince(since).contains(savedSession.getId()));
+        assertTrue(sessionService.findUpdatedSince(since).isEmpty());
+    }
+
+    // =================================================================
+    // Test that participation changes are picked up by delta sync
+    // =================================================================
+    @Test
+    @DisplayName("Should report a session as changed after a new participation")
+    void participate_TouchesUpdatedAt() {
+
+        // =================================================================
+        // Arrange - Saves a session last changed an hour ago, then takes a sync point
+        // =================================================================
+        Session savedSession = sessionRepository.save(testSession);
+        jdbcTemplate.update("UPDATE SESSIONS SET updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(1)), savedSession.getId());
+        LocalDateTime since = LocalDateTime.now();
+        assertTrue(sessionService.findUpdatedSince(since).isEmpty());
+
+        // =================================================================
+        // Act - Adds a participant
+        // =================================================================
+        sessionService.participate(savedSession.getId(), testUser.getId());
+
+        // =================================================================
+        // Assert - The session is now reported as changed
+        // =================================================================
+        assertEquals(1, sessionService.findUpdatedSince(since).size());
+        assertFalse(sessionRepository.findById(savedSession.getId()).get().getUpdatedAt().isBefore(since));
+    }
+
     // =================================================================
     // Test adding a participant to a session
     // =================================================================
@@ -366,4 +604,301 @@ public class SessionServiceTest {
         // =================================================================
         assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(999L, testUser.getId()));
     }
-}
\ No newline at end of file
+
+    // =================================================================
+    // Fetch plans - query counts per use case
+    // =================================================================
+    @Test
+    @DisplayName("Should load the session list and its participants without N+1 queries")
+    void findAll_ParticipantsFetchedWithoutNPlusOne() {
+
+        // =================================================================
+        // Arrange - Several sessions, each with participants
+        // =================================================================
+        List<User> participants = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            participants.add(userRepository.save(User.builder()
+                    .email("fetch" + i + "@test.com")
+                    .firstName("Fetch")
+                    .lastName("User")
+                    .password("password")
+                    .admin(false)
+                    .build()));
+        }
+        for (int i = 0; i < 5; i++) {
+            sessionService.create(Session.builder()
+                    .name("Session " + i)
+                    .date(new Date())
+                    .description("Description")
+                    .teacher(testTeacher)
+                    .users(new ArrayList<>(participants))
+                    .build());
+        }
+        Statistics statistics = statistics();
+
+        // =================================================================
+        // Act - Load the list and read what the list view needs
+        // =================================================================
+        List<SessionDto> sessions = sessionService.findAll();
+        long participantCount = sessions.stream().mapToLong(session -> session.getUsers().size()).sum();
+        sessions.forEach(session -> assertEquals(testTeacher.getId(), session.getTeacher_id()));
+
+        // =================================================================
+        // Assert - One statement for everything, teachers never loaded
+        // =================================================================
+        assertEquals(5, sessions.size());
+        assertEquals(15, participantCount);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(Teacher.class.getName()).getLoadCount());
+
+        // Deleting through the service drops the cached list for the following tests
+        sessions.forEach(session -> sessionService.delete(session.getId()));
+    }
+
+    @Test
+    @DisplayName("Should load a session detail with participants and teacher in one query")
+    void getById_LoadsDetailInOneQuery() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        Session savedSession = sessionRepository.save(testSession);
+        Statistics statistics = statistics();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        Session session = sessionService.getById(savedSession.getId());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, session.getUsers().size());
+        assertEquals("John", session.getTeacher().getFirstName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should book a participant without loading the teacher")
+    void participate_LoadsOnlyBookingGraph() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        Session savedSession = sessionRepository.save(testSession);
+        Statistics statistics = statistics();
+
+        // =================================================================
+        // Act
+        // =================================================================
+        sessionService.participate(savedSession.getId(), testUser.getId());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(0, statistics.getEntityStatistics(Teacher.class.getName()).getLoadCount());
+        assertEquals(1, statistics.getEntityStatistics(Session.class.getName()).getLoadCount());
+    }
+
+    @Test
+    @DisplayName("Should return sessions usable after their read transaction has closed")
+    void findAll_OutsideTransaction_AssociationsInitialized() {
+
+        // =================================================================
+        // Arrange - No open-session-in-view and no test transaction here
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        Session created = sessionService.create(testSession);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        Session detail = sessionService.getById(created.getId());
+        List<Session> changed = sessionService.findUpdatedSince(LocalDateTime.now().minusMinutes(1));
+
+        // =================================================================
+        // Assert - Touching associations does not need a live persistence context
+        // =================================================================
+        assertEquals(testUser.getId(), detail.getUsers().get(0).getId());
+        assertEquals("John", detail.getTeacher().getFirstName());
+        assertEquals(1, changed.size());
+        assertEquals(1, changed.get(0).getUsers().size());
+
+        sessionService.delete(created.getId());
+    }
+
+    @Test
+    @DisplayName("Should apply a merge patch to the given fields only and bump the version")
+    void patch_ChangesOnlyPatchedFields() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        Session created = sessionService.create(testSession);
+        Long version = sessionService.getVersion(created.getId());
+
+        // =================================================================
+        // Act
+        // =================================================================
+        Session patched = sessionService.patch(created.getId(), objectMapper.createObjectNode().put("name", "Patched"), version);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        Session reloaded = sessionService.getById(created.getId());
+        assertEquals("Patched", reloaded.getName());
+        assertEquals("Test Description", reloaded.getDescription());
+        assertEquals(1, reloaded.getUsers().size());
+        assertEquals(version + 1, patched.getVersion());
+
+        sessionService.delete(created.getId());
+    }
+
+    @Test
+    @DisplayName("Should return a patched session that maps outside the transaction")
+    void patch_NameOnly_MapsWithDescription() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        Session created = sessionService.create(testSession);
+
+        // =================================================================
+        // Act - The description is lazy and left out of the patch
+        // =================================================================
+        Session patched = sessionService.patch(created.getId(), objectMapper.createObjectNode().put("name", "Patched"), null);
+        SessionDto dto = sessionMapper.toDto(patched);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals("Patched", dto.getName());
+        assertEquals("Test Description", dto.getDescription());
+
+        sessionService.delete(created.getId());
+    }
+
+    @Test
+    @DisplayName("Should reject a patch made against a stale version with the current one")
+    void patch_StaleVersion_Conflict() {
+
+        // =================================================================
+        // Arrange - Someone else edits first
+        // =================================================================
+        Session created = sessionService.create(testSession);
+        Long version = sessionService.getVersion(created.getId());
+        sessionService.patch(created.getId(), objectMapper.createObjectNode().put("description", "First"), version);
+
+        // =================================================================
+        // Act
+        // =================================================================
+        ConflictException conflict = assertThrows(ConflictException.class,
+                () -> sessionService.patch(created.getId(), objectMapper.createObjectNode().put("description", "Second"), version));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(version + 1, conflict.getCurrentVersion());
+        assertEquals("First", sessionService.getById(created.getId()).getDescription());
+
+        sessionService.delete(created.getId());
+    }
+
+    @Test
+    @DisplayName("Should keep a booking made while an edit was being prepared")
+    void patch_AfterBooking_KeepsParticipantAndSucceeds() {
+
+        // =================================================================
+        // Arrange - An admin reads the version, then a user books
+        // =================================================================
+        Session created = sessionService.create(testSession);
+        Long version = sessionService.getVersion(created.getId());
+        sessionService.participate(created.getId(), testUser.getId());
+
+        // =================================================================
+        // Act
+        // =================================================================
+        sessionService.patch(created.getId(), objectMapper.createObjectNode().put("name", "Renamed"), version);
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        Session reloaded = sessionService.getById(created.getId());
+        assertEquals("Renamed", reloaded.getName());
+        assertEquals(1, reloaded.getUsers().size());
+
+        sessionService.delete(created.getId());
+    }
+
+    @Test
+    @DisplayName("Should reject nulls for required fields and unknown fields")
+    void patch_InvalidPatch_BadRequest() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        Session created = sessionService.create(testSession);
+        ObjectNode nullName = objectMapper.createObjectNode().putNull("name");
+        ObjectNode unknown = objectMapper.createObjectNode().put("room", "B");
+        ObjectNode tooLong = objectMapper.createObjectNode().put("name", String.join("", Collections.nCopies(51, "x")));
+
+        // =================================================================
+        // Act & Assert
+        // =================================================================
+        assertThrows(BadRequestException.class, () -> sessionService.patch(created.getId(), nullName, null));
+        assertThrows(BadRequestException.class, () -> sessionService.patch(created.getId(), unknown, null));
+        assertThrows(BadRequestException.class, () -> sessionService.patch(created.getId(), tooLong, null));
+        assertThrows(NotFoundException.class, () -> sessionService.patch(-1L, unknown, null));
+        assertEquals(testSession.getName(), sessionService.getById(created.getId()).getName());
+
+        sessionService.delete(created.getId());
+    }
+
+    @Test
+    @DisplayName("Should stream every session with its participants in one query, detaching each as it goes")
+    void forEachForList_StreamsAndDetaches() {
+
+        // =================================================================
+        // Arrange
+        // =================================================================
+        testSession.getUsers().add(testUser);
+        Session booked = sessionService.create(testSession);
+        Session empty = sessionService.create(Session.builder().name("Empty").date(new Date())
+                .description("Nobody yet").teacher(testTeacher).users(new ArrayList<>()).build());
+        Statistics statistics = statistics();
+
+        // =================================================================
+        // Act - Check the previous session is gone from the persistence context when the next arrives
+        // =================================================================
+        List<Session> seen = new ArrayList<>();
+        List<Boolean> previousManaged = new ArrayList<>();
+        sessionService.forEachForList(session -> {
+            if (!seen.isEmpty()) {
+                previousManaged.add(entityManager.contains(seen.get(seen.size() - 1)));
+            }
+            seen.add(session);
+        });
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(2, seen.size());
+        assertEquals(booked.getId(), seen.get(0).getId());
+        assertEquals(1, seen.get(0).getUsers().size());
+        assertEquals(empty.getId(), seen.get(1).getId());
+        assertTrue(seen.get(1).getUsers().isEmpty());
+        assertEquals(Collections.singletonList(false), previousManaged);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        sessionService.delete(booked.getId());
+        sessionService.delete(empty.getId());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,212 @@
+package com.openclassrooms.starterjwt.Tenant;
+
+import com.openclassrooms.starterjwt.datasource.TenantPoolStats;
+import com.openclassrooms.starterjwt.datasource.TenantRoutingDataSource;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// =================================================================
+// Integration tests for studio tenancy: two studios sharing the
+// default database, and one with an H2 database of its own
+// =================================================================
+@SpringBootTest(properties = {
+        "oc.app.tenants.enabled=true",
+        "oc.app.tenants.dedicated=big-studio",
+        "oc.app.tenants.big-studio.url=" + TenantIsolationTest.DEDICATED_URL,
+        "oc.app.tenants.sharedConnectionsPerTenant=2",
+        "oc.app.tenants.acquireTimeoutMs=100",
+        "oc.app.tenants.poolMbeans=false"
+})
+@ActiveProfiles("test")
+@DisplayName("Tenant Isolation Integration Tests")
+public class TenantIsolationTest {
+
+    static final String DEDICATED_URL = "jdbc:h2:mem:bigstudio;DB_CLOSE_DELAY=-1;MODE=MySQL";
+
+    private static final String STUDIO_A = "lotus";
+
+    private static final String STUDIO_B = "zen-loft";
+
+    private static final String DEDICATED = "big-studio";
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private TenantRoutingDataSource tenantRoutingDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate dedicatedJdbc = new JdbcTemplate(new DriverManagerDataSource(DEDICATED_URL, "sa", ""));
+
+    @AfterEach
+    void tearDown() {
+        for (JdbcTemplate jdbc : new JdbcTemplate[]{jdbcTemplate, dedicatedJdbc}) {
+            jdbc.update("DELETE FROM SESSIONS WHERE studio_id <> 'default'");
+            jdbc.update("DELETE FROM TEACHERS WHERE studio_id <> 'default'");
+            jdbc.update("DELETE FROM USERS WHERE studio_id <> 'default'");
+        }
+        TenantContext.clear();
+    }
+
+    @Test
+    @DisplayName("Should only show a studio its own teachers, by list and by id")
+    void sharedDatabase_StudiosSeeOnlyTheirRows() {
+        // =================================================================
+        // Arrange
+        // =================================================================
+        Teacher teacher = TenantContext.callAs(STUDIO_A,
+                () -> teacherRepository.save(Teacher.builder().firstName("Ana").lastName("Lotus").build()));
+
+        // =================================================================
+        // Act
+        // =================================================================
+        List<String> seenByA = TenantContext.callAs(STUDIO_A, () -> lastNames(teacherService.findAll()));
+        List<String> seenByB = TenantContext.callAs(STUDIO_B, () -> lastNames(teacherService.findAll()));
+        Teacher foundByB = TenantContext.callAs(STUDIO_B, () -> teacherService.findById(teacher.getId()));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(STUDIO_A, teacher.getStudioId());
+        assertEquals(1, seenByA.size());
+        assertTrue(seenByA.contains("Lotus"));
+        assertTrue(seenByB.isEmpty());
+        assertNull(foundByB);
+        assertFalse(lastNames(teacherService.findAll()).contains("Lotus"));
+    }
+
+    @Test
+    @DisplayName("Should let the same email sign up at two studios")
+    void sharedDatabase_SameEmailInTwoStudios() {
+        // =================================================================
+        // Act
+        // =================================================================
+        TenantContext.callAs(STUDIO_A, () -> userRepository.save(new User("same@studio.com", "A", "A", "x", false)));
+        TenantContext.callAs(STUDIO_B, () -> userRepository.save(new User("same@studio.com", "B", "B", "x", false)));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals("A", TenantContext.callAs(STUDIO_A, () -> userRepository.findByEmail("same@studio.com")).get().getLastName());
+        assertEquals("B", TenantContext.callAs(STUDIO_B, () -> userRepository.findByEmail("same@studio.com")).get().getLastName());
+    }
+
+    @Test
+    @DisplayName("Should keep the cached session list apart per studio")
+    void sessionList_CachedPerStudio() {
+        // =================================================================
+        // Arrange - Both studios warm their cache, then A adds a session
+        // =================================================================
+        TenantContext.callAs(STUDIO_A, () -> sessionService.findAll());
+        TenantContext.callAs(STUDIO_B, () -> sessionService.findAll());
+        Session created = TenantContext.callAs(STUDIO_A, () -> sessionService.create(
+                Session.builder().name("Sunrise").date(new Date()).description("A only").users(new ArrayList<>()).build()));
+
+        // =================================================================
+        // Act
+        // =================================================================
+        List<SessionDto> seenByA = TenantContext.callAs(STUDIO_A, () -> sessionService.findAll());
+        List<SessionDto> seenByB = TenantContext.callAs(STUDIO_B, () -> sessionService.findAll());
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, seenByA.size());
+        assertTrue(seenByB.isEmpty());
+        assertNull(TenantContext.callAs(STUDIO_B, () -> sessionService.getById(created.getId())));
+
+        TenantContext.callAs(STUDIO_A, () -> {
+            sessionService.delete(created.getId());
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Should store a dedicated studio's rows in its own database")
+    void dedicatedDatabase_RowsStayThere() {
+        // =================================================================
+        // Act
+        // =================================================================
+        Teacher teacher = TenantContext.callAs(DEDICATED,
+                () -> teacherRepository.save(Teacher.builder().firstName("Bo").lastName("Big").build()));
+
+        // =================================================================
+        // Assert
+        // =================================================================
+        assertEquals(1, dedicatedJdbc.queryForObject("SELECT COUNT(*) FROM TEACHERS WHERE last_name = 'Big'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TEACHERS WHERE last_name = 'Big'", Integer.class));
+        assertEquals("Big", TenantContext.callAs(DEDICATED, () -> teacherService.findById(teacher.getId())).getLastName());
+        assertEquals(11, dedicatedJdbc.queryForObject("SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should cap a studio's share of the shared pool without blocking the others")
+    void sharedPool_CapsConnectionsPerStudio() throws Exception {
+        // =================================================================
+        // Arrange - Studio A holds its two connections
+        // =================================================================
+        TenantContext.set(STUDIO_A);
+        Connection first = tenantRoutingDataSource.getConnection();
+        Connection second = tenantRoutingDataSource.getConnection();
+
+        // =================================================================
+        // Act & Assert - A is turned away, B is not
+        // =================================================================
+        assertThrows(SQLTransientConnectionException.class, () -> tenantRoutingDataSource.getConnection());
+
+        TenantContext.set(STUDIO_B);
+        try (Connection other = tenantRoutingDataSource.getConnection()) {
+            assertTrue(other.isValid(1));
+        }
+
+        first.close();
+        second.close();
+        TenantContext.set(STUDIO_A);
+        tenantRoutingDataSource.getConnection().close();
+
+        TenantPoolStats stats = tenantRoutingDataSource.getStats().get(STUDIO_A);
+        assertEquals(0, stats.getActive());
+        assertEquals(1, stats.getRejected());
+        assertFalse(stats.isDedicated());
+        assertTrue(tenantRoutingDataSource.getStats().get(STUDIO_B).getAcquired() >= 1);
+    }
+
+    private static List<String> lastNames(List<Teacher> teachers) {
+        return teachers.stream().map(Teacher::getLastName).collect(Collectors.toList());
+    }
+}
@@ -66,6 +66,9 @@ describe('Sessions page', () => {
 
         cy.intercept('GET', '/api/session', (req) => {req.reply(SESSIONS_LIST);});
         cy.intercept('GET', '/api/session/*', (req) => {req.reply(TEST_SESSION);});
+        cy.intercept('GET', '/api/session/*/detail', (req) => {
+            req.reply({session: TEST_SESSION, teacher: TEACHERS_LIST[0], participantCount: TEST_SESSION.users.length, participating: false});
+        });
 
         //=================================================================================         
         // Mock CRUD operations for the session 
@@ -48,10 +48,14 @@ describe('DetailComponent', () => {
   beforeEach(async () => {
     mockSessionApiService = {
       delete: jest.fn().mockReturnValue(of({})),
-      detail: jest.fn().mockReturnValue(of({
-        id: '1',
-        users: ['1'],
-        teacher_id: '1'
+      fullDetail: jest.fn().mockReturnValue(of({
+        session: {
+          id: 1,
+          teacher_id: 1
+        },
+        teacher: mockTeacher,
+        participantCount: 1,
+        participating: false
       })),
       participate: jest.fn().mockReturnValue(of({})),
       unParticipate: jest.fn().mockReturnValue(of({}))
@@ -161,7 +165,7 @@ describe('DetailComponent', () => {
     // Verify participation actions
     expect(participateSpy).toHaveBeenCalled();                                                                  // Expect that the participate method was triggered
     expect(mockSessionApiService.participate).toHaveBeenCalledWith('1', '1');                                   // Expect that the API call was made with correct session and user IDs
-    expect(mockSessionApiService.detail).toHaveBeenCalled();                                                    // Expect that the session details were refreshed
+    expect(mockSessionApiService.fullDetail).toHaveBeenCalled();                                                // Expect that the session details were refreshed
   
     // Update participation state
     component.isParticipate = true;                                                                             // Update participation status to true
@@ -176,7 +180,7 @@ describe('DetailComponent', () => {
     // Verify unparticipation actions
     expect(unParticipateSpy).toHaveBeenCalled();                                                                // Expect that the   unParticipate method was triggered
     expect(mockSessionApiService.unParticipate).toHaveBeenCalledWith('1', '1');                                 // Expect that the API call was made with correct session and user IDs
-    expect(mockSessionApiService.detail).toHaveBeenCalled();                                                    // Expect that the session details were refreshed
+    expect(mockSessionApiService.fullDetail).toHaveBeenCalled();                                                // Expect that the session details were refreshed
   });
 
 
@@ -4,8 +4,8 @@ import { MatSnackBar } from '@angular/material/snack-bar';
 import { ActivatedRoute, Router } from '@angular/router';
 import { Teacher } from '../../../../interfaces/teacher.interface';
 import { SessionService } from '../../../../services/session.service';
-import { TeacherService } from '../../../../services/teacher.service';
 import { Session } from '../../interfaces/session.interface';
+import { SessionDetail } from '../../interfaces/sessionDetail.interface';
 import { SessionApiService } from '../../services/session-api.service';
 
 @Component({
@@ -16,6 +16,7 @@ import { SessionApiService } from '../../services/session-api.service';
 export class DetailComponent implements OnInit {
   public session: Session | undefined;
   public teacher: Teacher | undefined;
+  public participantCount = 0;
 
   public isParticipate = false;
   public isAdmin = false;
@@ -28,7 +29,6 @@ export class DetailComponent implements OnInit {
     private fb: FormBuilder,
     private sessionService: SessionService,
     private sessionApiService: SessionApiService,
-    private teacherService: TeacherService,
     private matSnackBar: MatSnackBar,
     private router: Router) {
     this.sessionId = this.route.snapshot.paramMap.get('id')!;
@@ -64,13 +64,12 @@ export class DetailComponent implements OnInit {
 
   private fetchSession(): void {
     this.sessionApiService
-      .detail(this.sessionId)
-      .subscribe((session: Session) => {
-        this.session = session;
-        this.isParticipate = session.users.some(u => u === this.sessionService.sessionInformation!.id);
-        this.teacherService
-          .detail(session.teacher_id.toString())
-          .subscribe((teacher: Teacher) => this.teacher = teacher);
+      .fullDetail(this.sessionId)
+      .subscribe((detail: SessionDetail) => {
+        this.session = detail.session;
+        this.teacher = detail.teacher;
+        this.participantCount = detail.participantCount;
+        this.isParticipate = detail.participating;
       });
   }
 
@@ -0,0 +1,9 @@
+import { Teacher } from '../../../interfaces/teacher.interface';
+import { Session } from './session.interface';
+
+export interface SessionDetail {
+  session: Session;
+  teacher?: Teacher;
+  participantCount: number;
+  participating: boolean;
+}
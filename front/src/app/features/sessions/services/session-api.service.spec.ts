@@ -99,6 +99,27 @@ describe('SessionsService', () => {
     httpTestingController.verify();                                 // Verify that the HTTP request was made
   });
 
+  //==================================================================================
+  //============= Test GET composite session detail
+  //==================================================================================
+  it('should retrieve the composite detail of a session by ID', (done) => {
+    const expectedDetail = {
+      session: mockSessions[0],
+      participantCount: 2,
+      participating: true
+    };
+
+    service.fullDetail('1').subscribe(detail => {
+      expect(detail).toEqual(expectedDetail);     // Verify complete data match
+      done();
+    });
+
+    const req = httpTestingController.expectOne('api/session/1/detail');  // Setup an HTTP GET request to 'api/session/1/detail'
+    expect(req.request.method).toBe('GET');                               // Expect a GET request
+    req.flush(expectedDetail);                                            // Simulate response
+    httpTestingController.verify();                                       // Verify that the HTTP request was made
+  });
+
   //==================================================================================
   //============= Test CREATE session
   //==================================================================================
@@ -2,6 +2,7 @@ import { HttpClient } from '@angular/common/http';
 import { Injectable } from '@angular/core';
 import { Observable } from 'rxjs';
 import { Session } from '../interfaces/session.interface';
+import { SessionDetail } from '../interfaces/sessionDetail.interface';
 
 @Injectable({
   providedIn: 'root'
@@ -21,6 +22,10 @@ export class SessionApiService {
     return this.httpClient.get<Session>(`${this.pathService}/${id}`);
   }
 
+  public fullDetail(id: string): Observable<SessionDetail> {
+    return this.httpClient.get<SessionDetail>(`${this.pathService}/${id}/detail`);
+  }
+
   public delete(id: string): Observable<any> {
     return this.httpClient.delete(`${this.pathService}/${id}`);
   }